@@ -0,0 +1,39 @@
+package luma.bench;
+
+import luma.lexer.Lexer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.semantic.SemanticAnalyzer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyzerBenchmark {
+    @Param({"100", "10000"})
+    public int units;
+
+    @Param({"1", "16"})
+    public int depth;
+
+    private List<Stmt> statements;
+
+    @Setup
+    public void setUp() {
+        statements = new Parser(Lexer.tokenize(Programs.declarations(units, depth))).parse();
+    }
+
+    // Analysis only overwrites the annotations it computed on the previous call, so one tree serves every call
+    @Benchmark
+    public SemanticAnalyzer analyze() {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.analyze(statements);
+        return analyzer;
+    }
+}
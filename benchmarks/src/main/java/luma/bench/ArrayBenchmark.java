@@ -0,0 +1,42 @@
+package luma.bench;
+
+import luma.runtime.ArrayMath;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Whole-array arithmetic on the Vector API loops against the plain loops used when the module is missing
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ArrayBenchmark {
+    @Param({"16", "1024", "65536"})
+    public int length;
+
+    private double[] left;
+    private double[] right;
+
+    @Setup
+    public void setUp() {
+        left = new double[length];
+        right = new double[length];
+        for (int i = 0; i < length; i++) {
+            left[i] = i;
+            right[i] = i + 1;
+        }
+    }
+
+    @Benchmark
+    public Object vector() {
+        return ArrayMath.divide(ArrayMath.add(ArrayMath.multiply(left, 2.0), right), right);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Dluma.vector=false"})
+    public Object scalar() {
+        return ArrayMath.divide(ArrayMath.add(ArrayMath.multiply(left, 2.0), right), right);
+    }
+}
@@ -0,0 +1,62 @@
+package luma.bench;
+
+import luma.codegen.CodeGenerator;
+import luma.codegen.IntermediateCode;
+import luma.codegen.JvmCompiler;
+import luma.codegen.LumaProgram;
+import luma.codegen.VirtualMachine;
+import luma.interpreter.Interpreter;
+import luma.interpreter.node.NodeBuilder;
+import luma.interpreter.node.RootNode;
+import luma.parser.Stmt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs the same programs on every execution engine, so a new engine can be compared against the others
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+    @Param({"arithmetic", "nested"})
+    public String program;
+
+    @Param({"tree", "vm", "nodes", "jvm"})
+    public String engine;
+
+    private static final int ITERATIONS = 100_000;
+    private static final int DEPTH = 8;
+
+    private List<Stmt> statements;
+    private IntermediateCode code;
+    private RootNode root;
+    private LumaProgram compiled;
+
+    @Setup
+    public void setUp() {
+        String source = program.equals("arithmetic")
+                ? Programs.arithmeticLoop(ITERATIONS)
+                : Programs.nestedBlocks(ITERATIONS, DEPTH);
+        statements = Programs.analyze(source);
+        switch (engine) {
+            case "vm" -> code = new CodeGenerator().generate(statements);
+            case "nodes" -> root = new NodeBuilder().build(statements);
+            case "jvm" -> compiled = new JvmCompiler().load(statements);
+        }
+    }
+
+    @Benchmark
+    public Object run() {
+        return switch (engine) {
+            case "tree" -> new Interpreter().interpret(statements);
+            case "vm" -> new VirtualMachine(code).run();
+            case "nodes" -> root.execute();
+            case "jvm" -> compiled.run();
+            default -> throw new IllegalStateException("Unknown engine: " + engine);
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package luma.bench;
+
+import luma.lexer.Lexer;
+import luma.lexer.Token;
+import luma.lexer.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"100", "10000"})
+    public int units;
+
+    private String source;
+
+    // Reported per second, so the "megabytes" secondary result is the lexing rate in MB/s of ASCII source
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public double megabytes;
+    }
+
+    @Setup
+    public void setUp() {
+        source = Programs.declarations(units, 3);
+    }
+
+    @Benchmark
+    public List<Token> scanTokens(Bytes bytes) {
+        bytes.megabytes += source.length() / 1e6;
+        return new Lexer(source).scanTokens();
+    }
+
+    @Benchmark
+    public TokenBuffer tokenize(Bytes bytes) {
+        bytes.megabytes += source.length() / 1e6;
+        return Lexer.tokenize(source);
+    }
+}
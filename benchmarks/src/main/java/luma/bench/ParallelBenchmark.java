@@ -0,0 +1,42 @@
+package luma.bench;
+
+import luma.interpreter.Interpreter;
+import luma.parser.Stmt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// A parallel loop with a sum reduction against the same loop written with while, on the tree interpreter. The
+// small work size shows what splitting the range and copying frames costs when iterations do almost nothing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+    @Param({"1", "1000"})
+    public int work;
+
+    private static final int ITERATIONS = 10_000;
+
+    private List<Stmt> parallel;
+    private List<Stmt> sequential;
+
+    @Setup
+    public void setUp() {
+        parallel = Programs.analyze(Programs.reduction(ITERATIONS, work, true));
+        sequential = Programs.analyze(Programs.reduction(ITERATIONS, work, false));
+    }
+
+    @Benchmark
+    public Object parallel() {
+        return new Interpreter().interpret(parallel);
+    }
+
+    @Benchmark
+    public Object sequential() {
+        return new Interpreter().interpret(sequential);
+    }
+}
@@ -0,0 +1,45 @@
+package luma.bench;
+
+import luma.lexer.Lexer;
+import luma.lexer.Token;
+import luma.lexer.TokenBuffer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"100", "10000"})
+    public int units;
+
+    @Param({"1", "16"})
+    public int depth;
+
+    private List<Token> tokens;
+    private TokenBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        String source = Programs.declarations(units, depth);
+        tokens = new Lexer(source).scanTokens();
+        buffer = Lexer.tokenize(source);
+    }
+
+    @Benchmark
+    public List<Stmt> parseTokenList() {
+        return new Parser(tokens).parse();
+    }
+
+    @Benchmark
+    public List<Stmt> parseTokenBuffer() {
+        return new Parser(buffer).parse();
+    }
+}
@@ -0,0 +1,89 @@
+package luma.bench;
+
+import luma.lexer.Lexer;
+import luma.optimizer.Optimizer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.semantic.SemanticAnalyzer;
+
+import java.util.List;
+
+// Generated Luma sources shared by the benchmarks
+final class Programs {
+    private Programs() {
+    }
+
+    // `units` top-level units, each an if statement whose body nests `depth` blocks
+    static String declarations(int units, int depth) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < units; i++) {
+            String name = "v" + i;
+            source.append("var ").append(name).append(" = ").append(i).append(";\n");
+            source.append("if (").append(name).append(" > 3) {\n");
+            source.append("    var t = ").append(name).append(" * 2 - 1;\n");
+            for (int level = 0; level < depth; level++) {
+                source.append("    ".repeat(level + 1)).append("{ var t = t + ").append(level).append(";\n");
+            }
+            for (int level = depth - 1; level >= 0; level--) {
+                source.append("    ".repeat(level + 1)).append("}\n");
+            }
+            source.append("    ").append(name).append(" = t / 2;\n");
+            source.append("}\n");
+        }
+        return source.toString();
+    }
+
+    // A single while loop dominated by arithmetic on numbers
+    static String arithmeticLoop(int iterations) {
+        return "var i = 0;\n"
+                + "var sum = 0;\n"
+                + "while (i < " + iterations + ") {\n"
+                + "    sum = sum + i * 2 - i / 3;\n"
+                + "    if (sum > 1000000) {\n"
+                + "        sum = sum - 1000000;\n"
+                + "    }\n"
+                + "    i = i + 1;\n"
+                + "}\n"
+                + "return sum;\n";
+    }
+
+    // A while loop whose body enters `depth` nested blocks, each declaring a variable, on every iteration
+    static String nestedBlocks(int iterations, int depth) {
+        StringBuilder source = new StringBuilder("var i = 0;\nvar sum = 0;\nwhile (i < " + iterations + ") {\n");
+        source.append("    var x0 = i;\n");
+        for (int level = 1; level <= depth; level++) {
+            source.append("    ".repeat(level)).append("{ var x").append(level).append(" = x").append(level - 1)
+                    .append(" + 1;\n");
+        }
+        source.append("    ".repeat(depth + 1)).append("sum = sum + x").append(depth).append(";\n");
+        for (int level = depth; level >= 1; level--) {
+            source.append("    ".repeat(level)).append("}\n");
+        }
+        source.append("    i = i + 1;\n}\nreturn sum;\n");
+        return source.toString();
+    }
+
+    // Sums an inner loop of `work` steps over `iterations` outer iterations, as a parallel loop with a sum
+    // reduction or as the equivalent while loop
+    static String reduction(int iterations, int work, boolean parallel) {
+        String body = "    var k = 0;\n"
+                + "    var acc = 0;\n"
+                + "    while (k < " + work + ") {\n"
+                + "        acc = acc + k * i;\n"
+                + "        k = k + 1;\n"
+                + "    }\n"
+                + "    total = total + acc;\n";
+        if (parallel) {
+            return "var total = 0;\nparallel (i = 0, " + iterations + ") reduce (sum total) {\n" + body
+                    + "}\nreturn total;\n";
+        }
+        return "var total = 0;\nvar i = 0;\nwhile (i < " + iterations + ") {\n" + body
+                + "    i = i + 1;\n}\nreturn total;\n";
+    }
+
+    static List<Stmt> analyze(String source) {
+        List<Stmt> statements = new Parser(new Lexer(source)).parse();
+        new SemanticAnalyzer().analyze(statements);
+        return new Optimizer().optimize(statements);
+    }
+}
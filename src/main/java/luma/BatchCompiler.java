@@ -0,0 +1,177 @@
+package luma;
+
+import luma.codegen.CodeGenerator;
+import luma.codegen.IntermediateCode;
+import luma.codegen.ProgramCache;
+import luma.lexer.Lexer;
+import luma.optimizer.Optimizer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.semantic.SemanticAnalyzer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+// Compiles many independent scripts in parallel. Every file gets its own lexer, parser, analyzer and code
+// generator, so files share nothing and an error in one never affects another.
+public class BatchCompiler {
+    private static final String EXTENSION = ".luma";
+    private static final long CACHE_BYTES = 256L * 1024 * 1024;
+
+    private final int parallelism;
+    // Optional; shared by all tasks, which is safe because entries are written atomically
+    private final ProgramCache cache;
+
+    public BatchCompiler(int parallelism) {
+        this(parallelism, null);
+    }
+
+    public BatchCompiler(int parallelism, ProgramCache cache) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism + ".");
+        }
+        this.parallelism = parallelism;
+        this.cache = cache;
+    }
+
+    public static void main(String[] args) {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        String cacheDirectory = null;
+        List<Path> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = arg.substring("--cache=".length());
+            } else {
+                paths.add(Path.of(arg));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.out.println("Usage: BatchCompiler [--parallelism=N] [--cache=DIR] <file or directory>...");
+            System.exit(64);
+        }
+
+        List<Path> files;
+        ProgramCache cache = null;
+        try {
+            files = collectSources(paths);
+            if (cacheDirectory != null) {
+                cache = new ProgramCache(Path.of(cacheDirectory), CACHE_BYTES);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("Could not prepare the batch: " + e.getMessage());
+            System.exit(66);
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<CompilationResult> results = new BatchCompiler(parallelism, cache).compile(files);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        int failed = 0;
+        for (CompilationResult result : results) {
+            if (!result.isSuccess()) {
+                System.out.println(result);
+                failed++;
+            }
+        }
+        System.out.println("Compiled " + (results.size() - failed) + " of " + results.size() + " files in "
+                + elapsed + " ms on " + parallelism + " threads, " + failed + " with errors.");
+        if (failed > 0) {
+            System.exit(65);
+        }
+    }
+
+    // Expands directories into the Luma scripts below them, in a stable order
+    public static List<Path> collectSources(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(EXTENSION))
+                            .sorted()
+                            .forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    // Results come back in the order of the given files
+    public List<CompilationResult> compile(List<Path> files) {
+        List<Callable<CompilationResult>> tasks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            tasks.add(() -> compileFile(file));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<CompilationResult> results = new ArrayList<>(files.size());
+            List<Future<CompilationResult>> futures = pool.invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(resultOf(files.get(i), futures.get(i)));
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private CompilationResult resultOf(Path file, Future<CompilationResult> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // compileFile reports its own errors; anything arriving here escaped the pipeline entirely
+            return CompilationResult.failure(file, "compilation", String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompilationResult.failure(file, "compilation", "Interrupted.");
+        }
+    }
+
+    public CompilationResult compileFile(Path file) {
+        String phase = "reading";
+        try {
+            String cacheKey = null;
+            if (cache != null) {
+                cacheKey = ProgramCache.key(file);
+                IntermediateCode cached = cache.load(cacheKey);
+                if (cached != null) {
+                    return CompilationResult.success(file, cached);
+                }
+            }
+            Lexer lexer = Lexer.fromFile(file);
+            phase = "parsing";
+            List<Stmt> statements = new Parser(lexer).parse();
+            phase = "semantic analysis";
+            new SemanticAnalyzer().analyze(statements);
+            phase = "optimization";
+            statements = new Optimizer().optimize(statements);
+            phase = "code generation";
+            IntermediateCode code = new CodeGenerator().generate(statements);
+            if (cache != null) {
+                phase = "caching";
+                cache.store(cacheKey, code);
+            }
+            return CompilationResult.success(file, code);
+        } catch (IOException | UncheckedIOException e) {
+            return CompilationResult.failure(file, phase, "Could not read " + file + ": " + e);
+        } catch (RuntimeException e) {
+            return CompilationResult.failure(file, phase, e.getMessage());
+        } catch (StackOverflowError e) {
+            return CompilationResult.failure(file, phase, "Program is nested too deeply.");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package luma;
+
+import luma.codegen.IntermediateCode;
+
+import java.nio.file.Path;
+
+// Outcome of compiling one file in a batch: either its code or the error that stopped it
+public class CompilationResult {
+    private final Path path;
+    private final IntermediateCode code;
+    private final String phase;
+    private final String error;
+
+    private CompilationResult(Path path, IntermediateCode code, String phase, String error) {
+        this.path = path;
+        this.code = code;
+        this.phase = phase;
+        this.error = error;
+    }
+
+    static CompilationResult success(Path path, IntermediateCode code) {
+        return new CompilationResult(path, code, null, null);
+    }
+
+    static CompilationResult failure(Path path, String phase, String error) {
+        return new CompilationResult(path, null, phase, error);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public IntermediateCode getCode() {
+        return code;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? path + ": ok" : path + ": Error during " + phase + ": " + error;
+    }
+}
@@ -1,17 +1,54 @@
 package luma;
 
+import luma.codegen.CodeGenerator;
+import luma.codegen.IntermediateCode;
+import luma.codegen.JvmCompiler;
+import luma.codegen.LumaProgram;
+import luma.codegen.ProgramCache;
+import luma.codegen.VirtualMachine;
 import luma.interpreter.Interpreter;
+import luma.interpreter.node.NodeBuilder;
+import luma.interpreter.node.RootNode;
 import luma.lexer.Lexer;
-import luma.lexer.Token;
+import luma.lexer.TokenBuffer;
+import luma.metrics.CompilerPhaseEvent;
+import luma.metrics.ExecutionMetrics;
+import luma.metrics.ScriptExecutionEvent;
+import luma.optimizer.Optimizer;
 import luma.parser.Parser;
 import luma.parser.Stmt;
+import luma.runtime.ArrayMath;
 import luma.semantic.SemanticAnalyzer;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class LumaInterpreter {
+    private static final long CACHE_BYTES = 64L * 1024 * 1024;
 
     public static void main(String[] args) {
+        String engine = "tree";
+        String scriptPath = null;
+        String cacheDirectory = null;
+        boolean collectMetrics = false;
+        boolean dumpIr = false;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--cache=")) {
+                cacheDirectory = arg.substring("--cache=".length());
+            } else if (arg.equals("--metrics")) {
+                collectMetrics = true;
+            } else if (arg.equals("--dump-ir")) {
+                dumpIr = true;
+            } else {
+                scriptPath = arg;
+            }
+        }
+
         String sourceCode = """
                 var x = 0;
                 if (2 < 3) {
@@ -19,14 +56,54 @@ public class LumaInterpreter {
                 }
                 return x;
                 """;
+        String script = scriptPath != null ? scriptPath : "<inline>";
+
+        // Compiled bytecode is cached per script, so a hit skips the whole front end
+        ProgramCache cache = null;
+        String cacheKey = null;
+        if (cacheDirectory != null && scriptPath != null && engine.equals("vm")) {
+            try {
+                cache = new ProgramCache(Path.of(cacheDirectory), CACHE_BYTES);
+                cacheKey = ProgramCache.key(Path.of(scriptPath));
+                IntermediateCode cached = cache.load(cacheKey);
+                if (cached != null) {
+                    System.out.println("Loaded compiled program from cache.");
+                    executeOnVirtualMachine(cached, script);
+                    return;
+                }
+            } catch (IOException e) {
+                System.out.println("Program cache unavailable: " + e.getMessage());
+                cache = null;
+            }
+        }
 
-        Lexer lexer = new Lexer(sourceCode);
-        List<Token> tokens = lexer.scanTokens();
-        Parser parser = new Parser(tokens);
+        // Lexing normally streams into the parser. Lexing up front costs memory, so it is only done when someone
+        // is looking at separate lex and parse timings.
+        boolean separateLexing = collectMetrics || CompilerPhaseEvent.isRecording();
+        Parser parser;
+        CompilerPhaseEvent phase;
+        try {
+            if (separateLexing) {
+                CharSequence source = scriptPath != null ? Files.readString(Path.of(scriptPath)) : sourceCode;
+                phase = beginPhase(script, "lex");
+                TokenBuffer tokens = Lexer.tokenize(source);
+                phase.commit();
+                parser = new Parser(tokens);
+            } else {
+                Lexer lexer = scriptPath != null ? Lexer.fromFile(Path.of(scriptPath)) : new Lexer(sourceCode);
+                // The parser pulls tokens from the lexer as it goes instead of waiting for a complete token list
+                parser = new Parser(lexer);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read " + scriptPath + ": " + e.getMessage());
+            return;
+        }
 
         List<Stmt> statements;
         try {
+            phase = beginPhase(script, "parse");
             statements = parser.parse();
+            phase.commit();
             System.out.println("Parsed successfully: " + statements.size() + " statements.");
         } catch (RuntimeException e) {
             System.out.println("Error during parsing: " + e.getMessage());
@@ -35,15 +112,131 @@ public class LumaInterpreter {
 
         SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
         try {
+            phase = beginPhase(script, "analyze");
             semanticAnalyzer.analyze(statements);
+            phase.commit();
             System.out.println("Semantic analysis passed successfully.");
         } catch (RuntimeException e) {
             System.out.println("Error during semantic analysis: " + e.getMessage());
             return;
         }
 
-        Interpreter interpreter = new Interpreter();
-        System.out.println("Executing program:");
-        interpreter.interpret(statements);
+        phase = beginPhase(script, "optimize");
+        statements = new Optimizer().optimize(statements);
+        phase.commit();
+
+        ExecutionMetrics metrics = collectMetrics ? new ExecutionMetrics() : null;
+        switch (engine) {
+            case "tree" -> {
+                Interpreter interpreter = new Interpreter(null, metrics);
+                List<Stmt> program = statements;
+                System.out.println("Executing program:");
+                runOnLargeStack(() -> execute(script, "tree", () -> interpreter.interpret(program)));
+            }
+            case "vm" -> runOnVirtualMachine(statements, cache, cacheKey, script, dumpIr);
+            case "jvm" -> runOnJvm(statements, script);
+            case "nodes" -> runOnNodes(statements, script);
+            default -> System.out.println("Unknown engine: " + engine);
+        }
+        if (metrics != null) {
+            if (engine.equals("tree")) {
+                System.out.print(metrics.report());
+            } else {
+                System.out.println("Execution metrics are only collected by the tree engine.");
+            }
+        }
+    }
+
+    private static CompilerPhaseEvent beginPhase(String script, String name) {
+        CompilerPhaseEvent phase = new CompilerPhaseEvent();
+        phase.script = script;
+        phase.phase = name;
+        phase.begin();
+        return phase;
+    }
+
+    // The main thread's stack runs out well before the tree engine's call depth limit
+    private static void runOnLargeStack(Runnable body) {
+        Thread thread = new Thread(null, body, "luma-main", Interpreter.STACK_SIZE);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            thread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs a program inside a ScriptExecutionEvent and prints its outcome
+    private static void execute(String script, String engine, Supplier<Object> program) {
+        ScriptExecutionEvent event = new ScriptExecutionEvent();
+        event.script = script;
+        event.engine = engine;
+        event.begin();
+        try {
+            Object result = program.get();
+            if (result != null) {
+                System.out.println("Returned: " + ArrayMath.toString(result));
+            }
+        } catch (RuntimeException e) {
+            event.error = e.getMessage();
+            System.out.println("Runtime error: " + e.getMessage());
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static void runOnNodes(List<Stmt> statements, String script) {
+        RootNode root;
+        try {
+            root = new NodeBuilder().build(statements);
+        } catch (RuntimeException e) {
+            System.out.println("Error while building the node tree: " + e.getMessage());
+            return;
+        }
+        System.out.println("Executing program on self-specializing nodes:");
+        execute(script, "nodes", root::execute);
+    }
+
+    private static void runOnJvm(List<Stmt> statements, String script) {
+        LumaProgram program;
+        try {
+            program = new JvmCompiler().load(statements);
+        } catch (RuntimeException e) {
+            System.out.println("Error during code generation: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Executing program as JVM bytecode:");
+        execute(script, "jvm", program::run);
+    }
+
+    private static void runOnVirtualMachine(List<Stmt> statements, ProgramCache cache, String cacheKey,
+                                            String script, boolean dumpIr) {
+        IntermediateCode code;
+        try {
+            CodeGenerator generator = new CodeGenerator();
+            if (dumpIr) {
+                generator.setIrDump(System.out);
+            }
+            code = generator.generate(statements);
+        } catch (RuntimeException e) {
+            System.out.println("Error during code generation: " + e.getMessage());
+            return;
+        }
+
+        if (cache != null) {
+            try {
+                cache.store(cacheKey, code);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not cache the compiled program: " + e.getMessage());
+            }
+        }
+        executeOnVirtualMachine(code, script);
+    }
+
+    private static void executeOnVirtualMachine(IntermediateCode code, String script) {
+        System.out.println("Executing program on the VM:");
+        execute(script, "vm", () -> new VirtualMachine(code).run());
     }
 }
@@ -0,0 +1,304 @@
+package luma.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal class-file assembler for JvmCompiler. It emits version 49 class files, which are verified by
+// type inference and therefore need no StackMapTable frames.
+class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int ICONST_1 = 0x04;
+    static final int LCONST_0 = 0x09;
+    static final int LCONST_1 = 0x0a;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int LLOAD = 0x16;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ALOAD_0 = 0x2a;
+    static final int ISTORE = 0x36;
+    static final int LSTORE = 0x37;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3a;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DNEG = 0x77;
+    static final int L2D = 0x8a;
+    static final int LCMP = 0x94;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int GOTO = 0xa7;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int WIDE = 0xc4;
+
+    private static final int MAJOR_VERSION = 49;
+
+    private final List<byte[]> constants = new ArrayList<>();
+    private final Map<String, Integer> constantIndex = new HashMap<>();
+    private int constantCount = 1;
+    private final int thisClass;
+    private final int superClass;
+    private final int[] interfaces;
+    private final List<MethodCode> methods = new ArrayList<>();
+
+    ClassFileWriter(String className, String superName, String... interfaceNames) {
+        thisClass = classRef(className);
+        superClass = classRef(superName);
+        interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            interfaces[i] = classRef(interfaceNames[i]);
+        }
+    }
+
+    MethodCode method(int access, String name, String descriptor) {
+        MethodCode method = new MethodCode(access, utf8(name), utf8(descriptor));
+        methods.add(method);
+        return method;
+    }
+
+    int utf8(String value) {
+        return constant("U" + value, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return constant("M" + owner + "." + name + descriptor, 1, out -> {
+            out.writeByte(10);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    int doubleConstant(double value) {
+        return constant("D" + Double.doubleToRawLongBits(value), 2, out -> {
+            out.writeByte(6);
+            out.writeDouble(value);
+        });
+    }
+
+    int longConstant(long value) {
+        return constant("J" + value, 2, out -> {
+            out.writeByte(5);
+            out.writeLong(value);
+        });
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return constant("N" + name + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+    }
+
+    private int constant(String key, int width, Entry entry) {
+        Integer existing = constantIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            entry.write(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        int index = constantCount;
+        constants.add(bytes.toByteArray());
+        constantIndex.put(key, index);
+        // Long and double entries occupy two constant pool indices
+        constantCount += width;
+        if (constantCount > 0xFFFF) {
+            throw new RuntimeException("Program has too many constants for a JVM class file.");
+        }
+        return index;
+    }
+
+    byte[] toByteArray() {
+        int codeAttribute = utf8("Code");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(constantCount);
+            for (byte[] constant : constants) {
+                out.write(constant);
+            }
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.length);
+            for (int anInterface : interfaces) {
+                out.writeShort(anInterface);
+            }
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (MethodCode method : methods) {
+                method.write(out, codeAttribute);
+            }
+            out.writeShort(0); // class attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Entry {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static class Label {
+        private int position = -1;
+        private final List<Integer> branches = new ArrayList<>();
+    }
+
+    static class MethodCode {
+        private final int access;
+        private final int name;
+        private final int descriptor;
+        private byte[] code = new byte[256];
+        private int length = 0;
+        private int stackDepth = 0;
+        private int maxStack = 0;
+        private int maxLocals = 0;
+
+        private MethodCode(int access, int name, int descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        // stackDelta is the net change of the operand stack, in words, caused by the instruction
+        void op(int opcode, int stackDelta) {
+            u1(opcode);
+            adjustStack(stackDelta);
+        }
+
+        void op(int opcode, int operand, int stackDelta) {
+            u1(opcode);
+            u2(operand);
+            adjustStack(stackDelta);
+        }
+
+        void local(int opcode, int index, int width, int stackDelta) {
+            maxLocals = Math.max(maxLocals, index + width);
+            if (index > 0xFF) {
+                u1(WIDE);
+                u1(opcode);
+                u2(index);
+            } else {
+                u1(opcode);
+                u1(index);
+            }
+            adjustStack(stackDelta);
+        }
+
+        void jump(int opcode, Label target, int stackDelta) {
+            int position = length;
+            u1(opcode);
+            u2(0);
+            target.branches.add(position);
+            adjustStack(stackDelta);
+            if (target.position >= 0) {
+                patch(position, target.position);
+            }
+        }
+
+        void mark(Label label) {
+            label.position = length;
+            for (int branch : label.branches) {
+                patch(branch, label.position);
+            }
+        }
+
+        void reserveLocals(int count) {
+            maxLocals = Math.max(maxLocals, count);
+        }
+
+        private void patch(int branch, int target) {
+            int offset = target - branch;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Branch offset too large for the JVM backend.");
+            }
+            code[branch + 1] = (byte) (offset >> 8);
+            code[branch + 2] = (byte) offset;
+        }
+
+        private void adjustStack(int delta) {
+            stackDepth += delta;
+            maxStack = Math.max(maxStack, stackDepth);
+        }
+
+        private void u1(int value) {
+            if (length == code.length) {
+                code = java.util.Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        private void write(DataOutputStream out, int codeAttribute) throws IOException {
+            if (length > 0xFFFF) {
+                throw new RuntimeException("Program is too large for a single JVM method.");
+            }
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(length);
+            out.write(code, 0, length);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // code attributes
+        }
+    }
+}
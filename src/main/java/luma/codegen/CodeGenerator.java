@@ -1,5 +1,293 @@
 package luma.codegen;
 
+import luma.codegen.ir.Block;
+import luma.codegen.ir.ControlFlow;
+import luma.codegen.ir.Instruction;
+import luma.codegen.ir.IrBuilder;
+import luma.codegen.ir.IrFunction;
+import luma.codegen.ir.IrModule;
+import luma.codegen.ir.IrOp;
+import luma.codegen.ir.PassManager;
+import luma.parser.Stmt;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Translates analyzed statements into SSA form, optimizes it and lowers the result to VM bytecode.
+//
+// Lowering turns a value that is used once, right where it was computed, back into part of an expression on the
+// operand stack. Every other value gets a slot of its own in the frame, after the parameters in a function and
+// after the globals in the main program. Phis become copies at the end of the blocks leading to them.
 public class CodeGenerator {
+    private int[] code = new int[64];
+    private int length = 0;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndex = new HashMap<>();
+    private int stackDepth = 0;
+    private int maxStack = 0;
+    private PrintStream irDump;
+
+    // Per function being lowered
+    private IrFunction function;
+    private boolean[] inline;
+    private int[] slots;
+    private final Map<Block, Integer> blockStarts = new HashMap<>();
+    private final List<Integer> jumpOperands = new ArrayList<>();
+    private final List<Block> jumpTargets = new ArrayList<>();
+
+    // Prints the IR before and after each optimization pass
+    public void setIrDump(PrintStream irDump) {
+        this.irDump = irDump;
+    }
+
+    public IntermediateCode generate(List<Stmt> statements) {
+        return generate(statements, 0);
+    }
+
+    // globalCount reserves global slots the statements do not mention, such as bindings supplied by a host
+    public IntermediateCode generate(List<Stmt> statements, int globalCount) {
+        IrModule module = new IrBuilder().build(statements, globalCount);
+        PassManager passes = PassManager.standard();
+        passes.setDump(irDump);
+        passes.run(module);
+        return lower(module);
+    }
+
+    public IntermediateCode lower(IrModule module) {
+        int slotCount = lower(module.getMain(), module.getGlobalCount());
+        List<IntermediateCode.Function> compiled = new ArrayList<>();
+        for (IrFunction body : module.getFunctions()) {
+            int entry = length;
+            int frameSize = lower(body, body.getParameterCount());
+            compiled.add(new IntermediateCode.Function(body.getName(), entry, body.getParameterCount(), frameSize));
+        }
+        return new IntermediateCode(Arrays.copyOf(code, length), constants.toArray(), slotCount, maxStack,
+                compiled.toArray(new IntermediateCode.Function[0]));
+    }
+
+    // Returns the frame size; slots below firstSlot are parameters or globals
+    private int lower(IrFunction body, int firstSlot) {
+        function = body;
+        ControlFlow.splitCriticalEdges(body);
+        List<Block> order = ControlFlow.reversePostorder(body);
+
+        inline = new boolean[body.getValueCount()];
+        List<List<Instruction>> roots = new ArrayList<>();
+        for (Block block : order) {
+            roots.add(stackify(block));
+        }
+        slots = new int[body.getValueCount()];
+        int frameSize = firstSlot;
+        for (Block block : order) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction.op == IrOp.PARAM) {
+                    slots[instruction.id] = instruction.index;
+                } else if (instruction.hasValue() && instruction.op != IrOp.CONST && !inline[instruction.id]
+                        && !instruction.getUsers().isEmpty()) {
+                    slots[instruction.id] = frameSize++;
+                }
+            }
+        }
+
+        blockStarts.clear();
+        jumpOperands.clear();
+        jumpTargets.clear();
+        for (int i = 0; i < order.size(); i++) {
+            Block block = order.get(i);
+            Block next = i + 1 < order.size() ? order.get(i + 1) : null;
+            blockStarts.put(block, length);
+            stackDepth = 0;
+            for (Instruction root : roots.get(i)) {
+                if (IrOp.isTerminator(root.op)) {
+                    emitTerminator(block, root, next);
+                } else {
+                    emitTree(root);
+                    if (root.hasValue()) {
+                        if (root.getUsers().isEmpty()) {
+                            emit(OpCode.POP);
+                        } else {
+                            emit(OpCode.STORE, slots[root.id]);
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < jumpOperands.size(); i++) {
+            code[jumpOperands.get(i)] = blockStarts.get(jumpTargets.get(i));
+        }
+        return frameSize;
+    }
+
+    // Picks the instructions of a block that start an expression of their own. An operand is folded into its
+    // user when the user is its only use and nothing was computed in between, so evaluation order is unchanged.
+    private List<Instruction> stackify(Block block) {
+        List<Instruction> roots = new ArrayList<>();
+        for (Instruction instruction : block.getInstructions()) {
+            if (instruction.op == IrOp.PHI || instruction.op == IrOp.PARAM || instruction.op == IrOp.UNDEF
+                    || instruction.op == IrOp.CONST) {
+                // Constants are emitted at each use; the others need no code
+                continue;
+            }
+            // A jump reads the values it copies into the target's phis
+            List<Instruction> operands = instruction.op == IrOp.JUMP
+                    ? incomingValues(block, instruction.targets.get(0), new ArrayList<>())
+                    : instruction.getOperands();
+            for (int i = operands.size() - 1; i >= 0; i--) {
+                Instruction operand = operands.get(i);
+                if (!roots.isEmpty() && roots.get(roots.size() - 1) == operand && operand.getUsers().size() == 1) {
+                    roots.remove(roots.size() - 1);
+                    inline[operand.id] = true;
+                }
+            }
+            roots.add(instruction);
+        }
+        return roots;
+    }
+
+    private void emitTree(Instruction instruction) {
+        for (Instruction operand : instruction.getOperands()) {
+            emitOperand(operand);
+        }
+        switch (instruction.op) {
+            case IrOp.LOAD_GLOBAL -> emit(function.isMain() ? OpCode.LOAD : OpCode.LOAD_GLOBAL, instruction.index);
+            case IrOp.STORE_GLOBAL -> emit(function.isMain() ? OpCode.STORE : OpCode.STORE_GLOBAL, instruction.index);
+            case IrOp.ADD -> emit(OpCode.ADD);
+            case IrOp.SUB -> emit(OpCode.SUB);
+            case IrOp.MUL -> emit(OpCode.MUL);
+            case IrOp.DIV -> emit(OpCode.DIV);
+            case IrOp.NEG -> emit(OpCode.NEG);
+            case IrOp.EQ -> emit(OpCode.EQ);
+            case IrOp.NE -> emit(OpCode.NE);
+            case IrOp.GT -> emit(OpCode.GT);
+            case IrOp.LT -> emit(OpCode.LT);
+            case IrOp.GE -> emit(OpCode.GE);
+            case IrOp.LE -> emit(OpCode.LE);
+            case IrOp.CALL -> {
+                // The arguments are replaced by the result
+                stackDepth -= instruction.getOperands().size();
+                emit(OpCode.CALL, instruction.index);
+            }
+            case IrOp.NEW_ARRAY -> {
+                stackDepth -= instruction.getOperands().size();
+                emit(OpCode.NEW_ARRAY, instruction.getOperands().size());
+            }
+            case IrOp.INDEX -> emit(OpCode.INDEX);
+            case IrOp.STORE_INDEX -> emit(OpCode.STORE_INDEX);
+            case IrOp.LENGTH -> emit(OpCode.LENGTH);
+            case IrOp.CHECK -> emit(OpCode.CHECK, instruction.type.ordinal());
+            default -> throw new RuntimeException("Cannot lower " + instruction + " to bytecode.");
+        }
+    }
+
+    private void emitOperand(Instruction operand) {
+        if (operand.op == IrOp.CONST) {
+            emit(OpCode.CONST, constant(operand.constant));
+        } else if (inline[operand.id]) {
+            emitTree(operand);
+        } else {
+            emit(OpCode.LOAD, slots[operand.id]);
+        }
+    }
+
+    private void emitTerminator(Block block, Instruction terminator, Block next) {
+        switch (terminator.op) {
+            case IrOp.JUMP -> {
+                Block target = terminator.targets.get(0);
+                copyIntoPhis(block, target);
+                if (target != next) {
+                    emitJump(OpCode.JUMP, target);
+                }
+            }
+            case IrOp.BRANCH -> {
+                emitOperand(terminator.getOperand(0));
+                emitJump(OpCode.JUMP_IF_FALSE, terminator.targets.get(1));
+                if (terminator.targets.get(0) != next) {
+                    emitJump(OpCode.JUMP, terminator.targets.get(0));
+                }
+            }
+            case IrOp.RETURN -> {
+                emitOperand(terminator.getOperand(0));
+                emit(OpCode.RETURN);
+            }
+            case IrOp.RETURN_VOID -> emit(function.isMain() ? OpCode.HALT : OpCode.RETURN_VOID);
+            default -> throw new RuntimeException("Cannot lower " + terminator + " to bytecode.");
+        }
+    }
+
+    // All incoming values are pushed before any phi is written, so phis that feed each other swap correctly
+    private void copyIntoPhis(Block block, Block target) {
+        List<Instruction> phis = new ArrayList<>();
+        for (Instruction value : incomingValues(block, target, phis)) {
+            emitOperand(value);
+        }
+        for (int i = phis.size() - 1; i >= 0; i--) {
+            emit(OpCode.STORE, slots[phis.get(i).id]);
+        }
+    }
+
+    // What the edge from block to target assigns to the target's phis, leaving out phis it leaves unchanged
+    private List<Instruction> incomingValues(Block block, Block target, List<Instruction> phis) {
+        int edge = target.getPredecessors().indexOf(block);
+        List<Instruction> values = new ArrayList<>();
+        for (Instruction instruction : target.getInstructions()) {
+            if (instruction.op != IrOp.PHI) {
+                break;
+            }
+            Instruction value = instruction.getOperand(edge);
+            if (value != instruction && value.op != IrOp.UNDEF) {
+                values.add(value);
+                phis.add(instruction);
+            }
+        }
+        return values;
+    }
+
+    private int constant(Object value) {
+        Integer index = constantIndex.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private void emitJump(int opcode, Block target) {
+        emit(opcode, -1);
+        jumpOperands.add(length - 1);
+        jumpTargets.add(target);
+    }
+
+    private void emit(int opcode) {
+        adjustStack(opcode);
+        append(opcode);
+    }
+
+    private void emit(int opcode, int operand) {
+        adjustStack(opcode);
+        append(opcode);
+        append(operand);
+    }
+
+    private void adjustStack(int opcode) {
+        switch (opcode) {
+            case OpCode.CONST, OpCode.LOAD, OpCode.LOAD_GLOBAL, OpCode.CALL, OpCode.NEW_ARRAY -> stackDepth++;
+            case OpCode.JUMP, OpCode.HALT, OpCode.NEG, OpCode.RETURN_VOID, OpCode.LENGTH, OpCode.CHECK -> {
+            }
+            case OpCode.STORE_INDEX -> stackDepth -= 3;
+            default -> stackDepth--;
+        }
+        maxStack = Math.max(maxStack, stackDepth);
+    }
 
+    private void append(int value) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, length * 2);
+        }
+        code[length++] = value;
+    }
 }
@@ -1,5 +1,112 @@
 package luma.codegen;
 
 public class IntermediateCode {
+    private final int[] code;
+    private final Object[] constants;
+    private final int slotCount;
+    private final int maxStack;
+    private final Function[] functions;
 
+    public IntermediateCode(int[] code, Object[] constants, int slotCount, int maxStack) {
+        this(code, constants, slotCount, maxStack, new Function[0]);
+    }
+
+    public IntermediateCode(int[] code, Object[] constants, int slotCount, int maxStack, Function[] functions) {
+        this.code = code;
+        this.constants = constants;
+        this.slotCount = slotCount;
+        this.maxStack = maxStack;
+        this.functions = functions;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    // Size of the global frame
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    // Deepest operand stack any single frame needs
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    // Indexed by the operand of CALL
+    public Function[] getFunctions() {
+        return functions;
+    }
+
+    // Returns -1 when the program declares no function with that name
+    public int findFunction(String name) {
+        for (int i = 0; i < functions.length; i++) {
+            if (functions[i].getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public String disassemble() {
+        StringBuilder out = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length) {
+            for (Function function : functions) {
+                if (function.getEntry() == pc) {
+                    out.append(String.format("%s(%d parameters, %d slots):%n", function.getName(),
+                            function.getParameterCount(), function.getFrameSize()));
+                }
+            }
+            int opcode = code[pc];
+            out.append(String.format("%04d %s", pc, OpCode.name(opcode)));
+            if (OpCode.operandCount(opcode) == 1) {
+                int operand = code[pc + 1];
+                out.append(' ').append(operand);
+                if (opcode == OpCode.CONST) {
+                    out.append(" (").append(constants[operand]).append(')');
+                } else if (opcode == OpCode.CALL) {
+                    out.append(" (").append(functions[operand].getName()).append(')');
+                }
+            }
+            out.append('\n');
+            pc += 1 + OpCode.operandCount(opcode);
+        }
+        return out.toString();
+    }
+
+    // A function body starts at entry; its parameters arrive in slots 0..parameterCount-1 of a fresh frame
+    public static final class Function {
+        private final String name;
+        private final int entry;
+        private final int parameterCount;
+        private final int frameSize;
+
+        public Function(String name, int entry, int parameterCount, int frameSize) {
+            this.name = name;
+            this.entry = entry;
+            this.parameterCount = parameterCount;
+            this.frameSize = frameSize;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getEntry() {
+            return entry;
+        }
+
+        public int getParameterCount() {
+            return parameterCount;
+        }
+
+        public int getFrameSize() {
+            return frameSize;
+        }
+    }
 }
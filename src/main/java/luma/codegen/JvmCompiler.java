@@ -0,0 +1,411 @@
+package luma.codegen;
+
+import luma.codegen.ClassFileWriter.Label;
+import luma.codegen.ClassFileWriter.MethodCode;
+import luma.parser.*;
+import luma.runtime.LumaString;
+import luma.semantic.SemanticError;
+import luma.semantic.Type;
+
+import java.math.BigInteger;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static luma.codegen.ClassFileWriter.*;
+
+// Compiles analyzed statements into a hidden class implementing LumaProgram. Floats become JVM doubles, integers
+// JVM longs and booleans JVM ints; each Luma frame slot maps to a pair of JVM locals after `this`. A program
+// whose integers outgrow a long runs on the VM instead, see JvmRuntime.
+public class JvmCompiler {
+    private static final String CLASS_NAME = "luma/codegen/CompiledProgram";
+    private static final String PROGRAM_INTERFACE = "luma/codegen/LumaProgram";
+    private static final String RUNTIME = "luma/codegen/JvmRuntime";
+
+    private ClassFileWriter classFile;
+    private MethodCode method;
+    // Innermost loop last: its condition, where continue goes, and its exit, where break goes
+    private final List<Label> loopConditions = new ArrayList<>();
+    private final List<Label> loopExits = new ArrayList<>();
+
+    public LumaProgram load(List<Stmt> statements) {
+        byte[] bytes;
+        try {
+            bytes = compile(statements);
+        } catch (JvmRuntime.IntegerOverflow e) {
+            return () -> runOnVirtualMachine(statements);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class));
+            LumaProgram compiled = (LumaProgram) constructor.invoke();
+            // The programs compiled here have no effect besides their result, so one that overflowed can simply
+            // start over
+            return () -> {
+                try {
+                    return compiled.run();
+                } catch (JvmRuntime.IntegerOverflow e) {
+                    return runOnVirtualMachine(statements);
+                }
+            };
+        } catch (LinkageError e) {
+            throw new RuntimeException("Generated class was rejected by the JVM: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Could not instantiate the compiled program: " + e.getMessage(), e);
+        }
+    }
+
+    private static Object runOnVirtualMachine(List<Stmt> statements) {
+        return new VirtualMachine(new CodeGenerator().generate(statements)).run();
+    }
+
+    public byte[] compile(List<Stmt> statements) {
+        classFile = new ClassFileWriter(CLASS_NAME, "java/lang/Object", PROGRAM_INTERFACE);
+
+        MethodCode constructor = classFile.method(ACC_PUBLIC, "<init>", "()V");
+        constructor.local(ALOAD, 0, 1, 1);
+        constructor.op(INVOKESPECIAL, classFile.methodRef("java/lang/Object", "<init>", "()V"), -1);
+        constructor.op(RETURN, 0);
+
+        method = classFile.method(ACC_PUBLIC, "run", "()Ljava/lang/Object;");
+        method.reserveLocals(1);
+        for (Stmt stmt : statements) {
+            compile(stmt);
+        }
+        method.op(ACONST_NULL, 1);
+        method.op(ARETURN, -1);
+        return classFile.toByteArray();
+    }
+
+    private void compile(Stmt stmt) {
+        if (stmt instanceof VarDeclStmt) {
+            VarDeclStmt varDecl = (VarDeclStmt) stmt;
+            compileStored(varDecl.initializer, varDecl.type);
+            store(varDecl.name, varDecl.slot, varDecl.type);
+        } else if (stmt instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) stmt;
+            compileStored(assign.value, assign.type);
+            store(assign.name, assign.slot, assign.type);
+        } else if (stmt instanceof BlockStmt) {
+            for (Stmt innerStmt : ((BlockStmt) stmt).statements) {
+                compile(innerStmt);
+            }
+        } else if (stmt instanceof IfStmt) {
+            compileIf((IfStmt) stmt);
+        } else if (stmt instanceof WhileStmt) {
+            compileWhile((WhileStmt) stmt);
+        } else if (stmt instanceof ReturnStmt) {
+            Expr value = ((ReturnStmt) stmt).value;
+            compileExpr(value);
+            box(value.type);
+            method.op(ARETURN, -1);
+        } else if (stmt instanceof BreakStmt) {
+            method.jump(GOTO, loopExits.get(loopExits.size() - 1), 0);
+        } else if (stmt instanceof ContinueStmt) {
+            method.jump(GOTO, loopConditions.get(loopConditions.size() - 1), 0);
+        } else if (stmt instanceof FunctionDeclStmt || stmt instanceof ExprStmt) {
+            throw new RuntimeException("Functions are not supported by the JVM backend.");
+        } else if (stmt instanceof IndexAssignStmt) {
+            throw new RuntimeException("Arrays are not supported by the JVM backend.");
+        } else if (stmt instanceof ParallelStmt) {
+            throw new RuntimeException("Parallel loops are not supported by the JVM backend.");
+        } else {
+            throw new RuntimeException("Unknown statement type: " + stmt);
+        }
+    }
+
+    private void compileIf(IfStmt stmt) {
+        Label elseBranch = new Label();
+        compileCondition(stmt.condition, elseBranch);
+        compile(stmt.thenBranch);
+        if (stmt.elseBranch != null) {
+            Label end = new Label();
+            method.jump(GOTO, end, 0);
+            method.mark(elseBranch);
+            compile(stmt.elseBranch);
+            method.mark(end);
+        } else {
+            method.mark(elseBranch);
+        }
+    }
+
+    private void compileWhile(WhileStmt stmt) {
+        Label condition = new Label();
+        Label exit = new Label();
+        method.mark(condition);
+        compileCondition(stmt.getCondition(), exit);
+        loopConditions.add(condition);
+        loopExits.add(exit);
+        compile(stmt.getBody());
+        loopConditions.remove(loopConditions.size() - 1);
+        loopExits.remove(loopExits.size() - 1);
+        method.jump(GOTO, condition, 0);
+        method.mark(exit);
+    }
+
+    // Jumps to ifFalse when the condition does not hold, falls through otherwise
+    private void compileCondition(Expr condition, Label ifFalse) {
+        if (condition.type.isNumeric()) {
+            // Numbers are always truthy, but evaluating one can still fail
+            compileDiscarded(condition);
+            return;
+        }
+        if (condition instanceof BinaryExpr && ((BinaryExpr) condition).left.type.isNumeric()
+                && ((BinaryExpr) condition).right.type.isNumeric()) {
+            compileComparison((BinaryExpr) condition, ifFalse);
+            return;
+        }
+        compileExpr(condition);
+        requireType(condition, Type.BOOLEAN);
+        method.jump(IFEQ, ifFalse, -1);
+    }
+
+    // Evaluates an expression only for the errors it can raise, such as a division by zero
+    private void compileDiscarded(Expr expr) {
+        compileExpr(expr);
+        if (expr.type.isNumeric()) {
+            method.op(POP2, -2);
+        } else {
+            method.op(POP, -1);
+        }
+    }
+
+    // Compares two integers as longs and anything else as doubles, jumping to ifFalse unless the comparison holds
+    private void compileComparison(BinaryExpr expr, Label ifFalse) {
+        if (expr.left.type == Type.INTEGER && expr.right.type == Type.INTEGER) {
+            compileExpr(expr.left);
+            compileExpr(expr.right);
+            method.op(LCMP, -3);
+            int jump = switch (expr.operator) {
+                case "==" -> IFNE;
+                case "!=" -> IFEQ;
+                case "<" -> IFGE;
+                case "<=" -> IFGT;
+                case ">" -> IFLE;
+                case ">=" -> IFLT;
+                default -> throw new RuntimeException("Unknown operator: " + expr.operator);
+            };
+            method.jump(jump, ifFalse, -1);
+        } else {
+            compileDouble(expr.left);
+            compileDouble(expr.right);
+            compileNumericComparison(expr.operator, ifFalse);
+        }
+    }
+
+    // Consumes two doubles and jumps to ifFalse unless the comparison holds
+    private void compileNumericComparison(String operator, Label ifFalse) {
+        switch (operator) {
+            // Double.compare gives the same answer as the Double.equals used by the interpreter
+            case "==" -> {
+                method.op(INVOKESTATIC, classFile.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+                method.jump(IFNE, ifFalse, -1);
+            }
+            case "!=" -> {
+                method.op(INVOKESTATIC, classFile.methodRef("java/lang/Double", "compare", "(DD)I"), -3);
+                method.jump(IFEQ, ifFalse, -1);
+            }
+            // dcmpg and dcmpl are chosen so that NaN operands make every ordering false
+            case "<" -> {
+                method.op(DCMPG, -3);
+                method.jump(IFGE, ifFalse, -1);
+            }
+            case "<=" -> {
+                method.op(DCMPG, -3);
+                method.jump(IFGT, ifFalse, -1);
+            }
+            case ">" -> {
+                method.op(DCMPL, -3);
+                method.jump(IFLE, ifFalse, -1);
+            }
+            case ">=" -> {
+                method.op(DCMPL, -3);
+                method.jump(IFLT, ifFalse, -1);
+            }
+            default -> throw new RuntimeException("Unknown operator: " + operator);
+        }
+    }
+
+    private void compileExpr(Expr expr) {
+        if (expr instanceof LiteralExpr) {
+            compileLiteral(((LiteralExpr) expr).value);
+        } else if (expr instanceof IdentifierExpr) {
+            IdentifierExpr identifier = (IdentifierExpr) expr;
+            int local = local(identifier.name, identifier.slot);
+            if (identifier.type == Type.NUMBER) {
+                method.local(DLOAD, local, 2, 2);
+            } else if (identifier.type == Type.INTEGER) {
+                method.local(LLOAD, local, 2, 2);
+            } else {
+                requireType(identifier, Type.BOOLEAN);
+                method.local(ILOAD, local, 1, 1);
+            }
+        } else if (expr instanceof UnaryExpr) {
+            compileExpr(((UnaryExpr) expr).right);
+            if (expr.type == Type.INTEGER) {
+                method.op(INVOKESTATIC, classFile.methodRef(RUNTIME, "negate", "(J)J"), 0);
+            } else {
+                method.op(DNEG, 0);
+            }
+        } else if (expr instanceof BinaryExpr) {
+            compileBinary((BinaryExpr) expr);
+        } else if (expr instanceof CallExpr) {
+            throw new RuntimeException("Functions are not supported by the JVM backend.");
+        } else if (expr instanceof ArrayLiteralExpr || expr instanceof IndexExpr || expr instanceof LengthExpr) {
+            throw new RuntimeException("Arrays are not supported by the JVM backend.");
+        } else if (expr instanceof SpawnExpr || expr instanceof JoinExpr || expr instanceof ChannelExpr
+                || expr instanceof SendExpr || expr instanceof ReceiveExpr) {
+            throw new RuntimeException("Tasks and channels are not supported by the JVM backend.");
+        } else {
+            throw new RuntimeException("Unknown expression type: " + expr);
+        }
+    }
+
+    private void compileLiteral(Object value) {
+        if (value instanceof Double) {
+            double number = (double) value;
+            if (Double.doubleToRawLongBits(number) == 0L) {
+                method.op(DCONST_0, 2);
+            } else if (number == 1.0) {
+                method.op(DCONST_1, 2);
+            } else {
+                method.op(LDC2_W, classFile.doubleConstant(number), 2);
+            }
+        } else if (value instanceof Long) {
+            long integer = (long) value;
+            if (integer == 0 || integer == 1) {
+                method.op(integer == 0 ? LCONST_0 : LCONST_1, 2);
+            } else {
+                method.op(LDC2_W, classFile.longConstant(integer), 2);
+            }
+        } else if (value instanceof BigInteger) {
+            throw new JvmRuntime.IntegerOverflow();
+        } else if (value instanceof Boolean) {
+            method.op((boolean) value ? ICONST_1 : ICONST_0, 1);
+        } else if (value instanceof LumaString) {
+            throw new RuntimeException("Strings are not supported by the JVM backend.");
+        } else {
+            throw new RuntimeException("Literal " + value + " is not supported by the JVM backend.");
+        }
+    }
+
+    private void compileBinary(BinaryExpr expr) {
+        switch (expr.operator) {
+            case "+", "-", "*", "/" -> {
+                if (expr.type == Type.INTEGER) {
+                    compileExpr(expr.left);
+                    compileExpr(expr.right);
+                    String helper = switch (expr.operator) {
+                        case "+" -> "add";
+                        case "-" -> "subtract";
+                        default -> "multiply";
+                    };
+                    method.op(INVOKESTATIC, classFile.methodRef(RUNTIME, helper, "(JJ)J"), -2);
+                    return;
+                }
+                compileDouble(expr.left);
+                compileDouble(expr.right);
+                switch (expr.operator) {
+                    case "+" -> method.op(DADD, -2);
+                    case "-" -> method.op(DSUB, -2);
+                    case "*" -> method.op(DMUL, -2);
+                    default -> method.op(INVOKESTATIC, classFile.methodRef(RUNTIME, "divide", "(DD)D"), -2);
+                }
+            }
+            case "==", "!=", "<", "<=", ">", ">=" -> compileBooleanValue(expr);
+            default -> throw new RuntimeException("Unknown operator: " + expr.operator);
+        }
+    }
+
+    // An integer operand of float arithmetic is converted
+    private void compileDouble(Expr expr) {
+        compileExpr(expr);
+        if (expr.type == Type.INTEGER) {
+            method.op(L2D, 0);
+        }
+    }
+
+    // Materializes a comparison as a JVM int 0 or 1
+    private void compileBooleanValue(BinaryExpr expr) {
+        Type left = expr.left.type;
+        Type right = expr.right.type;
+        boolean equality = expr.operator.equals("==") || expr.operator.equals("!=");
+        if (equality && left != right && !(left.isNumeric() && right.isNumeric())) {
+            // Values of different types are never equal, though evaluating either side can still fail
+            compileDiscarded(expr.left);
+            compileDiscarded(expr.right);
+            method.op(expr.operator.equals("==") ? ICONST_0 : ICONST_1, 1);
+            return;
+        }
+
+        Label isFalse = new Label();
+        Label end = new Label();
+        if (left.isNumeric() && right.isNumeric()) {
+            compileComparison(expr, isFalse);
+        } else if (equality && left == Type.BOOLEAN) {
+            compileExpr(expr.left);
+            compileExpr(expr.right);
+            method.jump(expr.operator.equals("==") ? IF_ICMPNE : IF_ICMPEQ, isFalse, -2);
+        } else {
+            throw new RuntimeException("Operator '" + expr.operator + "' on " + left + " and " + right
+                    + " is not supported by the JVM backend.");
+        }
+        method.op(ICONST_1, 1);
+        method.jump(GOTO, end, 0);
+        method.mark(isFalse);
+        // The stack depth was already counted on the fall-through path
+        method.op(ICONST_0, 0);
+        method.mark(end);
+    }
+
+    private void compileStored(Expr value, Type type) {
+        if (type == Type.NUMBER) {
+            compileDouble(value);
+        } else {
+            compileExpr(value);
+        }
+    }
+
+    private void store(String name, int slot, Type type) {
+        int local = local(name, slot);
+        if (type == Type.NUMBER) {
+            method.local(DSTORE, local, 2, -2);
+        } else if (type == Type.INTEGER) {
+            method.local(LSTORE, local, 2, -2);
+        } else if (type == Type.BOOLEAN) {
+            method.local(ISTORE, local, 1, -1);
+        } else {
+            throw new RuntimeException("Variable '" + name + "' has no static type; the JVM backend needs one.");
+        }
+    }
+
+    private void box(Type type) {
+        if (type == Type.NUMBER) {
+            method.op(INVOKESTATIC, classFile.methodRef("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;"), -1);
+        } else if (type == Type.INTEGER) {
+            method.op(INVOKESTATIC, classFile.methodRef("java/lang/Long", "valueOf", "(J)Ljava/lang/Long;"), -1);
+        } else if (type == Type.BOOLEAN) {
+            method.op(INVOKESTATIC, classFile.methodRef("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;"), 0);
+        } else {
+            throw new RuntimeException("Values of type " + type + " are not supported by the JVM backend.");
+        }
+    }
+
+    private void requireType(Expr expr, Type type) {
+        if (expr.type != type) {
+            throw new RuntimeException("Expected a " + type + " but got a " + expr.type + " in the JVM backend.");
+        }
+    }
+
+    private int local(String name, int slot) {
+        if (slot < 0) {
+            throw new SemanticError("Variable '" + name + "' was not resolved.");
+        }
+        // Local 0 holds `this`; every Luma slot gets two JVM locals so it can hold a double
+        return 1 + slot * 2;
+    }
+}
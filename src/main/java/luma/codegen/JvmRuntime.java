@@ -0,0 +1,58 @@
+package luma.codegen;
+
+// Helpers called from classes generated by JvmCompiler
+public final class JvmRuntime {
+
+    private JvmRuntime() {
+    }
+
+    // Thrown when an integer outgrows a long. The other engines continue on BigIntegers, but JVM locals for
+    // integers are longs, so JvmCompiler reruns the program on the VM instead.
+    static final class IntegerOverflow extends RuntimeException {
+        IntegerOverflow() {
+            super("Integer overflow: the JVM backend only supports integers that fit in 64 bits.", null, false, false);
+        }
+    }
+
+    public static long add(long left, long right) {
+        try {
+            return Math.addExact(left, right);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public static long subtract(long left, long right) {
+        try {
+            return Math.subtractExact(left, right);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public static long multiply(long left, long right) {
+        try {
+            return Math.multiplyExact(left, right);
+        } catch (ArithmeticException e) {
+            throw overflow();
+        }
+    }
+
+    public static long negate(long value) {
+        if (value == Long.MIN_VALUE) {
+            throw overflow();
+        }
+        return -value;
+    }
+
+    private static RuntimeException overflow() {
+        return new IntegerOverflow();
+    }
+
+    public static double divide(double left, double right) {
+        if (right == 0) {
+            throw new RuntimeException("Division by zero.");
+        }
+        return left / right;
+    }
+}
@@ -0,0 +1,6 @@
+package luma.codegen;
+
+public interface LumaProgram {
+    // Runs the program and returns the value of its return statement, or null if it completes without one
+    Object run();
+}
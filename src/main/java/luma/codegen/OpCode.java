@@ -0,0 +1,64 @@
+package luma.codegen;
+
+public final class OpCode {
+    // Operands follow the opcode in the instruction stream
+    public static final int CONST = 0;          // constant index
+    public static final int LOAD = 1;           // slot
+    public static final int STORE = 2;          // slot
+    public static final int JUMP = 3;           // target offset
+    public static final int JUMP_IF_FALSE = 4;  // target offset
+
+    // No operands
+    public static final int ADD = 5;
+    public static final int SUB = 6;
+    public static final int MUL = 7;
+    public static final int DIV = 8;
+    public static final int EQ = 9;
+    public static final int NE = 10;
+    public static final int GT = 11;
+    public static final int LT = 12;
+    public static final int GE = 13;
+    public static final int LE = 14;
+    public static final int RETURN = 15;
+    public static final int HALT = 16;
+    public static final int NEG = 17;
+
+    // Operands follow the opcode in the instruction stream
+    public static final int CALL = 18;          // function index
+    public static final int LOAD_GLOBAL = 19;   // slot in the global frame
+    public static final int STORE_GLOBAL = 20;  // slot in the global frame
+
+    // No operands
+    public static final int POP = 21;
+    public static final int RETURN_VOID = 22;
+
+    // Operands follow the opcode in the instruction stream
+    public static final int NEW_ARRAY = 23;     // element count
+
+    // No operands
+    public static final int INDEX = 24;
+    public static final int STORE_INDEX = 25;
+    public static final int LENGTH = 26;
+
+    // Operands follow the opcode in the instruction stream
+    public static final int CHECK = 27;         // ordinal of the Type the value on top of the stack must have
+
+    private static final String[] NAMES = {
+            "CONST", "LOAD", "STORE", "JUMP", "JUMP_IF_FALSE",
+            "ADD", "SUB", "MUL", "DIV", "EQ", "NE", "GT", "LT", "GE", "LE",
+            "RETURN", "HALT", "NEG", "CALL", "LOAD_GLOBAL", "STORE_GLOBAL", "POP", "RETURN_VOID",
+            "NEW_ARRAY", "INDEX", "STORE_INDEX", "LENGTH", "CHECK"
+    };
+
+    private OpCode() {
+    }
+
+    public static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    public static int operandCount(int opcode) {
+        return opcode <= JUMP_IF_FALSE || (opcode >= CALL && opcode <= STORE_GLOBAL) || opcode == NEW_ARRAY
+                || opcode == CHECK ? 1 : 0;
+    }
+}
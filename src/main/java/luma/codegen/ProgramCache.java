@@ -0,0 +1,298 @@
+package luma.codegen;
+
+import luma.runtime.LumaString;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+// On-disk cache of compiled programs, keyed by a hash of the source and the compiler version. Entries are written
+// to a temporary file and moved into place atomically, so other JVMs sharing the directory only ever see complete
+// files. Eviction removes the least recently used entries once the directory grows beyond its size limit.
+public class ProgramCache {
+    // Bump whenever the front end or the code generator changes the code produced for a given source
+    public static final String COMPILER_VERSION = "13";
+
+    private static final int MAGIC = 0x4C554D43; // "LUMC"
+    private static final int FORMAT_VERSION = 4;
+    private static final String SUFFIX = ".lumc";
+    private static final String LOCK_FILE = ".lock";
+    private static final byte DOUBLE_CONSTANT = 'D';
+    private static final byte BOOLEAN_CONSTANT = 'B';
+    private static final byte STRING_CONSTANT = 'S';
+    private static final byte LONG_CONSTANT = 'L';
+    private static final byte BIG_INTEGER_CONSTANT = 'I';
+
+    private final Path directory;
+    private final long maxBytes;
+    // Size of the directory at the last scan plus what this instance wrote since; -1 before the first scan.
+    // Writes from other JVMs are not counted here, they trigger their own scans.
+    private long knownBytes = -1;
+
+    public ProgramCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+    }
+
+    public static String key(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            return key(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static String key(ByteBuffer source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(COMPILER_VERSION.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(source);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Returns null on a miss, including entries that are truncated or were written by another compiler version
+    public IntermediateCode load(String key) {
+        Path file = directory.resolve(key + SUFFIX);
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            return null;
+        }
+        IntermediateCode code;
+        try {
+            code = read(bytes);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+        if (code != null) {
+            try {
+                // The modification time doubles as the last-use time for eviction
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // Another JVM may have evicted the entry since it was mapped; the mapping stays valid
+            }
+        }
+        return code;
+    }
+
+    public void store(String key, IntermediateCode code) throws IOException {
+        ByteBuffer bytes = write(code);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            Path file = directory.resolve(key + SUFFIX);
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        synchronized (this) {
+            if (knownBytes < 0 || knownBytes + bytes.limit() > maxBytes) {
+                knownBytes = evict();
+            } else {
+                knownBytes += bytes.limit();
+            }
+        }
+    }
+
+    // Deletes least recently used entries until the cache fits and returns its remaining size. Only one JVM evicts
+    // at a time; the others skip it.
+    private long evict() throws IOException {
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock == null) {
+                return 0;
+            }
+            List<Path> files = new ArrayList<>();
+            List<BasicFileAttributes> attributes = new ArrayList<>();
+            long total = 0;
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : entries) {
+                    BasicFileAttributes attribute;
+                    try {
+                        attribute = Files.readAttributes(file, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    files.add(file);
+                    attributes.add(attribute);
+                    total += attribute.size();
+                }
+            }
+            if (total <= maxBytes) {
+                return total;
+            }
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                order.add(i);
+            }
+            order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+            for (int i : order) {
+                if (total <= maxBytes) {
+                    break;
+                }
+                try {
+                    Files.deleteIfExists(files.get(i));
+                    total -= attributes.get(i).size();
+                } catch (IOException e) {
+                    // Still in use on a platform that refuses to delete mapped files; try again next time
+                }
+            }
+            return total;
+        }
+    }
+
+    private static ByteBuffer write(IntermediateCode code) {
+        byte[] version = COMPILER_VERSION.getBytes(StandardCharsets.UTF_8);
+        Object[] constants = code.getConstants();
+        int[] instructions = code.getCode();
+        IntermediateCode.Function[] functions = code.getFunctions();
+        byte[][] functionNames = new byte[functions.length][];
+        // Strings and big integers, encoded up front to size the buffer
+        byte[][] encoded = new byte[constants.length][];
+        int size = 4 * 3 + version.length + 4 * 3 + constants.length * 9 + 4 + instructions.length * 4 + 4;
+        for (int i = 0; i < constants.length; i++) {
+            if (constants[i] instanceof LumaString) {
+                encoded[i] = constants[i].toString().getBytes(StandardCharsets.UTF_8);
+                size += 4 + encoded[i].length;
+            } else if (constants[i] instanceof BigInteger) {
+                encoded[i] = ((BigInteger) constants[i]).toByteArray();
+                size += 4 + encoded[i].length;
+            }
+        }
+        for (int i = 0; i < functions.length; i++) {
+            functionNames[i] = functions[i].getName().getBytes(StandardCharsets.UTF_8);
+            size += 4 * 4 + functionNames[i].length;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(size);
+        bytes.putInt(MAGIC);
+        bytes.putInt(FORMAT_VERSION);
+        bytes.putInt(version.length);
+        bytes.put(version);
+        bytes.putInt(code.getSlotCount());
+        bytes.putInt(code.getMaxStack());
+        bytes.putInt(constants.length);
+        for (int i = 0; i < constants.length; i++) {
+            Object constant = constants[i];
+            if (constant instanceof Double) {
+                bytes.put(DOUBLE_CONSTANT);
+                bytes.putDouble((double) constant);
+            } else if (constant instanceof Boolean) {
+                bytes.put(BOOLEAN_CONSTANT);
+                bytes.put((byte) ((boolean) constant ? 1 : 0));
+            } else if (constant instanceof LumaString) {
+                bytes.put(STRING_CONSTANT);
+                bytes.putInt(encoded[i].length);
+                bytes.put(encoded[i]);
+            } else if (constant instanceof Long) {
+                bytes.put(LONG_CONSTANT);
+                bytes.putLong((long) constant);
+            } else if (constant instanceof BigInteger) {
+                bytes.put(BIG_INTEGER_CONSTANT);
+                bytes.putInt(encoded[i].length);
+                bytes.put(encoded[i]);
+            } else {
+                throw new RuntimeException("Constant " + constant + " cannot be cached.");
+            }
+        }
+        bytes.putInt(instructions.length);
+        bytes.asIntBuffer().put(instructions);
+        bytes.position(bytes.position() + instructions.length * 4);
+        bytes.putInt(functions.length);
+        for (int i = 0; i < functions.length; i++) {
+            bytes.putInt(functionNames[i].length);
+            bytes.put(functionNames[i]);
+            bytes.putInt(functions[i].getEntry());
+            bytes.putInt(functions[i].getParameterCount());
+            bytes.putInt(functions[i].getFrameSize());
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    private static IntermediateCode read(ByteBuffer bytes) {
+        if (bytes.getInt() != MAGIC || bytes.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        byte[] version = new byte[length(bytes, 1)];
+        bytes.get(version);
+        if (!COMPILER_VERSION.equals(new String(version, StandardCharsets.UTF_8))) {
+            return null;
+        }
+        int slotCount = bytes.getInt();
+        int maxStack = bytes.getInt();
+        Object[] constants = new Object[length(bytes, 2)];
+        for (int i = 0; i < constants.length; i++) {
+            byte tag = bytes.get();
+            if (tag == DOUBLE_CONSTANT) {
+                constants[i] = bytes.getDouble();
+            } else if (tag == BOOLEAN_CONSTANT) {
+                constants[i] = bytes.get() != 0;
+            } else if (tag == STRING_CONSTANT) {
+                byte[] string = new byte[length(bytes, 1)];
+                bytes.get(string);
+                constants[i] = LumaString.of(new String(string, StandardCharsets.UTF_8));
+            } else if (tag == LONG_CONSTANT) {
+                constants[i] = bytes.getLong();
+            } else if (tag == BIG_INTEGER_CONSTANT) {
+                byte[] twosComplement = new byte[length(bytes, 1)];
+                bytes.get(twosComplement);
+                constants[i] = new BigInteger(twosComplement);
+            } else {
+                return null;
+            }
+        }
+        int[] code = new int[length(bytes, 4)];
+        bytes.asIntBuffer().get(code);
+        bytes.position(bytes.position() + code.length * 4);
+        IntermediateCode.Function[] functions = new IntermediateCode.Function[length(bytes, 16)];
+        for (int i = 0; i < functions.length; i++) {
+            byte[] name = new byte[length(bytes, 1)];
+            bytes.get(name);
+            functions[i] = new IntermediateCode.Function(new String(name, StandardCharsets.UTF_8), bytes.getInt(),
+                    bytes.getInt(), bytes.getInt());
+        }
+        return new IntermediateCode(code, constants, slotCount, maxStack, functions);
+    }
+
+    // Reads an element count, rejecting counts that cannot fit in the rest of a damaged file
+    private static int length(ByteBuffer bytes, int minimumElementSize) {
+        int length = bytes.getInt();
+        if (length < 0 || (long) length * minimumElementSize > bytes.remaining()) {
+            throw new IllegalArgumentException("Corrupt cache entry.");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,315 @@
+package luma.codegen;
+
+import luma.runtime.ArrayMath;
+import luma.runtime.ExecutionBudget;
+import luma.runtime.Numbers;
+import luma.semantic.Type;
+
+import java.util.Arrays;
+
+public class VirtualMachine {
+    private static final int MAX_CALL_DEPTH = 1000;
+    private static final Type[] TYPES = Type.values();
+
+    private final IntermediateCode program;
+    // Null when the execution is unbounded
+    private final ExecutionBudget budget;
+
+    public VirtualMachine(IntermediateCode program) {
+        this(program, null);
+    }
+
+    public VirtualMachine(IntermediateCode program, ExecutionBudget budget) {
+        this.program = program;
+        this.budget = budget;
+    }
+
+    public Object run() {
+        return run(new Object[program.getSlotCount()]);
+    }
+
+    // Runs with the given array as the frame, so callers can seed slots beforehand and read them back afterwards
+    public Object run(Object[] frame) {
+        checkGlobals(frame);
+        return execute(frame, -1, new Object[0]);
+    }
+
+    // Calls one of the program's functions; globals is the frame of a run of the same program
+    public Object call(int function, Object[] globals, Object... arguments) {
+        checkGlobals(globals);
+        IntermediateCode.Function target = program.getFunctions()[function];
+        if (arguments.length != target.getParameterCount()) {
+            throw new IllegalArgumentException("Function '" + target.getName() + "' expects "
+                    + target.getParameterCount() + " arguments but got " + arguments.length + ".");
+        }
+        return execute(globals, function, arguments);
+    }
+
+    private void checkGlobals(Object[] frame) {
+        if (frame.length < program.getSlotCount()) {
+            throw new IllegalArgumentException("Frame has " + frame.length + " slots but the program needs "
+                    + program.getSlotCount() + ".");
+        }
+    }
+
+    // Starts at the top-level code when function is -1, otherwise inside a call to it that returns to the host
+    private Object execute(Object[] globals, int function, Object[] arguments) {
+        final int[] code = program.getCode();
+        final Object[] constants = program.getConstants();
+        final IntermediateCode.Function[] functions = program.getFunctions();
+        final int maxStack = program.getMaxStack();
+        Object[] stack = new Object[maxStack];
+        int sp = 0;
+        int pc = 0;
+        // Boxed results and array elements since the last checkpoint, charged to the budget in one go
+        long allocated = 0;
+
+        // Call frames are contiguous ranges of one array: the running call's slots start at fp. Slots is the
+        // frame LOAD and STORE address, the globals outside of calls. Each call saves the return address, the
+        // caller's fp and the caller's function in three consecutive entries of calls.
+        Object[] locals = new Object[16];
+        Object[] slots = globals;
+        int fp = 0;
+        int current = -1;
+        int[] calls = new int[3 * 16];
+        int depth = 0;
+        // A RETURN at this depth leaves the VM
+        int exitDepth = 0;
+        if (function >= 0) {
+            locals = Arrays.copyOf(arguments, Math.max(16, functions[function].getFrameSize()));
+            slots = locals;
+            current = function;
+            depth = 1;
+            exitDepth = 1;
+            pc = functions[function].getEntry();
+        }
+
+        while (true) {
+            switch (code[pc++]) {
+                case OpCode.CONST -> stack[sp++] = constants[code[pc++]];
+                case OpCode.LOAD -> stack[sp++] = slots[fp + code[pc++]];
+                case OpCode.STORE -> slots[fp + code[pc++]] = stack[--sp];
+                case OpCode.LOAD_GLOBAL -> stack[sp++] = globals[code[pc++]];
+                case OpCode.STORE_GLOBAL -> globals[code[pc++]] = stack[--sp];
+                case OpCode.POP -> sp--;
+                case OpCode.CALL -> {
+                    if (depth == MAX_CALL_DEPTH) {
+                        throw new RuntimeException("Stack overflow: calls nested more than " + MAX_CALL_DEPTH
+                                + " deep.");
+                    }
+                    IntermediateCode.Function callee = functions[code[pc++]];
+                    int base = depth == 0 ? 0 : fp + functions[current].getFrameSize();
+                    int frameEnd = base + callee.getFrameSize();
+                    if (frameEnd > locals.length) {
+                        locals = Arrays.copyOf(locals, Math.max(locals.length * 2, frameEnd));
+                    }
+                    if (sp + maxStack > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + maxStack));
+                    }
+                    if (calls.length == 3 * depth) {
+                        calls = Arrays.copyOf(calls, calls.length * 2);
+                    }
+                    int parameters = callee.getParameterCount();
+                    sp -= parameters;
+                    System.arraycopy(stack, sp, locals, base, parameters);
+                    calls[3 * depth] = pc;
+                    calls[3 * depth + 1] = fp;
+                    calls[3 * depth + 2] = current;
+                    depth++;
+                    current = code[pc - 1];
+                    fp = base;
+                    slots = locals;
+                    pc = callee.getEntry();
+                    // Recursion can run without ever taking a back-edge, so calls are checkpoints too
+                    if (budget != null) {
+                        budget.allocate(allocated);
+                        allocated = 0;
+                        budget.checkpoint();
+                    }
+                }
+                case OpCode.JUMP -> {
+                    int target = code[pc];
+                    // Only loops jump backwards, so this is the loop back-edge
+                    if (target < pc && budget != null) {
+                        budget.allocate(allocated);
+                        allocated = 0;
+                        budget.checkpoint();
+                    }
+                    pc = target;
+                }
+                case OpCode.JUMP_IF_FALSE -> {
+                    if (isTruthy(stack[--sp])) {
+                        pc++;
+                    } else {
+                        pc = code[pc];
+                    }
+                }
+                case OpCode.ADD -> {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (left instanceof Double && right instanceof Double) {
+                        stack[sp - 1] = (double) left + (double) right;
+                        allocated++;
+                    } else if (left instanceof Long && right instanceof Long) {
+                        stack[sp - 1] = Numbers.add((long) left, (long) right);
+                        allocated++;
+                    } else {
+                        Object value = ArrayMath.add(left, right);
+                        stack[sp - 1] = value;
+                        allocated += ArrayMath.size(value);
+                    }
+                }
+                case OpCode.SUB -> {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (left instanceof Double && right instanceof Double) {
+                        stack[sp - 1] = (double) left - (double) right;
+                        allocated++;
+                    } else if (left instanceof Long && right instanceof Long) {
+                        stack[sp - 1] = Numbers.subtract((long) left, (long) right);
+                        allocated++;
+                    } else {
+                        Object value = ArrayMath.subtract(left, right);
+                        stack[sp - 1] = value;
+                        allocated += ArrayMath.size(value);
+                    }
+                }
+                case OpCode.MUL -> {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (left instanceof Double && right instanceof Double) {
+                        stack[sp - 1] = (double) left * (double) right;
+                        allocated++;
+                    } else if (left instanceof Long && right instanceof Long) {
+                        stack[sp - 1] = Numbers.multiply((long) left, (long) right);
+                        allocated++;
+                    } else {
+                        Object value = ArrayMath.multiply(left, right);
+                        stack[sp - 1] = value;
+                        allocated += ArrayMath.size(value);
+                    }
+                }
+                case OpCode.DIV -> {
+                    Object right = stack[--sp];
+                    Object left = stack[sp - 1];
+                    if (left instanceof Double && right instanceof Double) {
+                        if ((double) right == 0) {
+                            throw new RuntimeException("Division by zero.");
+                        }
+                        stack[sp - 1] = (double) left / (double) right;
+                        allocated++;
+                    } else {
+                        Object value = ArrayMath.divide(left, right);
+                        stack[sp - 1] = value;
+                        allocated += ArrayMath.size(value);
+                    }
+                }
+                case OpCode.NEG -> {
+                    Object operand = stack[sp - 1];
+                    if (operand instanceof Double) {
+                        stack[sp - 1] = -(double) operand;
+                        allocated++;
+                    } else if (operand instanceof Long) {
+                        stack[sp - 1] = Numbers.negate((long) operand);
+                        allocated++;
+                    } else {
+                        Object value = ArrayMath.negate(operand);
+                        stack[sp - 1] = value;
+                        allocated += ArrayMath.size(value);
+                    }
+                }
+                case OpCode.NEW_ARRAY -> {
+                    int count = code[pc++];
+                    double[] array = new double[count];
+                    sp -= count;
+                    for (int i = 0; i < count; i++) {
+                        array[i] = ArrayMath.element(stack[sp + i]);
+                    }
+                    stack[sp++] = array;
+                    allocated += count;
+                }
+                case OpCode.INDEX -> {
+                    Object index = stack[--sp];
+                    stack[sp - 1] = ArrayMath.get(stack[sp - 1], index);
+                    allocated++;
+                }
+                case OpCode.STORE_INDEX -> {
+                    Object value = stack[--sp];
+                    Object index = stack[--sp];
+                    ArrayMath.set(stack[--sp], index, value);
+                }
+                case OpCode.CHECK -> stack[sp - 1] = TYPES[code[pc++]].coerce(stack[sp - 1]);
+                case OpCode.LENGTH -> {
+                    stack[sp - 1] = (long) ArrayMath.length(stack[sp - 1]);
+                    allocated++;
+                }
+                case OpCode.EQ -> {
+                    Object right = stack[--sp];
+                    stack[sp - 1] = Numbers.equal(stack[sp - 1], right);
+                }
+                case OpCode.NE -> {
+                    Object right = stack[--sp];
+                    stack[sp - 1] = !Numbers.equal(stack[sp - 1], right);
+                }
+                case OpCode.GT, OpCode.LT, OpCode.GE, OpCode.LE -> {
+                    Object right = stack[--sp];
+                    stack[sp - 1] = compare(code[pc - 1], stack[sp - 1], right);
+                }
+                case OpCode.RETURN, OpCode.RETURN_VOID -> {
+                    Object value = code[pc - 1] == OpCode.RETURN ? stack[--sp] : null;
+                    if (depth == exitDepth) {
+                        return value;
+                    }
+                    depth--;
+                    pc = calls[3 * depth];
+                    fp = calls[3 * depth + 1];
+                    current = calls[3 * depth + 2];
+                    if (depth == 0) {
+                        slots = globals;
+                    }
+                    stack[sp++] = value;
+                }
+                case OpCode.HALT -> {
+                    return null;
+                }
+                default -> throw new RuntimeException("Unknown opcode: " + code[pc - 1]);
+            }
+        }
+    }
+
+    // Two floats and two integers are compared inline, other operands by Numbers
+    private static boolean compare(int opcode, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            double l = (double) left;
+            double r = (double) right;
+            return switch (opcode) {
+                case OpCode.GT -> l > r;
+                case OpCode.LT -> l < r;
+                case OpCode.GE -> l >= r;
+                default -> l <= r;
+            };
+        } else if (left instanceof Long && right instanceof Long) {
+            long l = (long) left;
+            long r = (long) right;
+            return switch (opcode) {
+                case OpCode.GT -> l > r;
+                case OpCode.LT -> l < r;
+                case OpCode.GE -> l >= r;
+                default -> l <= r;
+            };
+        }
+        String operator = switch (opcode) {
+            case OpCode.GT -> ">";
+            case OpCode.LT -> "<";
+            case OpCode.GE -> ">=";
+            default -> "<=";
+        };
+        return Numbers.compare(operator, left, right);
+    }
+
+    private boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+}
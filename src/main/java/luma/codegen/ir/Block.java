@@ -0,0 +1,58 @@
+package luma.codegen.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Phis come first and the terminator last once the block is complete
+public final class Block {
+    public final int id;
+    private final List<Instruction> instructions = new ArrayList<>();
+    private final List<Block> predecessors = new ArrayList<>();
+
+    Block(int id) {
+        this.id = id;
+    }
+
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    public List<Block> getPredecessors() {
+        return predecessors;
+    }
+
+    public Instruction getTerminator() {
+        if (instructions.isEmpty()) {
+            return null;
+        }
+        Instruction last = instructions.get(instructions.size() - 1);
+        return IrOp.isTerminator(last.op) ? last : null;
+    }
+
+    public List<Block> getSuccessors() {
+        Instruction terminator = getTerminator();
+        return terminator == null ? List.of() : terminator.targets;
+    }
+
+    public void append(Instruction instruction) {
+        instruction.block = this;
+        instructions.add(instruction);
+    }
+
+    // Inserts before the terminator
+    public void insertBeforeEnd(Instruction instruction) {
+        instruction.block = this;
+        int end = getTerminator() != null ? instructions.size() - 1 : instructions.size();
+        instructions.add(end, instruction);
+    }
+
+    public void insertBefore(Instruction instruction, Instruction before) {
+        instruction.block = this;
+        instructions.add(instructions.indexOf(before), instruction);
+    }
+
+    public void remove(Instruction instruction) {
+        instructions.remove(instruction);
+        instruction.block = null;
+    }
+}
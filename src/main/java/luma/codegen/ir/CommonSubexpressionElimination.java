@@ -0,0 +1,93 @@
+package luma.codegen.ir;
+
+import luma.semantic.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Global value numbering over the dominator tree: a pure computation that repeats one in a dominating block is
+// replaced by the earlier result. Computations that may fail are merged too, since the earlier one already failed
+// if the later one would have.
+public class CommonSubexpressionElimination implements Pass {
+    @Override
+    public String getName() {
+        return "common subexpression elimination";
+    }
+
+    @Override
+    public void run(IrFunction function) {
+        Map<Block, Block> idom = ControlFlow.immediateDominators(function);
+        Map<Block, List<Block>> children = ControlFlow.dominatorTree(function, idom);
+        Map<Key, Instruction> available = new HashMap<>();
+        visit(function.getEntry(), children, available);
+    }
+
+    private void visit(Block block, Map<Block, List<Block>> children, Map<Key, Instruction> available) {
+        List<Key> added = new ArrayList<>();
+        for (Instruction instruction : new ArrayList<>(block.getInstructions())) {
+            if (!instruction.isPure()) {
+                continue;
+            }
+            Key key = new Key(instruction);
+            Instruction existing = available.get(key);
+            if (existing != null) {
+                instruction.replaceAllUsesWith(existing);
+                instruction.dropOperands();
+                block.remove(instruction);
+            } else {
+                available.put(key, instruction);
+                added.add(key);
+            }
+        }
+        for (Block child : children.get(block)) {
+            visit(child, children, available);
+        }
+        // Leaving the subtree: its values no longer dominate what comes next
+        for (Key key : added) {
+            available.remove(key);
+        }
+    }
+
+    private static final class Key {
+        private final int op;
+        private final Type type;
+        private final Object constant;
+        private final int[] operands;
+
+        Key(Instruction instruction) {
+            op = instruction.op;
+            type = instruction.type;
+            constant = instruction.constant;
+            operands = new int[instruction.getOperands().size()];
+            for (int i = 0; i < operands.length; i++) {
+                operands[i] = instruction.getOperand(i).id;
+            }
+            // a + b and b + a are the same number; equality does not care about order either
+            boolean commutative = op == IrOp.ADD || op == IrOp.MUL || op == IrOp.EQ || op == IrOp.NE;
+            if (commutative && !instruction.mayTrap() && operands[0] > operands[1]) {
+                int swap = operands[0];
+                operands[0] = operands[1];
+                operands[1] = swap;
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return op == key.op && type == key.type && Objects.equals(constant, key.constant)
+                    && Arrays.equals(operands, key.operands);
+        }
+
+        @Override
+        public int hashCode() {
+            return (op * 31 + Objects.hashCode(constant)) * 31 + Arrays.hashCode(operands);
+        }
+    }
+}
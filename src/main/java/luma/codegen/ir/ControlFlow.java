@@ -0,0 +1,148 @@
+package luma.codegen.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Orderings and dominators over a function's blocks
+public final class ControlFlow {
+    private ControlFlow() {
+    }
+
+    // Blocks reachable from the entry. In the structured graphs Luma produces, every edge going backwards in this
+    // order is a loop back edge. Successors are visited last to first, so a branch is followed by the block it
+    // takes when the condition holds.
+    public static List<Block> reversePostorder(IrFunction function) {
+        List<Block> postorder = new ArrayList<>();
+        Set<Block> visited = new HashSet<>();
+        // Iterative depth-first search; deeply nested programs would overflow the Java stack
+        List<Block> stack = new ArrayList<>();
+        List<Integer> nextSuccessor = new ArrayList<>();
+        stack.add(function.getEntry());
+        nextSuccessor.add(0);
+        visited.add(function.getEntry());
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            Block block = stack.get(top);
+            int next = nextSuccessor.get(top);
+            List<Block> successors = block.getSuccessors();
+            if (next < successors.size()) {
+                nextSuccessor.set(top, next + 1);
+                Block successor = successors.get(successors.size() - 1 - next);
+                if (visited.add(successor)) {
+                    stack.add(successor);
+                    nextSuccessor.add(0);
+                }
+            } else {
+                postorder.add(block);
+                stack.remove(top);
+                nextSuccessor.remove(top);
+            }
+        }
+        List<Block> order = new ArrayList<>(postorder.size());
+        for (int i = postorder.size() - 1; i >= 0; i--) {
+            order.add(postorder.get(i));
+        }
+        return order;
+    }
+
+    // Immediate dominator of every reachable block; the entry maps to itself. Uses the iterative algorithm of
+    // Cooper, Harvey and Kennedy.
+    public static Map<Block, Block> immediateDominators(IrFunction function) {
+        List<Block> order = reversePostorder(function);
+        Map<Block, Integer> position = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            position.put(order.get(i), i);
+        }
+        Block[] idom = new Block[order.size()];
+        idom[0] = order.get(0);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < order.size(); i++) {
+                Block newIdom = null;
+                for (Block predecessor : order.get(i).getPredecessors()) {
+                    Integer p = position.get(predecessor);
+                    if (p == null || idom[p] == null) {
+                        continue;
+                    }
+                    newIdom = newIdom == null ? predecessor : intersect(predecessor, newIdom, idom, position);
+                }
+                if (idom[i] != newIdom) {
+                    idom[i] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+        Map<Block, Block> result = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            result.put(order.get(i), idom[i]);
+        }
+        return result;
+    }
+
+    // Gives every edge from a block with several successors to a block with phis a block of its own, where the
+    // copies into the phis can go
+    public static void splitCriticalEdges(IrFunction function) {
+        for (Block block : new ArrayList<>(function.getBlocks())) {
+            List<Block> successors = block.getSuccessors();
+            if (successors.size() < 2) {
+                continue;
+            }
+            for (int i = 0; i < successors.size(); i++) {
+                Block successor = successors.get(i);
+                if (successor.getPredecessors().size() < 2 || successor.getInstructions().get(0).op != IrOp.PHI) {
+                    continue;
+                }
+                Block edge = function.newBlock();
+                Instruction jump = function.newInstruction(IrOp.JUMP, null);
+                jump.targets.add(successor);
+                edge.append(jump);
+                edge.getPredecessors().add(block);
+                successors.set(i, edge);
+                successor.getPredecessors().set(successor.getPredecessors().indexOf(block), edge);
+            }
+        }
+    }
+
+    private static Block intersect(Block a, Block b, Block[] idom, Map<Block, Integer> position) {
+        while (a != b) {
+            while (position.get(a) > position.get(b)) {
+                a = idom[position.get(a)];
+            }
+            while (position.get(b) > position.get(a)) {
+                b = idom[position.get(b)];
+            }
+        }
+        return a;
+    }
+
+    public static boolean dominates(Map<Block, Block> idom, Block dominator, Block block) {
+        while (true) {
+            if (block == dominator) {
+                return true;
+            }
+            Block parent = idom.get(block);
+            if (parent == null || parent == block) {
+                return false;
+            }
+            block = parent;
+        }
+    }
+
+    // Children of every block in the dominator tree, in reverse postorder
+    public static Map<Block, List<Block>> dominatorTree(IrFunction function, Map<Block, Block> idom) {
+        Map<Block, List<Block>> children = new HashMap<>();
+        for (Block block : reversePostorder(function)) {
+            children.put(block, new ArrayList<>());
+            Block parent = idom.get(block);
+            if (parent != block) {
+                children.get(parent).add(block);
+            }
+        }
+        return children;
+    }
+}
@@ -0,0 +1,47 @@
+package luma.codegen.ir;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Removes values nothing needs: variables that are assigned but never read, results of pure computations that
+// were never used, and phis that only feed each other. Anything with a side effect stays, including computations
+// that may fail at runtime.
+public class DeadCodeElimination implements Pass {
+    @Override
+    public String getName() {
+        return "dead code elimination";
+    }
+
+    @Override
+    public void run(IrFunction function) {
+        Set<Instruction> live = new HashSet<>();
+        List<Instruction> worklist = new ArrayList<>();
+        for (Block block : function.getBlocks()) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction.hasSideEffects() || instruction.op == IrOp.PARAM) {
+                    live.add(instruction);
+                    worklist.add(instruction);
+                }
+            }
+        }
+        while (!worklist.isEmpty()) {
+            Instruction instruction = worklist.remove(worklist.size() - 1);
+            for (Instruction operand : instruction.getOperands()) {
+                if (live.add(operand)) {
+                    worklist.add(operand);
+                }
+            }
+        }
+
+        for (Block block : function.getBlocks()) {
+            for (Instruction instruction : new ArrayList<>(block.getInstructions())) {
+                if (!live.contains(instruction)) {
+                    instruction.dropOperands();
+                    block.remove(instruction);
+                }
+            }
+        }
+    }
+}
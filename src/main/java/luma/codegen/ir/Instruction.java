@@ -0,0 +1,154 @@
+package luma.codegen.ir;
+
+import luma.runtime.Numbers;
+import luma.semantic.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One SSA value, or an effect or terminator that produces none. Operands and users are kept in step, so every
+// change to an operand has to go through the methods here.
+public final class Instruction {
+    public final int op;
+    public final int id;
+    public Type type;
+    // CONST only
+    public final Object constant;
+    // Meaning depends on op, see IrOp
+    public final int index;
+    public Block block;
+    public final List<Block> targets = new ArrayList<>();
+    private final List<Instruction> operands = new ArrayList<>();
+    private final List<Instruction> users = new ArrayList<>();
+    // Set by IrBuilder when it folds a trivial phi into another value
+    Instruction replacement;
+
+    Instruction(int op, int id, Type type, Object constant, int index) {
+        this.op = op;
+        this.id = id;
+        this.type = type;
+        this.constant = constant;
+        this.index = index;
+    }
+
+    public List<Instruction> getOperands() {
+        return operands;
+    }
+
+    public Instruction getOperand(int i) {
+        return operands.get(i);
+    }
+
+    // One entry per use, so an instruction using a value twice is listed twice
+    public List<Instruction> getUsers() {
+        return users;
+    }
+
+    public void addOperand(Instruction value) {
+        operands.add(value);
+        value.users.add(this);
+    }
+
+    public void setOperand(int i, Instruction value) {
+        operands.get(i).users.remove(this);
+        operands.set(i, value);
+        value.users.add(this);
+    }
+
+    public void replaceAllUsesWith(Instruction value) {
+        for (Instruction user : new ArrayList<>(users)) {
+            for (int i = 0; i < user.operands.size(); i++) {
+                if (user.operands.get(i) == this) {
+                    user.setOperand(i, value);
+                }
+            }
+        }
+    }
+
+    public void dropOperands() {
+        for (Instruction operand : operands) {
+            operand.users.remove(this);
+        }
+        operands.clear();
+    }
+
+    public boolean hasValue() {
+        return op != IrOp.STORE_GLOBAL && op != IrOp.STORE_INDEX && !IrOp.isTerminator(op);
+    }
+
+    // Whether evaluating the instruction can fail at runtime. Values of static type NUMBER or INTEGER are trusted
+    // to be numbers; anything else may turn out to be of the wrong type. Integer overflow is not a failure.
+    public boolean mayTrap() {
+        switch (op) {
+            case IrOp.ADD, IrOp.SUB, IrOp.MUL, IrOp.GT, IrOp.LT, IrOp.GE, IrOp.LE -> {
+                return !operands.get(0).type.isNumeric() || !operands.get(1).type.isNumeric();
+            }
+            case IrOp.NEG -> {
+                return !operands.get(0).type.isNumeric();
+            }
+            case IrOp.DIV -> {
+                Instruction divisor = operands.get(1);
+                boolean nonZeroConstant = divisor.op == IrOp.CONST && Numbers.isNumber(divisor.constant)
+                        && Numbers.toDouble(divisor.constant) != 0;
+                return !operands.get(0).type.isNumeric() || !nonZeroConstant;
+            }
+            case IrOp.NEW_ARRAY -> {
+                for (Instruction element : operands) {
+                    if (!element.type.isNumeric()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case IrOp.LENGTH -> {
+                Type operand = operands.get(0).type;
+                return operand != Type.ARRAY && operand != Type.STRING;
+            }
+            case IrOp.CHECK -> {
+                // Converting an integer to a float cannot fail
+                return type != Type.NUMBER || !operands.get(0).type.isNumeric();
+            }
+            case IrOp.CALL, IrOp.INDEX, IrOp.STORE_INDEX -> {
+                return true;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    // Whether the instruction has to stay even when nothing uses its value
+    public boolean hasSideEffects() {
+        return op == IrOp.STORE_GLOBAL || op == IrOp.STORE_INDEX || op == IrOp.CALL || IrOp.isTerminator(op)
+                || mayTrap();
+    }
+
+    // Pure computations of their operands, which can be merged and moved freely unless they may trap. Arithmetic
+    // that may produce an array is not: every evaluation creates a new one, and the script may store into it.
+    public boolean isPure() {
+        if (IrOp.isArithmetic(op)) {
+            return type.isNumeric() || type == Type.BOOLEAN;
+        }
+        return op == IrOp.CONST || op == IrOp.LENGTH || op == IrOp.CHECK;
+    }
+
+    @Override
+    public String toString() {
+        List<String> arguments = new ArrayList<>();
+        if (op == IrOp.CONST) {
+            arguments.add(String.valueOf(constant));
+        } else if (op == IrOp.PARAM || op == IrOp.LOAD_GLOBAL || op == IrOp.STORE_GLOBAL || op == IrOp.CALL) {
+            arguments.add(String.valueOf(index));
+        }
+        for (int i = 0; i < operands.size(); i++) {
+            String operand = "v" + operands.get(i).id;
+            arguments.add(op == IrOp.PHI ? "[b" + block.getPredecessors().get(i).id + ": " + operand + "]" : operand);
+        }
+        for (Block target : targets) {
+            arguments.add("b" + target.id);
+        }
+        String text = (hasValue() ? "v" + id + " = " : "") + IrOp.name(op)
+                + (arguments.isEmpty() ? "" : " " + String.join(", ", arguments));
+        return hasValue() && type != null ? text + " : " + type : text;
+    }
+}
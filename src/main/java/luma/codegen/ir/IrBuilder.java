@@ -0,0 +1,675 @@
+package luma.codegen.ir;
+
+import luma.parser.*;
+import luma.semantic.SemanticError;
+import luma.semantic.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Builds SSA form straight from the analyzed statements, following Braun et al., "Simple and Efficient
+// Construction of Static Single Assignment Form". Variables are identified by their frame slot.
+//
+// The main program keeps its variables in SSA values as well, although they live in the global frame: they are
+// written back before calls to functions that use them, reloaded after calls to functions that write them, and
+// written back before the program ends. Functions access globals directly.
+public class IrBuilder {
+    private final Map<FunctionDeclStmt, Integer> functionIndex = new IdentityHashMap<>();
+    private final List<FunctionDeclStmt> declarations = new ArrayList<>();
+    // Globals functions touch; a call reloads those they write, and memory has to be up to date for the paths
+    // where they do not
+    private final Set<Integer> usedByFunctions = new TreeSet<>();
+    private final Set<Integer> writtenByFunctions = new TreeSet<>();
+    // Variables of the main program that outlive it, so everything but those declared inside blocks
+    private final Set<Integer> writtenByMain = new TreeSet<>();
+    private final Set<Integer> blockScoped = new HashSet<>();
+    private final Set<Integer> topScoped = new HashSet<>();
+    private int blockDepth = 0;
+    private int globalCount = 0;
+
+    private IrFunction function;
+    private Block current;
+    private final Map<Block, Map<Integer, Instruction>> definitions = new HashMap<>();
+    private final Map<Block, Map<Integer, Instruction>> incompletePhis = new HashMap<>();
+    private final Set<Block> sealed = new HashSet<>();
+    private final Map<Integer, Instruction> entryValues = new HashMap<>();
+    // Innermost loop last: where continue jumps to and where break jumps to
+    private final List<Block> loopHeaders = new ArrayList<>();
+    private final List<Block> loopExits = new ArrayList<>();
+
+    public IrModule build(List<Stmt> statements) {
+        return build(statements, 0);
+    }
+
+    // globalCount is a lower bound for the number of global slots, for callers that declared globals the
+    // statements themselves never mention
+    public IrModule build(List<Stmt> statements, int globalCount) {
+        this.globalCount = globalCount;
+        for (Stmt stmt : statements) {
+            scan(stmt, false);
+        }
+        blockScoped.removeAll(topScoped);
+        writtenByMain.removeAll(blockScoped);
+
+        IrFunction main = new IrFunction("main", 0, true);
+        begin(main);
+        for (Stmt stmt : statements) {
+            statement(stmt);
+        }
+        if (current != null) {
+            storeGlobals(writtenByMain);
+            current.append(function.newInstruction(IrOp.RETURN_VOID, null));
+        }
+        finish();
+
+        IrModule module = new IrModule(main, this.globalCount);
+        for (FunctionDeclStmt declaration : declarations) {
+            module.getFunctions().add(buildFunction(declaration));
+        }
+        return module;
+    }
+
+    private IrFunction buildFunction(FunctionDeclStmt declaration) {
+        IrFunction result = new IrFunction(declaration.name, declaration.parameters.size(), false);
+        begin(result);
+        for (int i = 0; i < declaration.parameters.size(); i++) {
+            Instruction parameter = function.newInstruction(IrOp.PARAM, Type.ANY, i);
+            current.append(parameter);
+            writeVariable(i, current, parameter);
+        }
+        for (Stmt stmt : declaration.body) {
+            statement(stmt);
+        }
+        if (current != null) {
+            current.append(function.newInstruction(IrOp.RETURN_VOID, null));
+        }
+        finish();
+        return result;
+    }
+
+    private void begin(IrFunction target) {
+        function = target;
+        definitions.clear();
+        incompletePhis.clear();
+        sealed.clear();
+        entryValues.clear();
+        current = function.newBlock();
+        seal(current);
+    }
+
+    private void finish() {
+        function.removeUnreachableBlocks();
+        inferPhiTypes();
+    }
+
+    // Records the functions of the program and which globals they and the main program touch
+    private void scan(Stmt stmt, boolean inFunction) {
+        if (stmt instanceof VarDeclStmt) {
+            VarDeclStmt varDecl = (VarDeclStmt) stmt;
+            scanWrite(varDecl.depth, varDecl.slot, inFunction);
+            if (!inFunction) {
+                (blockDepth > 0 ? blockScoped : topScoped).add(varDecl.slot);
+            }
+            scan(varDecl.initializer, inFunction);
+        } else if (stmt instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) stmt;
+            scanWrite(assign.depth, assign.slot, inFunction);
+            scan(assign.value, inFunction);
+        } else if (stmt instanceof IndexAssignStmt) {
+            // Stores into the array the variable holds, which leaves the variable itself unchanged
+            IndexAssignStmt assign = (IndexAssignStmt) stmt;
+            scan(assign.array, inFunction);
+            scan(assign.index, inFunction);
+            scan(assign.value, inFunction);
+        } else if (stmt instanceof BlockStmt) {
+            blockDepth++;
+            for (Stmt innerStmt : ((BlockStmt) stmt).statements) {
+                scan(innerStmt, inFunction);
+            }
+            blockDepth--;
+        } else if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            scan(ifStmt.condition, inFunction);
+            scan(ifStmt.thenBranch, inFunction);
+            if (ifStmt.elseBranch != null) {
+                scan(ifStmt.elseBranch, inFunction);
+            }
+        } else if (stmt instanceof WhileStmt) {
+            scan(((WhileStmt) stmt).getCondition(), inFunction);
+            scan(((WhileStmt) stmt).getBody(), inFunction);
+        } else if (stmt instanceof ParallelStmt) {
+            ParallelStmt parallel = (ParallelStmt) stmt;
+            scan(parallel.start, inFunction);
+            scan(parallel.end, inFunction);
+            for (IdentifierExpr reduction : parallel.reductions) {
+                scan(reduction, inFunction);
+                scanWrite(reduction.depth, reduction.slot, inFunction);
+            }
+            // The loop variable and the two slots after it are scoped to the loop like a block's variables
+            for (int slot = parallel.slot; slot <= parallel.endSlot; slot++) {
+                scanWrite(0, slot, inFunction);
+                if (!inFunction) {
+                    blockScoped.add(slot);
+                }
+            }
+            blockDepth++;
+            scan(parallel.body, inFunction);
+            blockDepth--;
+        } else if (stmt instanceof ReturnStmt) {
+            scan(((ReturnStmt) stmt).value, inFunction);
+        } else if (stmt instanceof ExprStmt) {
+            scan(((ExprStmt) stmt).expression, inFunction);
+        } else if (stmt instanceof FunctionDeclStmt) {
+            FunctionDeclStmt declaration = (FunctionDeclStmt) stmt;
+            globalCount = Math.max(globalCount, declaration.slot + 1);
+            if (!functionIndex.containsKey(declaration)) {
+                function(declaration);
+                for (Stmt innerStmt : declaration.body) {
+                    scan(innerStmt, true);
+                }
+            }
+        } else if (!(stmt instanceof BreakStmt) && !(stmt instanceof ContinueStmt)) {
+            throw new RuntimeException("Unknown statement type: " + stmt);
+        }
+    }
+
+    private void scan(Expr expr, boolean inFunction) {
+        if (expr instanceof IdentifierExpr) {
+            IdentifierExpr identifier = (IdentifierExpr) expr;
+            checkResolved(identifier.name, identifier.slot);
+            if (!inFunction || identifier.depth > 0) {
+                globalCount = Math.max(globalCount, identifier.slot + 1);
+            }
+            if (inFunction && identifier.depth > 0) {
+                usedByFunctions.add(identifier.slot);
+            }
+        } else if (expr instanceof BinaryExpr) {
+            scan(((BinaryExpr) expr).left, inFunction);
+            scan(((BinaryExpr) expr).right, inFunction);
+        } else if (expr instanceof UnaryExpr) {
+            scan(((UnaryExpr) expr).right, inFunction);
+        } else if (expr instanceof CallExpr) {
+            CallExpr call = (CallExpr) expr;
+            if (call.function == null) {
+                throw new SemanticError("Function '" + call.callee + "' was not resolved.");
+            }
+            for (Expr argument : call.arguments) {
+                scan(argument, inFunction);
+            }
+            scan(call.function, false);
+        } else if (expr instanceof ArrayLiteralExpr) {
+            for (Expr element : ((ArrayLiteralExpr) expr).elements) {
+                scan(element, inFunction);
+            }
+        } else if (expr instanceof IndexExpr) {
+            scan(((IndexExpr) expr).array, inFunction);
+            scan(((IndexExpr) expr).index, inFunction);
+        } else if (expr instanceof LengthExpr) {
+            scan(((LengthExpr) expr).array, inFunction);
+        } else if (expr instanceof SpawnExpr || expr instanceof JoinExpr || expr instanceof ChannelExpr
+                || expr instanceof SendExpr || expr instanceof ReceiveExpr) {
+            // Tasks would need a VM of their own on the shared global frame
+            throw new RuntimeException("Tasks and channels are not supported by the VM.");
+        } else if (!(expr instanceof LiteralExpr)) {
+            throw new RuntimeException("Unknown expression type: " + expr);
+        }
+    }
+
+    private void scanWrite(int depth, int slot, boolean inFunction) {
+        if (!inFunction) {
+            writtenByMain.add(slot);
+            globalCount = Math.max(globalCount, slot + 1);
+        } else if (depth > 0) {
+            usedByFunctions.add(slot);
+            writtenByFunctions.add(slot);
+            globalCount = Math.max(globalCount, slot + 1);
+        }
+    }
+
+    private int function(FunctionDeclStmt declaration) {
+        Integer index = functionIndex.get(declaration);
+        if (index == null) {
+            index = declarations.size();
+            declarations.add(declaration);
+            functionIndex.put(declaration, index);
+        }
+        return index;
+    }
+
+    private void statement(Stmt stmt) {
+        if (current == null) {
+            // Follows a return, break or continue and can never run
+            return;
+        }
+        if (stmt instanceof VarDeclStmt) {
+            VarDeclStmt varDecl = (VarDeclStmt) stmt;
+            Instruction value = checked(expression(varDecl.initializer), varDecl.type);
+            assign(varDecl.name, varDecl.depth, varDecl.slot, value);
+        } else if (stmt instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) stmt;
+            assign(assign.name, assign.depth, assign.slot, checked(expression(assign.value), assign.type));
+        } else if (stmt instanceof IndexAssignStmt) {
+            IndexAssignStmt assign = (IndexAssignStmt) stmt;
+            Instruction array = expression(assign.array);
+            Instruction index = expression(assign.index);
+            Instruction value = expression(assign.value);
+            Instruction store = function.newInstruction(IrOp.STORE_INDEX, null);
+            store.addOperand(array);
+            store.addOperand(index);
+            store.addOperand(value);
+            current.append(store);
+        } else if (stmt instanceof BlockStmt) {
+            for (Stmt innerStmt : ((BlockStmt) stmt).statements) {
+                statement(innerStmt);
+            }
+        } else if (stmt instanceof IfStmt) {
+            ifStatement((IfStmt) stmt);
+        } else if (stmt instanceof WhileStmt) {
+            whileStatement((WhileStmt) stmt);
+        } else if (stmt instanceof ParallelStmt) {
+            parallelStatement((ParallelStmt) stmt);
+        } else if (stmt instanceof ReturnStmt) {
+            Instruction value = expression(((ReturnStmt) stmt).value);
+            if (function.isMain()) {
+                storeGlobals(writtenByMain);
+            }
+            Instruction ret = function.newInstruction(IrOp.RETURN, null);
+            ret.addOperand(value);
+            current.append(ret);
+            current = null;
+        } else if (stmt instanceof BreakStmt) {
+            jump(loopExits.get(loopExits.size() - 1));
+        } else if (stmt instanceof ContinueStmt) {
+            jump(loopHeaders.get(loopHeaders.size() - 1));
+        } else if (stmt instanceof ExprStmt) {
+            expression(((ExprStmt) stmt).expression);
+        } else if (!(stmt instanceof FunctionDeclStmt)) {
+            throw new RuntimeException("Unknown statement type: " + stmt);
+        }
+    }
+
+    private void ifStatement(IfStmt stmt) {
+        Instruction condition = expression(stmt.condition);
+        Block thenBlock = function.newBlock();
+        Block elseBlock = stmt.elseBranch != null ? function.newBlock() : null;
+        Block merge = function.newBlock();
+        branch(condition, thenBlock, elseBlock != null ? elseBlock : merge);
+        seal(thenBlock);
+        current = thenBlock;
+        statement(stmt.thenBranch);
+        if (current != null) {
+            jump(merge);
+        }
+        if (elseBlock != null) {
+            seal(elseBlock);
+            current = elseBlock;
+            statement(stmt.elseBranch);
+            if (current != null) {
+                jump(merge);
+            }
+        }
+        seal(merge);
+        current = merge.getPredecessors().isEmpty() ? null : merge;
+    }
+
+    // The block before the loop ends in a jump to the header and nothing else, so it serves as the preheader
+    private void whileStatement(WhileStmt stmt) {
+        Block header = function.newBlock();
+        jump(header);
+        current = header;
+        Instruction condition = expression(stmt.getCondition());
+        Block body = function.newBlock();
+        Block exit = function.newBlock();
+        branch(condition, body, exit);
+        seal(body);
+
+        loopHeaders.add(header);
+        loopExits.add(exit);
+        current = body;
+        statement(stmt.getBody());
+        if (current != null) {
+            jump(header);
+        }
+        loopHeaders.remove(loopHeaders.size() - 1);
+        loopExits.remove(loopExits.size() - 1);
+
+        // Only now are all back edges and breaks known
+        seal(header);
+        seal(exit);
+        current = exit;
+    }
+
+    // Runs the iterations one after another, which is one of the orders a parallel loop allows. Reductions need
+    // nothing special then: the body accumulates straight into the variables.
+    private void parallelStatement(ParallelStmt stmt) {
+        Type type = stmt.start.type == Type.INTEGER && stmt.end.type == Type.INTEGER ? Type.INTEGER : Type.ANY;
+        assign(stmt.variable, 0, stmt.counterSlot, expression(stmt.start));
+        assign(stmt.variable, 0, stmt.endSlot, expression(stmt.end));
+        Block header = function.newBlock();
+        jump(header);
+        current = header;
+        Instruction condition = function.newInstruction(IrOp.LT, Type.BOOLEAN);
+        condition.addOperand(readVariable(stmt.counterSlot, current, type));
+        condition.addOperand(readVariable(stmt.endSlot, current, type));
+        current.append(condition);
+        Block body = function.newBlock();
+        Block exit = function.newBlock();
+        branch(condition, body, exit);
+        seal(body);
+
+        current = body;
+        Instruction counter = readVariable(stmt.counterSlot, current, type);
+        writeVariable(stmt.slot, current, counter);
+        Instruction one = function.newConstant(1L, Type.INTEGER);
+        current.append(one);
+        Instruction next = function.newInstruction(IrOp.ADD, type);
+        next.addOperand(counter);
+        next.addOperand(one);
+        current.append(next);
+        writeVariable(stmt.counterSlot, current, next);
+        // Continue moves on to the next iteration, and the analyzer rules out break
+        loopHeaders.add(header);
+        loopExits.add(exit);
+        statement(stmt.body);
+        if (current != null) {
+            jump(header);
+        }
+        loopHeaders.remove(loopHeaders.size() - 1);
+        loopExits.remove(loopExits.size() - 1);
+
+        seal(header);
+        seal(exit);
+        current = exit;
+    }
+
+    private Instruction expression(Expr expr) {
+        Instruction result;
+        if (expr instanceof LiteralExpr) {
+            result = function.newConstant(((LiteralExpr) expr).value, expr.type);
+        } else if (expr instanceof IdentifierExpr) {
+            IdentifierExpr identifier = (IdentifierExpr) expr;
+            if (identifier.depth > 0) {
+                result = function.newInstruction(IrOp.LOAD_GLOBAL, identifier.type, identifier.slot);
+            } else {
+                return readVariable(identifier.slot, current, identifier.type);
+            }
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            Instruction left = expression(binary.left);
+            Instruction right = expression(binary.right);
+            result = function.newInstruction(binaryOp(binary.operator), expr.type);
+            result.addOperand(left);
+            result.addOperand(right);
+        } else if (expr instanceof UnaryExpr) {
+            Instruction operand = expression(((UnaryExpr) expr).right);
+            result = function.newInstruction(IrOp.NEG, expr.type);
+            result.addOperand(operand);
+        } else if (expr instanceof CallExpr) {
+            return call((CallExpr) expr);
+        } else if (expr instanceof ArrayLiteralExpr) {
+            List<Instruction> elements = new ArrayList<>();
+            for (Expr element : ((ArrayLiteralExpr) expr).elements) {
+                elements.add(expression(element));
+            }
+            result = function.newInstruction(IrOp.NEW_ARRAY, expr.type);
+            for (Instruction element : elements) {
+                result.addOperand(element);
+            }
+        } else if (expr instanceof IndexExpr) {
+            Instruction array = expression(((IndexExpr) expr).array);
+            Instruction index = expression(((IndexExpr) expr).index);
+            result = function.newInstruction(IrOp.INDEX, expr.type);
+            result.addOperand(array);
+            result.addOperand(index);
+        } else if (expr instanceof LengthExpr) {
+            Instruction array = expression(((LengthExpr) expr).array);
+            result = function.newInstruction(IrOp.LENGTH, expr.type);
+            result.addOperand(array);
+        } else {
+            throw new RuntimeException("Unknown expression type: " + expr);
+        }
+        current.append(result);
+        return result;
+    }
+
+    private Instruction call(CallExpr call) {
+        List<Instruction> arguments = new ArrayList<>(call.arguments.size());
+        for (Expr argument : call.arguments) {
+            arguments.add(expression(argument));
+        }
+        if (function.isMain()) {
+            storeGlobals(usedByFunctions);
+        }
+        Instruction result = function.newInstruction(IrOp.CALL, Type.ANY, function(call.function));
+        for (Instruction argument : arguments) {
+            result.addOperand(argument);
+        }
+        current.append(result);
+        if (function.isMain()) {
+            for (int slot : writtenByFunctions) {
+                Instruction reload = function.newInstruction(IrOp.LOAD_GLOBAL, Type.ANY, slot);
+                current.append(reload);
+                writeVariable(slot, current, reload);
+            }
+        }
+        return result;
+    }
+
+    private int binaryOp(String operator) {
+        return switch (operator) {
+            case "+" -> IrOp.ADD;
+            case "-" -> IrOp.SUB;
+            case "*" -> IrOp.MUL;
+            case "/" -> IrOp.DIV;
+            case "==" -> IrOp.EQ;
+            case "!=" -> IrOp.NE;
+            case ">" -> IrOp.GT;
+            case "<" -> IrOp.LT;
+            case ">=" -> IrOp.GE;
+            case "<=" -> IrOp.LE;
+            default -> throw new RuntimeException("Unknown operator: " + operator);
+        };
+    }
+
+    // A value of type any is checked against the variable it is stored into, an integer stored into a float
+    // variable is converted
+    private Instruction checked(Instruction value, Type type) {
+        if (value.type == type || type == Type.ANY || value.type != Type.ANY && type != Type.NUMBER) {
+            return value;
+        }
+        Instruction check = function.newInstruction(IrOp.CHECK, type);
+        check.addOperand(value);
+        current.append(check);
+        return check;
+    }
+
+    // Depth 0 is the current frame, depth 1 inside a function is the global frame
+    private void assign(String name, int depth, int slot, Instruction value) {
+        checkResolved(name, slot);
+        if (depth > 0) {
+            Instruction store = function.newInstruction(IrOp.STORE_GLOBAL, null, slot);
+            store.addOperand(value);
+            current.append(store);
+        } else {
+            writeVariable(slot, current, value);
+        }
+    }
+
+    // Writes back the main program's variables that memory does not hold yet
+    private void storeGlobals(Set<Integer> slots) {
+        for (int slot : slots) {
+            Instruction value = readVariable(slot, current, Type.ANY);
+            if (value.op != IrOp.LOAD_GLOBAL || value.index != slot) {
+                Instruction store = function.newInstruction(IrOp.STORE_GLOBAL, null, slot);
+                store.addOperand(value);
+                current.append(store);
+            }
+        }
+    }
+
+    private void jump(Block target) {
+        Instruction jump = function.newInstruction(IrOp.JUMP, null);
+        jump.targets.add(target);
+        current.append(jump);
+        target.getPredecessors().add(current);
+        current = null;
+    }
+
+    private void branch(Instruction condition, Block ifTrue, Block ifFalse) {
+        Instruction branch = function.newInstruction(IrOp.BRANCH, null);
+        branch.addOperand(condition);
+        branch.targets.add(ifTrue);
+        branch.targets.add(ifFalse);
+        current.append(branch);
+        ifTrue.getPredecessors().add(current);
+        ifFalse.getPredecessors().add(current);
+    }
+
+    private void checkResolved(String name, int slot) {
+        if (slot < 0) {
+            throw new SemanticError("Variable '" + name + "' was not resolved.");
+        }
+    }
+
+    private void writeVariable(int slot, Block block, Instruction value) {
+        definitions.computeIfAbsent(block, b -> new HashMap<>()).put(slot, value);
+    }
+
+    private Instruction readVariable(int slot, Block block, Type type) {
+        Map<Integer, Instruction> local = definitions.get(block);
+        Instruction value = local != null ? local.get(slot) : null;
+        if (value != null) {
+            while (value.replacement != null) {
+                value = value.replacement;
+            }
+            return value;
+        }
+        return readVariableRecursive(slot, block, type);
+    }
+
+    private Instruction readVariableRecursive(int slot, Block block, Type type) {
+        Instruction value;
+        if (!sealed.contains(block)) {
+            value = newPhi(slot, block);
+            incompletePhis.computeIfAbsent(block, b -> new HashMap<>()).put(slot, value);
+        } else if (block.getPredecessors().size() == 1) {
+            value = readVariable(slot, block.getPredecessors().get(0), type);
+        } else if (block.getPredecessors().isEmpty()) {
+            value = entryValue(slot, type);
+        } else {
+            Instruction phi = newPhi(slot, block);
+            // Breaks cycles through loops
+            writeVariable(slot, block, phi);
+            value = addPhiOperands(phi, type);
+        }
+        writeVariable(slot, block, value);
+        return value;
+    }
+
+    // What a variable holds before the function assigns it: main sees the global frame, functions read garbage
+    private Instruction entryValue(int slot, Type type) {
+        Instruction value = entryValues.get(slot);
+        if (value == null) {
+            value = function.isMain()
+                    ? function.newInstruction(IrOp.LOAD_GLOBAL, type, slot)
+                    : function.newInstruction(IrOp.UNDEF, type, slot);
+            Block entry = function.getEntry();
+            entry.getInstructions().add(0, value);
+            value.block = entry;
+            entryValues.put(slot, value);
+        } else if (value.type != type) {
+            value.type = Type.ANY;
+        }
+        return value;
+    }
+
+    private Instruction newPhi(int slot, Block block) {
+        Instruction phi = function.newInstruction(IrOp.PHI, null, slot);
+        block.getInstructions().add(0, phi);
+        phi.block = block;
+        return phi;
+    }
+
+    private Instruction addPhiOperands(Instruction phi, Type type) {
+        for (Block predecessor : phi.block.getPredecessors()) {
+            phi.addOperand(readVariable(phi.index, predecessor, type));
+        }
+        return tryRemoveTrivialPhi(phi, type);
+    }
+
+    private Instruction tryRemoveTrivialPhi(Instruction phi, Type type) {
+        Instruction same = null;
+        for (Instruction operand : phi.getOperands()) {
+            if (operand == same || operand == phi) {
+                continue;
+            }
+            if (same != null) {
+                return phi;
+            }
+            same = operand;
+        }
+        if (same == null) {
+            same = entryValue(phi.index, type);
+        }
+        List<Instruction> users = new ArrayList<>(phi.getUsers());
+        phi.replaceAllUsesWith(same);
+        phi.dropOperands();
+        phi.block.remove(phi);
+        phi.replacement = same;
+        for (Instruction user : users) {
+            if (user != phi && user.op == IrOp.PHI && user.block != null) {
+                tryRemoveTrivialPhi(user, type);
+            }
+        }
+        return same;
+    }
+
+    private void seal(Block block) {
+        Map<Integer, Instruction> phis = incompletePhis.remove(block);
+        if (phis != null) {
+            for (Instruction phi : phis.values()) {
+                addPhiOperands(phi, Type.ANY);
+            }
+        }
+        sealed.add(block);
+    }
+
+    // A phi holds whatever its operands hold; phis that only feed each other end up as ANY
+    private void inferPhiTypes() {
+        List<Instruction> phis = new ArrayList<>();
+        for (Block block : function.getBlocks()) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction.op == IrOp.PHI) {
+                    phis.add(instruction);
+                }
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Instruction phi : phis) {
+                Type type = phi.type;
+                for (Instruction operand : phi.getOperands()) {
+                    if (operand.type != null) {
+                        type = type == null || type == operand.type ? operand.type : Type.ANY;
+                    }
+                }
+                if (type != phi.type) {
+                    phi.type = type;
+                    changed = true;
+                }
+            }
+        }
+        for (Instruction phi : phis) {
+            if (phi.type == null) {
+                phi.type = Type.ANY;
+            }
+        }
+    }
+}
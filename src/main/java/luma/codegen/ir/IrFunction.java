@@ -0,0 +1,125 @@
+package luma.codegen.ir;
+
+import luma.semantic.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The body of the main program or of one Luma function. The first block is the entry.
+public final class IrFunction {
+    private final String name;
+    private final int parameterCount;
+    private final boolean main;
+    private final List<Block> blocks = new ArrayList<>();
+    private int nextValue = 0;
+    private int nextBlock = 0;
+
+    public IrFunction(String name, int parameterCount, boolean main) {
+        this.name = name;
+        this.parameterCount = parameterCount;
+        this.main = main;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    // The main program keeps its variables in the global frame; functions in their own frames
+    public boolean isMain() {
+        return main;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public Block getEntry() {
+        return blocks.get(0);
+    }
+
+    public int getValueCount() {
+        return nextValue;
+    }
+
+    public Block newBlock() {
+        Block block = new Block(nextBlock++);
+        blocks.add(block);
+        return block;
+    }
+
+    public Instruction newInstruction(int op, Type type) {
+        return new Instruction(op, nextValue++, type, null, -1);
+    }
+
+    public Instruction newInstruction(int op, Type type, int index) {
+        return new Instruction(op, nextValue++, type, null, index);
+    }
+
+    public Instruction newConstant(Object value, Type type) {
+        return new Instruction(IrOp.CONST, nextValue++, type, value, -1);
+    }
+
+    // Drops blocks that cannot be reached from the entry, along with their uses of other values
+    public void removeUnreachableBlocks() {
+        List<Block> reachable = ControlFlow.reversePostorder(this);
+        List<Block> unreachable = new ArrayList<>(blocks);
+        unreachable.removeAll(reachable);
+        if (unreachable.isEmpty()) {
+            return;
+        }
+        for (Block block : unreachable) {
+            for (Block successor : block.getSuccessors()) {
+                if (reachable.contains(successor)) {
+                    removePredecessor(successor, block);
+                }
+            }
+        }
+        for (Block block : unreachable) {
+            for (Instruction instruction : block.getInstructions()) {
+                instruction.dropOperands();
+            }
+        }
+        blocks.removeAll(unreachable);
+    }
+
+    // Removes an incoming edge, along with the matching phi operands
+    void removePredecessor(Block block, Block predecessor) {
+        int index = block.getPredecessors().indexOf(predecessor);
+        block.getPredecessors().remove(index);
+        for (Instruction instruction : block.getInstructions()) {
+            if (instruction.op != IrOp.PHI) {
+                break;
+            }
+            List<Instruction> operands = new ArrayList<>(instruction.getOperands());
+            operands.remove(index);
+            instruction.dropOperands();
+            for (Instruction operand : operands) {
+                instruction.addOperand(operand);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append("function ").append(name).append(" (").append(parameterCount).append(" parameters):\n");
+        for (Block block : blocks) {
+            out.append("  b").append(block.id).append(':');
+            if (!block.getPredecessors().isEmpty()) {
+                out.append(" preds");
+                for (Block predecessor : block.getPredecessors()) {
+                    out.append(" b").append(predecessor.id);
+                }
+            }
+            out.append('\n');
+            for (Instruction instruction : block.getInstructions()) {
+                out.append("    ").append(instruction).append('\n');
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package luma.codegen.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A whole program: the main body and every function it declares or calls. CALL instructions refer to functions
+// by their index in getFunctions().
+public final class IrModule {
+    private final IrFunction main;
+    private final List<IrFunction> functions = new ArrayList<>();
+    private final int globalCount;
+
+    IrModule(IrFunction main, int globalCount) {
+        this.main = main;
+        this.globalCount = globalCount;
+    }
+
+    public IrFunction getMain() {
+        return main;
+    }
+
+    public List<IrFunction> getFunctions() {
+        return functions;
+    }
+
+    // Number of global slots, which come before any slot the backend allocates in the global frame
+    public int getGlobalCount() {
+        return globalCount;
+    }
+
+    public List<IrFunction> getAllFunctions() {
+        List<IrFunction> all = new ArrayList<>();
+        all.add(main);
+        all.addAll(functions);
+        return all;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (IrFunction function : getAllFunctions()) {
+            out.append(function);
+        }
+        return out.toString();
+    }
+}
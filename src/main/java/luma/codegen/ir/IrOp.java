@@ -0,0 +1,58 @@
+package luma.codegen.ir;
+
+public final class IrOp {
+    public static final int CONST = 0;          // constant
+    public static final int PARAM = 1;          // index: parameter number
+    public static final int UNDEF = 2;          // a local read before anything was assigned to it
+    public static final int LOAD_GLOBAL = 3;    // index: global slot
+    public static final int STORE_GLOBAL = 4;   // index: global slot; operands: value
+
+    // Operands: left, right (NEG: operand)
+    public static final int ADD = 5;
+    public static final int SUB = 6;
+    public static final int MUL = 7;
+    public static final int DIV = 8;
+    public static final int NEG = 9;
+    public static final int EQ = 10;
+    public static final int NE = 11;
+    public static final int GT = 12;
+    public static final int LT = 13;
+    public static final int GE = 14;
+    public static final int LE = 15;
+
+    public static final int CALL = 16;          // index: function; operands: arguments
+    public static final int PHI = 17;           // index: variable slot; operands: one per predecessor, in order
+    public static final int NEW_ARRAY = 18;     // operands: elements
+    public static final int INDEX = 19;         // operands: array, index
+    public static final int STORE_INDEX = 20;   // operands: array, index, value
+    public static final int LENGTH = 21;        // operands: array
+    public static final int CHECK = 22;         // operands: value, which must have the instruction's type
+
+    // Terminators
+    public static final int JUMP = 23;          // targets: destination
+    public static final int BRANCH = 24;        // operands: condition; targets: if truthy, if not
+    public static final int RETURN = 25;        // operands: value
+    public static final int RETURN_VOID = 26;
+
+    private static final String[] NAMES = {
+            "const", "param", "undef", "load_global", "store_global",
+            "add", "sub", "mul", "div", "neg", "eq", "ne", "gt", "lt", "ge", "le",
+            "call", "phi", "new_array", "index", "store_index", "length", "check",
+            "jump", "branch", "return", "return_void"
+    };
+
+    private IrOp() {
+    }
+
+    public static String name(int op) {
+        return NAMES[op];
+    }
+
+    public static boolean isTerminator(int op) {
+        return op >= JUMP;
+    }
+
+    public static boolean isArithmetic(int op) {
+        return op >= ADD && op <= LE;
+    }
+}
@@ -0,0 +1,102 @@
+package luma.codegen.ir;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Moves computations whose operands do not change inside a loop into the block that enters the loop, so they run
+// once instead of once per iteration. Inner loops go first, letting a value climb out of several loops. Only
+// computations that cannot fail are moved, since the loop body might never have run them.
+public class LoopInvariantCodeMotion implements Pass {
+    @Override
+    public String getName() {
+        return "loop-invariant code motion";
+    }
+
+    @Override
+    public void run(IrFunction function) {
+        Map<Block, Block> idom = ControlFlow.immediateDominators(function);
+        List<Block> order = ControlFlow.reversePostorder(function);
+
+        // Natural loops by header: the header and everything that reaches a back edge without passing it
+        Map<Block, Set<Block>> loops = new LinkedHashMap<>();
+        for (Block block : order) {
+            for (Block successor : block.getSuccessors()) {
+                if (ControlFlow.dominates(idom, successor, block)) {
+                    Set<Block> body = loops.computeIfAbsent(successor, header -> new HashSet<>(List.of(header)));
+                    List<Block> worklist = new ArrayList<>(List.of(block));
+                    while (!worklist.isEmpty()) {
+                        Block member = worklist.remove(worklist.size() - 1);
+                        if (body.add(member)) {
+                            worklist.addAll(member.getPredecessors());
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Map.Entry<Block, Set<Block>>> innermostFirst = new ArrayList<>(loops.entrySet());
+        innermostFirst.sort((a, b) -> Integer.compare(a.getValue().size(), b.getValue().size()));
+        for (Map.Entry<Block, Set<Block>> loop : innermostFirst) {
+            Block preheader = preheader(loop.getKey(), loop.getValue());
+            if (preheader != null) {
+                hoist(order, loop.getValue(), preheader);
+            }
+        }
+    }
+
+    // The single block entering the loop from outside, provided it leads nowhere else
+    private Block preheader(Block header, Set<Block> body) {
+        Block preheader = null;
+        for (Block predecessor : header.getPredecessors()) {
+            if (!body.contains(predecessor)) {
+                if (preheader != null) {
+                    return null;
+                }
+                preheader = predecessor;
+            }
+        }
+        return preheader != null && preheader.getSuccessors().size() == 1 ? preheader : null;
+    }
+
+    private void hoist(List<Block> order, Set<Block> body, Block preheader) {
+        boolean calls = false;
+        Set<Integer> storedGlobals = new HashSet<>();
+        for (Block block : body) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction.op == IrOp.CALL) {
+                    calls = true;
+                } else if (instruction.op == IrOp.STORE_GLOBAL) {
+                    storedGlobals.add(instruction.index);
+                }
+            }
+        }
+
+        // In reverse postorder operands are visited before their users, so whole expressions move together
+        for (Block block : order) {
+            if (!body.contains(block)) {
+                continue;
+            }
+            for (Instruction instruction : new ArrayList<>(block.getInstructions())) {
+                boolean movable = instruction.isPure() && !instruction.mayTrap()
+                        || instruction.op == IrOp.LOAD_GLOBAL && !calls && !storedGlobals.contains(instruction.index);
+                if (movable && definedOutside(instruction, body)) {
+                    block.remove(instruction);
+                    preheader.insertBeforeEnd(instruction);
+                }
+            }
+        }
+    }
+
+    private boolean definedOutside(Instruction instruction, Set<Block> body) {
+        for (Instruction operand : instruction.getOperands()) {
+            if (body.contains(operand.block)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,7 @@
+package luma.codegen.ir;
+
+public interface Pass {
+    String getName();
+
+    void run(IrFunction function);
+}
@@ -0,0 +1,48 @@
+package luma.codegen.ir;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs passes over every function of a module, in the order they were added. With a dump stream set, the IR is
+// printed before the first pass and after each one.
+public class PassManager {
+    private final List<Pass> passes = new ArrayList<>();
+    private PrintStream dump;
+
+    // The passes every backend gets: simplify arithmetic first so value numbering sees through it, hoist what is
+    // left, then drop what became unused
+    public static PassManager standard() {
+        PassManager manager = new PassManager();
+        manager.add(new StrengthReduction());
+        manager.add(new CommonSubexpressionElimination());
+        manager.add(new LoopInvariantCodeMotion());
+        manager.add(new DeadCodeElimination());
+        return manager;
+    }
+
+    public PassManager add(Pass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    public void setDump(PrintStream dump) {
+        this.dump = dump;
+    }
+
+    public void run(IrModule module) {
+        for (IrFunction function : module.getAllFunctions()) {
+            if (dump != null) {
+                dump.println("=== " + function.getName() + ": before optimization ===");
+                dump.print(function);
+            }
+            for (Pass pass : passes) {
+                pass.run(function);
+                if (dump != null) {
+                    dump.println("=== " + function.getName() + ": after " + pass.getName() + " ===");
+                    dump.print(function);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package luma.codegen.ir;
+
+import luma.runtime.Numbers;
+import luma.semantic.Type;
+
+import java.util.ArrayList;
+
+// Replaces arithmetic by cheaper arithmetic with exactly the same result: division by a power of two becomes
+// multiplication by its reciprocal, and multiplying or dividing by -1 becomes negation. Only numbers are rewritten,
+// so error messages for operands of the wrong type stay the same, and a negation only replaces arithmetic whose
+// result is of the same kind, integer or float, as the negated operand.
+public class StrengthReduction implements Pass {
+    @Override
+    public String getName() {
+        return "strength reduction";
+    }
+
+    @Override
+    public void run(IrFunction function) {
+        for (Block block : function.getBlocks()) {
+            for (Instruction instruction : new ArrayList<>(block.getInstructions())) {
+                if (instruction.op != IrOp.MUL && instruction.op != IrOp.DIV || !instruction.type.isNumeric()) {
+                    continue;
+                }
+                Instruction left = instruction.getOperand(0);
+                Instruction right = instruction.getOperand(1);
+                if (!left.type.isNumeric() || !right.type.isNumeric()) {
+                    continue;
+                }
+                Instruction replacement = null;
+                if (instruction.op == IrOp.MUL && isConstant(left, -1.0) && right.type == instruction.type) {
+                    replacement = negate(function, right);
+                } else if (isConstant(right, -1.0) && left.type == instruction.type) {
+                    replacement = negate(function, left);
+                } else if (instruction.op == IrOp.DIV && right.op == IrOp.CONST
+                        && isPowerOfTwo(Numbers.toDouble(right.constant))) {
+                    Instruction reciprocal = function.newConstant(1.0 / Numbers.toDouble(right.constant), Type.NUMBER);
+                    block.insertBefore(reciprocal, instruction);
+                    replacement = function.newInstruction(IrOp.MUL, Type.NUMBER);
+                    replacement.addOperand(left);
+                    replacement.addOperand(reciprocal);
+                }
+                if (replacement != null) {
+                    block.insertBefore(replacement, instruction);
+                    instruction.replaceAllUsesWith(replacement);
+                    instruction.dropOperands();
+                    block.remove(instruction);
+                }
+            }
+        }
+    }
+
+    private Instruction negate(IrFunction function, Instruction value) {
+        Instruction negation = function.newInstruction(IrOp.NEG, value.type);
+        negation.addOperand(value);
+        return negation;
+    }
+
+    private boolean isConstant(Instruction instruction, double value) {
+        return instruction.op == IrOp.CONST && Numbers.isNumber(instruction.constant)
+                && Numbers.toDouble(instruction.constant) == value;
+    }
+
+    // Powers of two whose reciprocal is also exact, so x / c and x * (1 / c) round the same way
+    private boolean isPowerOfTwo(double value) {
+        int exponent = Math.getExponent(value);
+        return exponent >= -1022 && exponent <= 1023 && Math.abs(value) == Math.scalb(1.0, exponent);
+    }
+}
@@ -0,0 +1,317 @@
+package luma.incremental;
+
+import luma.lexer.Lexer;
+import luma.lexer.NameTable;
+import luma.lexer.TokenBuffer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.semantic.SemanticAnalyzer;
+import luma.semantic.Symbol;
+import luma.semantic.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Source text with its parsed and analyzed top-level statements, kept up to date across edits. An edit re-lexes
+// and re-parses only the top-level statements it touches; all other Stmt subtrees are reused as they are.
+// Re-parsed statements get document positions. Reused ones keep the positions of the parse that produced them, so
+// an edit that adds or removes lines leaves the lines of the statements after it behind.
+public class IncrementalDocument {
+    private final StringBuilder text;
+    private final List<Entry> entries = new ArrayList<>();
+    // Entries from shiftFrom on have yet to be moved by shiftOffset characters and shiftLines lines. An edit only
+    // moves this boundary from the previous edit to its own, so edits cost the distance between them, not the
+    // number of statements after them.
+    private int shiftFrom = 0;
+    private int shiftOffset = 0;
+    private int shiftLines = 0;
+    // Globals in slot order; entry i declared those between entry i - 1's globalsAfter and its own
+    private final List<Symbol> globals = new ArrayList<>();
+    // The same globals by the id of their name
+    private Symbol[] globalsById = new Symbol[64];
+    // Shared by every window, so a name keeps its id across re-parses. Names are never dropped, which only costs
+    // the names an edit session has seen.
+    private final NameTable names = new NameTable();
+    // Cleared when an edit fails, so the next one starts from scratch
+    private boolean parsed = false;
+    private boolean analyzed = false;
+    // Set when the last full analysis made an integer variable a float. Analyzing a window cannot tell when an edit
+    // takes that back, so such documents are always analyzed in full.
+    private boolean widened = false;
+
+    public IncrementalDocument(CharSequence source) {
+        text = new StringBuilder(source);
+        reparseAll();
+        reanalyzeAll();
+    }
+
+    public List<Stmt> getStatements() {
+        List<Stmt> statements = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            statements.add(entry.stmt);
+        }
+        return statements;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    // Replaces `removed` characters at `offset` with `inserted`. Parse and semantic errors are thrown after the
+    // text has been updated.
+    public void edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + removed + " is outside the document.");
+        }
+        int editEnd = offset + removed;
+        int delta = inserted.length() - removed;
+        int lineDelta = countLines(inserted, 0, inserted.length()) - countLines(text, offset, editEnd);
+        text.replace(offset, editEnd, inserted);
+
+        if (!parsed) {
+            reparseAll();
+            reanalyzeAll();
+            return;
+        }
+
+        // Entries touching the edit; a statement ending exactly at the edit may have to absorb the new text
+        int from = firstEndingAtOrAfter(offset);
+        int to = firstStartingAfter(editEnd);
+        List<Entry> reparsed;
+        while (true) {
+            // Window boundaries sit between statements, where no token can span them
+            int windowStart = from > 0 ? end(from - 1) : 0;
+            int windowEnd = to < entries.size() ? start(to) + delta : text.length();
+            int line = from > 0 ? endLine(from - 1) : 1;
+            int column = from > 0 ? entries.get(from - 1).endColumn : 1;
+            try {
+                reparsed = parseWindow(windowStart, windowEnd, line, column);
+                break;
+            } catch (RuntimeException e) {
+                if (from == 0 && to == entries.size()) {
+                    parsed = false;
+                    analyzed = false;
+                    throw e;
+                }
+                // The edit may have opened a block or added an else that pulls in neighbouring statements
+                int width = Math.max(1, to - from);
+                from = Math.max(0, from - width);
+                to = Math.min(entries.size(), to + width);
+            }
+        }
+
+        int oldGlobalsStart = from > 0 ? entries.get(from - 1).globalsAfter : 0;
+        int oldGlobalsEnd = to > 0 ? entries.get(to - 1).globalsAfter : 0;
+        List<Symbol> oldWindowGlobals = new ArrayList<>(globals.subList(oldGlobalsStart, Math.max(oldGlobalsStart, oldGlobalsEnd)));
+
+        moveShift(to);
+        shiftOffset += delta;
+        shiftLines += lineDelta;
+        entries.subList(from, to).clear();
+        entries.addAll(from, reparsed);
+        shiftFrom = from + reparsed.size();
+        if (shiftFrom == entries.size()) {
+            shiftOffset = 0;
+            shiftLines = 0;
+        }
+
+        if (!analyzed || widened) {
+            reanalyzeAll();
+            return;
+        }
+        reanalyze(from, from + reparsed.size(), oldGlobalsStart, oldWindowGlobals);
+    }
+
+    private List<Entry> parseWindow(int windowStart, int windowEnd, int line, int column) {
+        TokenBuffer tokens = Lexer.tokenize(text.subSequence(windowStart, windowEnd), names, line, column);
+        Parser parser = new Parser(tokens);
+        List<Entry> result = new ArrayList<>();
+        int firstToken = parser.getPosition();
+        Stmt stmt;
+        while ((stmt = parser.parseNext()) != null) {
+            int lastToken = parser.getPosition() - 1;
+            int start = windowStart + tokens.start(firstToken);
+            int end = windowStart + tokens.start(lastToken) + tokens.length(lastToken);
+            // Statements end in a semicolon or a brace, so the last token is on one line
+            result.add(new Entry(stmt, start, end, tokens.line(lastToken),
+                    tokens.column(lastToken) + tokens.length(lastToken)));
+            firstToken = parser.getPosition();
+        }
+        return result;
+    }
+
+    private void reparseAll() {
+        entries.clear();
+        shiftFrom = 0;
+        shiftOffset = 0;
+        shiftLines = 0;
+        try {
+            entries.addAll(parseWindow(0, text.length(), 1, 1));
+        } catch (RuntimeException e) {
+            parsed = false;
+            analyzed = false;
+            throw e;
+        }
+        parsed = true;
+    }
+
+    private void reanalyzeAll() {
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzed = false;
+        int[] globalsAfter = new int[entries.size()];
+        analyzer.analyze(getStatements(), globalsAfter);
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).globalsAfter = globalsAfter[i];
+        }
+        replaceGlobals(0, globals.size(), analyzer.getSymbolTable().getGlobals());
+        widened = analyzer.hasWidened();
+        analyzed = true;
+    }
+
+    // Analyzes the re-parsed entries [from, to) against the globals declared before them. Later entries are only
+    // analyzed again when the window changed which globals exist or what type they have.
+    private void reanalyze(int from, int to, int globalsStart, List<Symbol> oldWindowGlobals) {
+        SymbolTable symbolTable = new SymbolTable(globalsById, globalsStart);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(symbolTable);
+        analyzed = false;
+        analyzeRange(analyzer, from, to);
+
+        List<Symbol> windowGlobals = symbolTable.getGlobals();
+        if (sameDeclarations(oldWindowGlobals, windowGlobals)) {
+            replaceGlobals(globalsStart, globalsStart + windowGlobals.size(), windowGlobals);
+        } else {
+            analyzeRange(analyzer, to, entries.size());
+            replaceGlobals(globalsStart, globals.size(), symbolTable.getGlobals());
+        }
+        analyzed = true;
+        if (analyzer.hasWidened()) {
+            reanalyzeAll();
+        }
+    }
+
+    private void replaceGlobals(int from, int to, List<Symbol> replacement) {
+        List<Symbol> replaced = globals.subList(from, to);
+        for (Symbol symbol : replaced) {
+            globalsById[symbol.getId()] = null;
+        }
+        replaced.clear();
+        globals.addAll(from, replacement);
+        for (Symbol symbol : replacement) {
+            if (symbol.getId() >= globalsById.length) {
+                globalsById = Arrays.copyOf(globalsById, Math.max(globalsById.length * 2, symbol.getId() + 1));
+            }
+            globalsById[symbol.getId()] = symbol;
+        }
+    }
+
+    private void analyzeRange(SemanticAnalyzer analyzer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            Entry entry = entries.get(i);
+            analyzer.analyze(entry.stmt);
+            entry.globalsAfter = analyzer.getSymbolTable().getGlobalCount();
+        }
+    }
+
+    // Slots follow from the order, so equal names and types mean later statements resolve exactly as before.
+    // Calls hold on to the declaration they resolved to, so a re-parsed function always counts as a change.
+    private boolean sameDeclarations(List<Symbol> before, List<Symbol> after) {
+        if (before.size() != after.size()) {
+            return false;
+        }
+        for (int i = 0; i < before.size(); i++) {
+            if (!before.get(i).getName().equals(after.get(i).getName())
+                    || before.get(i).getType() != after.get(i).getType()
+                    || before.get(i).getFunction() != after.get(i).getFunction()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Applies the pending shift to the entries before index and takes it off those from index on, so that exactly
+    // the entries from index on are pending
+    private void moveShift(int index) {
+        for (; shiftFrom < index; shiftFrom++) {
+            entries.get(shiftFrom).shift(shiftOffset, shiftLines);
+        }
+        for (; shiftFrom > index; shiftFrom--) {
+            entries.get(shiftFrom - 1).shift(-shiftOffset, -shiftLines);
+        }
+    }
+
+    private int start(int index) {
+        return entries.get(index).start + (index >= shiftFrom ? shiftOffset : 0);
+    }
+
+    private int end(int index) {
+        return entries.get(index).end + (index >= shiftFrom ? shiftOffset : 0);
+    }
+
+    private int endLine(int index) {
+        return entries.get(index).endLine + (index >= shiftFrom ? shiftLines : 0);
+    }
+
+    private static int countLines(CharSequence chars, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (chars.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private int firstEndingAtOrAfter(int offset) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (end(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int firstStartingAfter(int offset) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (start(middle) <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Entry {
+        private final Stmt stmt;
+        // Source range of the statement, from its first token to the end of its last, and the line and column
+        // where it ends. The range and line are behind by the pending shift for entries from shiftFrom on.
+        private int start;
+        private int end;
+        private int endLine;
+        private final int endColumn;
+        private int globalsAfter;
+
+        Entry(Stmt stmt, int start, int end, int endLine, int endColumn) {
+            this.stmt = stmt;
+            this.start = start;
+            this.end = end;
+            this.endLine = endLine;
+            this.endColumn = endColumn;
+        }
+
+        void shift(int offset, int lines) {
+            start += offset;
+            end += offset;
+            endLine += lines;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package luma.interpreter;
+
+// How a statement finished. Statements hand one of these back instead of throwing, so leaving a loop or a call
+// costs no exception; the value of a return travels separately in the engine's state.
+public final class Completion {
+    public static final int NORMAL = 0;
+    public static final int BREAK = 1;
+    public static final int CONTINUE = 2;
+    public static final int RETURN = 3;
+
+    private Completion() {
+    }
+}
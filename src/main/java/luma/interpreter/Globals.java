@@ -0,0 +1,128 @@
+package luma.interpreter;
+
+import luma.runtime.LumaTask;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// The global frame of one script, laid out like a call frame, and the tasks the script has spawned. Every task
+// of the script reads and writes the same globals. Until the first spawn only one thread can see them, so
+// accesses only take the lock once share() was called; a single read or write is then atomic, although a
+// read followed by a write, as in `g = g + 1`, is not.
+final class Globals {
+    private Object[] frame = new Object[16];
+    private double[] numbers = new double[16];
+    private long[] integers = new long[16];
+    // Set by the spawning thread before the first task starts, which makes it visible to every task
+    private boolean shared = false;
+    // Running tasks and failed ones no join has observed, in spawn order; tasks add the ones they spawn too. A task
+    // leaves once it succeeds or a join observes it, so finished tasks are not kept until the script ends.
+    final ConcurrentSkipListSet<LumaTask> tasks = new ConcurrentSkipListSet<>(LumaTask.SPAWN_ORDER);
+
+    // A private copy of the values, for the workers of a parallel loop
+    Globals copy() {
+        if (!shared) {
+            return copyUnlocked();
+        }
+        synchronized (this) {
+            return copyUnlocked();
+        }
+    }
+
+    private Globals copyUnlocked() {
+        Globals copy = new Globals();
+        copy.frame = frame.clone();
+        copy.numbers = numbers.clone();
+        copy.integers = integers.clone();
+        return copy;
+    }
+
+    void share() {
+        shared = true;
+    }
+
+    int capacity() {
+        if (!shared) {
+            return frame.length;
+        }
+        synchronized (this) {
+            return frame.length;
+        }
+    }
+
+    Object load(int slot) {
+        if (!shared) {
+            return frame[slot];
+        }
+        synchronized (this) {
+            return frame[slot];
+        }
+    }
+
+    double loadNumber(int slot) {
+        if (!shared) {
+            return numbers[slot];
+        }
+        synchronized (this) {
+            return numbers[slot];
+        }
+    }
+
+    // Only meaningful when load(slot) gave null; otherwise the slot holds a BigInteger
+    long loadInteger(int slot) {
+        if (!shared) {
+            return integers[slot];
+        }
+        synchronized (this) {
+            return integers[slot];
+        }
+    }
+
+    void store(int slot, Object value) {
+        if (!shared) {
+            ensureCapacity(slot);
+            frame[slot] = value;
+            return;
+        }
+        synchronized (this) {
+            ensureCapacity(slot);
+            frame[slot] = value;
+        }
+    }
+
+    void storeNumber(int slot, double value) {
+        if (!shared) {
+            ensureCapacity(slot);
+            numbers[slot] = value;
+            return;
+        }
+        synchronized (this) {
+            ensureCapacity(slot);
+            numbers[slot] = value;
+        }
+    }
+
+    // Clears the BigInteger the slot may have held
+    void storeInteger(int slot, long value) {
+        if (!shared) {
+            ensureCapacity(slot);
+            integers[slot] = value;
+            frame[slot] = null;
+            return;
+        }
+        synchronized (this) {
+            ensureCapacity(slot);
+            integers[slot] = value;
+            frame[slot] = null;
+        }
+    }
+
+    private void ensureCapacity(int slot) {
+        if (slot >= frame.length) {
+            int capacity = Math.max(frame.length * 2, slot + 1);
+            frame = Arrays.copyOf(frame, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            integers = Arrays.copyOf(integers, capacity);
+        }
+    }
+}
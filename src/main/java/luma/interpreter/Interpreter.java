@@ -1,149 +1,848 @@
 package luma.interpreter;
 
 import luma.lexer.TokenType;
+import luma.metrics.ExecutionMetrics;
+import luma.metrics.SlowLoopEvent;
+import luma.runtime.ArrayMath;
+import luma.runtime.ExecutionAbortedException;
+import luma.runtime.ExecutionBudget;
+import luma.runtime.LumaChannel;
+import luma.runtime.LumaTask;
+import luma.runtime.Numbers;
 import luma.semantic.SemanticError;
+import luma.semantic.Type;
 import luma.parser.*;
 
-import java.util.HashMap;
+import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Interpreter {
+    private static final int MAX_CALL_DEPTH = 1000;
+    private static final String STACK_OVERFLOW = "Stack overflow: calls nested more than " + MAX_CALL_DEPTH + " deep.";
+    // Stack size for threads running the interpreter. Each call takes a couple of kilobytes of Java stack, more
+    // when its body nests expressions deeply, so this leaves room for MAX_CALL_DEPTH calls.
+    public static final long STACK_SIZE = 64L << 20;
 
-    private final Map<String, Object> globals = new HashMap<>();
-    private final Map<String, Object> locals = new HashMap<>();
+    // Variables live in slots assigned by SemanticAnalyzer; blocks reuse the slots of the enclosing frame.
+    // Statically numeric variables are kept unboxed in the parallel numbers and integers arrays. An integer too
+    // large for a long is kept as a BigInteger in the object array instead, which holds null for the others.
+    // The global frame is shared with the tasks the script spawns.
+    private final Globals globals;
+    // Call frames are contiguous ranges of one stack, laid out like the global frame: the running call's slots
+    // start at fp and the next call's frame starts at top. Calls allocate nothing once the stack has grown. Every
+    // task has a stack of its own.
+    private Object[] stack = new Object[64];
+    private double[] stackNumbers = new double[64];
+    private long[] stackIntegers = new long[64];
+    private int fp = 0;
+    private int top = 0;
+    private int callDepth = 0;
+    // Value of the return statement whose RETURN completion is unwinding to the call or the top level
+    private Object returnValue;
+    // Set by evaluateLong, in place of its result, when the integer does not fit in a long
+    private BigInteger overflow;
+    // Null when the execution is unbounded
+    private final ExecutionBudget budget;
+    // Null when instrumentation is off, which it is on tasks and the workers of parallel loops
+    private final ExecutionMetrics metrics;
 
-    public void interpret(List<Stmt> statements) {
+    public Interpreter() {
+        this(null);
+    }
+
+    public Interpreter(ExecutionBudget budget) {
+        this(budget, null);
+    }
+
+    public Interpreter(ExecutionBudget budget, ExecutionMetrics metrics) {
+        this.globals = new Globals();
+        this.budget = budget;
+        this.metrics = metrics;
+    }
+
+    // A spawned task: a fresh stack on the spawner's globals
+    private Interpreter(Globals globals, ExecutionBudget budget) {
+        this.globals = globals;
+        this.budget = budget;
+        this.metrics = null;
+    }
+
+    // A worker for part of a parallel loop, on a copy of the parent's frames. Only the loop's own variables and
+    // reductions are written inside it, so the copy is all the isolation the iterations need; arrays stay shared.
+    private Interpreter(Interpreter parent, ExecutionBudget budget) {
+        this.globals = parent.globals.copy();
+        this.budget = budget;
+        this.metrics = null;
+        stack = parent.stack.clone();
+        stackNumbers = parent.stackNumbers.clone();
+        stackIntegers = parent.stackIntegers.clone();
+        fp = parent.fp;
+        top = parent.top;
+        callDepth = parent.callDepth;
+    }
+
+    // Returns the value of the top-level return, or null, once every task the script spawned has finished; runtime
+    // errors propagate to the caller, including those of tasks nobody joined
+    public Object interpret(List<Stmt> statements) {
+        // Tasks add the tasks they spawn to the same set, so both loops below also reach those
+        LumaTask task;
         try {
+            Object result = null;
             for (Stmt stmt : statements) {
-                execute(stmt);
+                if (execute(stmt) == Completion.RETURN) {
+                    result = takeReturnValue();
+                    break;
+                }
+            }
+            while ((task = globals.tasks.pollFirst()) != null) {
+                task.finish(budget);
             }
+            return result;
         } catch (RuntimeException e) {
-            System.out.println("Runtime error: " + e.getMessage());
+            // No task outlives a script that failed
+            while ((task = globals.tasks.pollFirst()) != null) {
+                task.cancel();
+            }
+            throw e;
         }
     }
 
-    private void execute(Stmt stmt) {
+    // On loop back-edges, block entries and calls: stops a script that has used up its budget, and a task that
+    // was interrupted because its script failed
+    private void checkpoint() {
+        if (budget != null) {
+            budget.checkpoint();
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ExecutionAbortedException("Script was interrupted.");
+        }
+    }
+
+    private Object takeReturnValue() {
+        Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
+
+    // Returns a Completion; the analyzer guarantees BREAK and CONTINUE only come out of loop bodies
+    private int execute(Stmt stmt) {
+        if (metrics != null) {
+            metrics.statementExecuted(stmt);
+        }
         if (stmt instanceof VarDeclStmt) {
             executeVarDecl((VarDeclStmt) stmt);
         } else if (stmt instanceof BlockStmt) {
-            executeBlock((BlockStmt) stmt);
+            return executeBlock((BlockStmt) stmt);
         } else if (stmt instanceof IfStmt) {
-            executeIf((IfStmt) stmt);
+            return executeIf((IfStmt) stmt);
         } else if (stmt instanceof ReturnStmt) {
-            executeReturn((ReturnStmt) stmt);
+            returnValue = evaluate(((ReturnStmt) stmt).value);
+            return Completion.RETURN;
         } else if (stmt instanceof WhileStmt) {
-            visitWhileStmt((WhileStmt) stmt);
+            return visitWhileStmt((WhileStmt) stmt);
+        } else if (stmt instanceof ParallelStmt) {
+            executeParallel((ParallelStmt) stmt);
+        } else if (stmt instanceof BreakStmt) {
+            return Completion.BREAK;
+        } else if (stmt instanceof ContinueStmt) {
+            return Completion.CONTINUE;
+        } else if (stmt instanceof AssignStmt) {
+            executeAssign((AssignStmt) stmt);
+        } else if (stmt instanceof IndexAssignStmt) {
+            executeIndexAssign((IndexAssignStmt) stmt);
+        } else if (stmt instanceof ExprStmt) {
+            evaluate(((ExprStmt) stmt).expression);
+        } else if (stmt instanceof FunctionDeclStmt) {
+            // Calls were bound to their declaration during analysis, so there is nothing to do at runtime
         } else {
             throw new RuntimeException("Unknown statement type: " + stmt);
         }
+        return Completion.NORMAL;
+    }
+
+    private int visitWhileStmt(WhileStmt stmt) {
+        // Begin and end are no-ops unless a recording enables the event
+        SlowLoopEvent event = new SlowLoopEvent();
+        event.begin();
+        long iterations = 0;
+        int completion = Completion.NORMAL;
+        try {
+            while (evaluateCondition(stmt.getCondition())) {
+                completion = execute(stmt.getBody());
+                iterations++;
+                if (completion == Completion.BREAK || completion == Completion.RETURN) {
+                    break;
+                }
+                checkpoint();
+            }
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.line = stmt.getLine();
+                event.iterations = iterations;
+                event.commit();
+            }
+            if (metrics != null) {
+                metrics.loopFinished(stmt.getLine(), iterations);
+            }
+        }
+        // The loop consumes its own break and continue
+        return completion == Completion.RETURN ? Completion.RETURN : Completion.NORMAL;
     }
 
-    public Void visitWhileStmt(WhileStmt stmt) {
-        while (isTruthy(evaluate(stmt.getCondition()))) {
-            execute(stmt.getBody());
+    private void executeParallel(ParallelStmt stmt) {
+        long start = bound(stmt, stmt.start);
+        long end = bound(stmt, stmt.end);
+        if (start < end) {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            // A few tasks per worker, so that workers finishing early have something left to steal
+            long grain = Math.max(1, Long.divideUnsigned(end - start, pool.getParallelism() * 8L));
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            Object[] values;
+            try {
+                values = pool.invoke(new ParallelTask(this, stmt, start, end, grain, failure));
+            } catch (RuntimeException e) {
+                // The pool may hand back a copy made for this thread; the original has the script's stack trace
+                RuntimeException first = failure.get();
+                throw first != null ? first : e;
+            }
+            for (int i = 0; i < values.length; i++) {
+                IdentifierExpr reduction = stmt.reductions.get(i);
+                // Sums start from zero in every task, so the value from before the loop is added back here
+                Object value = stmt.reductionOperators.get(i).equals("sum")
+                        ? Numbers.add(evaluate(reduction), values[i]) : values[i];
+                storeValue(reduction.depth, reduction.slot, reduction.type, value);
+            }
+        }
+        if (metrics != null) {
+            metrics.loopFinished(stmt.getLine(), Math.max(0, end - start));
         }
-        return null;
     }
 
-    private void executeVarDecl(VarDeclStmt stmt) {
-        Object value = evaluate(stmt.initializer);
-        locals.put(stmt.name, value);
+    private long bound(ParallelStmt stmt, Expr expr) {
+        Object value = evaluate(expr);
+        if (!(value instanceof Long)) {
+            throw new RuntimeException("Parallel loop on line " + stmt.getLine()
+                    + " expects a range of 64-bit integers but got " + ArrayMath.describe(value) + ".");
+        }
+        return (long) value;
     }
 
-    private void executeBlock(BlockStmt stmt) {
-        Map<String, Object> previousScope = new HashMap<>(locals);
+    // Runs iterations from up to to of a parallel loop on a new worker and returns its reduction values
+    Object[] runIterations(ParallelStmt stmt, long from, long to, AtomicReference<RuntimeException> failure) {
+        Interpreter worker = new Interpreter(this, budget == null ? null : budget.fork());
         try {
-            for (Stmt innerStmt : stmt.statements) {
-                execute(innerStmt);
+            return worker.iterate(stmt, from, to, failure);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+    }
+
+    private Object[] iterate(ParallelStmt stmt, long from, long to, AtomicReference<RuntimeException> failure) {
+        List<IdentifierExpr> reductions = stmt.reductions;
+        // Min and max can start from the value before the loop, which every copy already holds
+        for (int i = 0; i < reductions.size(); i++) {
+            IdentifierExpr reduction = reductions.get(i);
+            if (stmt.reductionOperators.get(i).equals("sum")) {
+                storeValue(reduction.depth, reduction.slot, reduction.type, reduction.type == Type.INTEGER
+                        ? (Object) 0L : (Object) 0.0);
             }
-        } finally {
-            locals.clear();
-            locals.putAll(previousScope);
         }
+        for (long i = from; i != to && failure.get() == null; i++) {
+            storeInteger(0, stmt.slot, i);
+            // A continue just ends the iteration; the analyzer allows no other completion out of the body
+            execute(stmt.body);
+            checkpoint();
+        }
+        if (budget != null) {
+            budget.flush();
+        }
+        Object[] values = new Object[reductions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = evaluate(reductions.get(i));
+        }
+        return values;
     }
 
-    private void executeIf(IfStmt stmt) {
-        Object condition = evaluate(stmt.condition);
-        if (isTruthy(condition)) {
-            execute(stmt.thenBranch);
-        } else if (stmt.elseBranch != null) {
-            execute(stmt.elseBranch);
+    private void executeVarDecl(VarDeclStmt stmt) {
+        store(stmt.name, stmt.depth, stmt.slot, stmt.type, stmt.initializer);
+    }
+
+    private void executeAssign(AssignStmt stmt) {
+        store(stmt.name, stmt.depth, stmt.slot, stmt.type, stmt.value);
+    }
+
+    private void executeIndexAssign(IndexAssignStmt stmt) {
+        Object array = evaluate(stmt.array);
+        if (stmt.index.type == Type.INTEGER && stmt.value.type.isNumeric()) {
+            long index = evaluateLong(stmt.index);
+            BigInteger bigIndex = takeOverflow();
+            if (bigIndex == null) {
+                ArrayMath.set(array, index, evaluateDouble(stmt.value));
+            } else {
+                ArrayMath.set(array, bigIndex, evaluate(stmt.value));
+            }
+        } else if (stmt.index.type == Type.NUMBER && stmt.value.type.isNumeric()) {
+            double index = evaluateDouble(stmt.index);
+            ArrayMath.set(array, index, evaluateDouble(stmt.value));
+        } else {
+            Object index = evaluate(stmt.index);
+            ArrayMath.set(array, index, evaluate(stmt.value));
         }
     }
 
-    private void executeReturn(ReturnStmt stmt) {
-        Object value = evaluate(stmt.value);
-        System.out.println("Returned: " + value);
-        throw new ReturnException(value);
+    private void store(String name, int depth, int slot, Type type, Expr value) {
+        if (slot < 0) {
+            throw new SemanticError("Variable '" + name + "' was not resolved.");
+        }
+        // Values are computed before the arrays are read: a call inside them may grow the stack
+        if (value.type == Type.ANY && type != Type.ANY) {
+            storeValue(depth, slot, type, type.coerce(evaluate(value)));
+        } else if (isLocal(depth)) {
+            if (type == Type.NUMBER) {
+                double number = evaluateDouble(value);
+                stackNumbers[fp + slot] = number;
+            } else if (type == Type.INTEGER) {
+                long integer = evaluateLong(value);
+                BigInteger big = takeOverflow();
+                stackIntegers[fp + slot] = integer;
+                stack[fp + slot] = big;
+            } else {
+                Object object = evaluate(value);
+                stack[fp + slot] = object;
+            }
+        } else if (type == Type.NUMBER) {
+            globals.storeNumber(slot, evaluateDouble(value));
+        } else if (type == Type.INTEGER) {
+            long integer = evaluateLong(value);
+            BigInteger big = takeOverflow();
+            if (big != null) {
+                globals.store(slot, big);
+            } else {
+                globals.storeInteger(slot, integer);
+            }
+        } else {
+            globals.store(slot, evaluate(value));
+        }
+    }
+
+    // Stores an already computed value, unboxing it into the arrays its type keeps it in
+    private void storeValue(int depth, int slot, Type type, Object value) {
+        if (type == Type.INTEGER && value instanceof Long) {
+            storeInteger(depth, slot, (long) value);
+        } else if (!isLocal(depth)) {
+            if (type == Type.NUMBER) {
+                globals.storeNumber(slot, Numbers.toDouble(value));
+            } else {
+                globals.store(slot, value);
+            }
+        } else if (type == Type.NUMBER) {
+            stackNumbers[fp + slot] = Numbers.toDouble(value);
+        } else {
+            stack[fp + slot] = value;
+        }
+    }
+
+    private void storeInteger(int depth, int slot, long value) {
+        if (isLocal(depth)) {
+            stackIntegers[fp + slot] = value;
+            stack[fp + slot] = null;
+        } else {
+            globals.storeInteger(slot, value);
+        }
+    }
+
+    private void ensureStackCapacity(int size) {
+        if (size > stack.length) {
+            int capacity = Math.max(stack.length * 2, size);
+            stack = Arrays.copyOf(stack, capacity);
+            stackNumbers = Arrays.copyOf(stackNumbers, capacity);
+            stackIntegers = Arrays.copyOf(stackIntegers, capacity);
+        }
+    }
+
+    // Depth 0 is the running call's frame, or the global frame when no call is running; depth 1 inside a call is
+    // the global frame, since functions are only declared at the top level
+    private boolean isLocal(int depth) {
+        return depth == 0 && callDepth > 0;
+    }
+
+    private int executeBlock(BlockStmt stmt) {
+        checkpoint();
+        if (metrics != null) {
+            metrics.blockEntered();
+        }
+        for (Stmt innerStmt : stmt.statements) {
+            int completion = execute(innerStmt);
+            if (completion != Completion.NORMAL) {
+                return completion;
+            }
+        }
+        return Completion.NORMAL;
+    }
+
+    private int executeIf(IfStmt stmt) {
+        if (evaluateCondition(stmt.condition)) {
+            return execute(stmt.thenBranch);
+        } else if (stmt.elseBranch != null) {
+            return execute(stmt.elseBranch);
+        }
+        return Completion.NORMAL;
     }
 
     public Object evaluate(Expr expr) {
+        if (expr.type == Type.NUMBER) {
+            allocated();
+            return evaluateDouble(expr);
+        } else if (expr.type == Type.INTEGER) {
+            allocated();
+            return evaluateInteger(expr);
+        } else if (expr.type == Type.BOOLEAN) {
+            return evaluateBoolean(expr);
+        }
+        return evaluateGeneric(expr);
+    }
+
+    private Object evaluateGeneric(Expr expr) {
         if (expr instanceof LiteralExpr) {
-            Object value = ((LiteralExpr) expr).value;
-            if (value instanceof String) {
-                // Attempt to parse numbers from string literals
-                try {
-                    return Double.parseDouble((String) value);
-                } catch (NumberFormatException e) {
-                    // If it's not a number, return as-is (e.g., a plain string)
-                    return value;
-                }
-            }
-            return value;
+            return ((LiteralExpr) expr).value;
         } else if (expr instanceof IdentifierExpr) {
-            String name = ((IdentifierExpr) expr).name;
-            if (locals.containsKey(name)) {
-                return locals.get(name);
-            } else if (globals.containsKey(name)) {
-                return globals.get(name);
-            } else {
-                throw new SemanticError("Variable '" + name + "' is not defined.");
-            }
+            return load((IdentifierExpr) expr);
         } else if (expr instanceof BinaryExpr) {
             return evaluateBinary((BinaryExpr) expr);
+        } else if (expr instanceof CallExpr) {
+            return call((CallExpr) expr);
+        } else if (expr instanceof UnaryExpr) {
+            Object value = ArrayMath.negate(evaluate(((UnaryExpr) expr).right));
+            allocated(value);
+            return value;
+        } else if (expr instanceof ArrayLiteralExpr) {
+            return newArray((ArrayLiteralExpr) expr);
+        } else if (expr instanceof SpawnExpr) {
+            return spawn(((SpawnExpr) expr).call);
+        } else if (expr instanceof JoinExpr) {
+            return join((JoinExpr) expr);
+        } else if (expr instanceof ChannelExpr) {
+            Object capacity = evaluate(((ChannelExpr) expr).capacity);
+            if (!(capacity instanceof Long)) {
+                throw new RuntimeException("Channel capacity must be an integer, not " + ArrayMath.describe(capacity)
+                        + ".");
+            }
+            LumaChannel channel = new LumaChannel((long) capacity);
+            allocated(channel);
+            return channel;
+        } else if (expr instanceof SendExpr) {
+            SendExpr send = (SendExpr) expr;
+            LumaChannel channel = channel(send.channel);
+            channel.send(evaluate(send.value), budget);
+            return null;
+        } else if (expr instanceof ReceiveExpr) {
+            return channel(((ReceiveExpr) expr).channel).receive(budget);
         }
         throw new RuntimeException("Unknown expression type: " + expr);
     }
 
+    // Integers are converted, for arithmetic that mixes them with floats
+    public double evaluateDouble(Expr expr) {
+        if (expr.type == Type.INTEGER) {
+            long integer = evaluateLong(expr);
+            BigInteger big = takeOverflow();
+            return big != null ? big.doubleValue() : integer;
+        } else if (expr instanceof LiteralExpr) {
+            return (double) ((LiteralExpr) expr).value;
+        } else if (expr instanceof IdentifierExpr) {
+            IdentifierExpr identifier = (IdentifierExpr) expr;
+            return identifier.type == Type.NUMBER ? loadNumber(identifier) : (double) load(identifier);
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            if (metrics != null) {
+                metrics.binaryEvaluated(binary.operator);
+            }
+            switch (binary.operator) {
+                case "+" -> {
+                    return evaluateDouble(binary.left) + evaluateDouble(binary.right);
+                }
+                case "-" -> {
+                    return evaluateDouble(binary.left) - evaluateDouble(binary.right);
+                }
+                case "*" -> {
+                    return evaluateDouble(binary.left) * evaluateDouble(binary.right);
+                }
+                case "/" -> {
+                    double left = evaluateDouble(binary.left);
+                    double right = evaluateDouble(binary.right);
+                    if (right == 0) {
+                        throw new RuntimeException("Division by zero.");
+                    }
+                    return left / right;
+                }
+            }
+        } else if (expr instanceof UnaryExpr) {
+            return -evaluateDouble(((UnaryExpr) expr).right);
+        } else if (expr instanceof IndexExpr) {
+            IndexExpr index = (IndexExpr) expr;
+            Object array = evaluate(index.array);
+            if (index.index.type == Type.INTEGER) {
+                long position = evaluateLong(index.index);
+                BigInteger big = takeOverflow();
+                return big != null ? ArrayMath.get(array, big) : ArrayMath.get(array, position);
+            } else if (index.index.type == Type.NUMBER) {
+                return ArrayMath.get(array, evaluateDouble(index.index));
+            }
+            return ArrayMath.get(array, evaluate(index.index));
+        }
+        return (double) evaluateGeneric(expr);
+    }
+
+    private Object evaluateInteger(Expr expr) {
+        long integer = evaluateLong(expr);
+        BigInteger big = takeOverflow();
+        return big != null ? big : (Object) integer;
+    }
+
+    // For expressions of static type INTEGER. Arithmetic runs on longs until it overflows, and is then redone on
+    // BigIntegers. A caller must take the overflow right after the call, before evaluating anything else.
+    private long evaluateLong(Expr expr) {
+        if (expr instanceof LiteralExpr) {
+            return integer(((LiteralExpr) expr).value);
+        } else if (expr instanceof IdentifierExpr) {
+            return loadInteger((IdentifierExpr) expr);
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            if (metrics != null) {
+                metrics.binaryEvaluated(binary.operator);
+            }
+            long left = evaluateLong(binary.left);
+            BigInteger bigLeft = takeOverflow();
+            long right = evaluateLong(binary.right);
+            BigInteger bigRight = takeOverflow();
+            if (bigLeft == null && bigRight == null) {
+                try {
+                    switch (binary.operator) {
+                        case "+" -> {
+                            return Math.addExact(left, right);
+                        }
+                        case "-" -> {
+                            return Math.subtractExact(left, right);
+                        }
+                        case "*" -> {
+                            return Math.multiplyExact(left, right);
+                        }
+                    }
+                } catch (ArithmeticException e) {
+                    // Redone below
+                }
+            }
+            Object leftValue = bigLeft != null ? bigLeft : (Object) left;
+            Object rightValue = bigRight != null ? bigRight : (Object) right;
+            return integer(arithmetic(binary.operator, leftValue, rightValue));
+        } else if (expr instanceof UnaryExpr) {
+            long operand = evaluateLong(((UnaryExpr) expr).right);
+            BigInteger big = takeOverflow();
+            return integer(big != null ? Numbers.negate(big) : Numbers.negate(operand));
+        } else if (expr instanceof LengthExpr) {
+            return ArrayMath.length(evaluate(((LengthExpr) expr).array));
+        }
+        return integer(evaluateGeneric(expr));
+    }
+
+    // Returns a Long's value, or sets overflow to a BigInteger
+    private long integer(Object value) {
+        if (value instanceof Long) {
+            return (long) value;
+        }
+        overflow = (BigInteger) value;
+        return 0;
+    }
+
+    private BigInteger takeOverflow() {
+        BigInteger big = overflow;
+        overflow = null;
+        return big;
+    }
+
+    public boolean evaluateBoolean(Expr expr) {
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            if (binary.left.type == Type.INTEGER && binary.right.type == Type.INTEGER) {
+                if (metrics != null) {
+                    metrics.binaryEvaluated(binary.operator);
+                }
+                long left = evaluateLong(binary.left);
+                BigInteger bigLeft = takeOverflow();
+                long right = evaluateLong(binary.right);
+                BigInteger bigRight = takeOverflow();
+                if (bigLeft != null || bigRight != null) {
+                    return compare(binary.operator, bigLeft != null ? bigLeft : (Object) left,
+                            bigRight != null ? bigRight : (Object) right);
+                }
+                switch (binary.operator) {
+                    case "==" -> {
+                        return left == right;
+                    }
+                    case "!=" -> {
+                        return left != right;
+                    }
+                    case ">" -> {
+                        return left > right;
+                    }
+                    case "<" -> {
+                        return left < right;
+                    }
+                    case ">=" -> {
+                        return left >= right;
+                    }
+                    case "<=" -> {
+                        return left <= right;
+                    }
+                }
+            }
+            // An integer compared with a float is converted, like in Numbers
+            if (binary.left.type.isNumeric() && binary.right.type.isNumeric()) {
+                if (metrics != null) {
+                    metrics.binaryEvaluated(binary.operator);
+                }
+                double left = evaluateDouble(binary.left);
+                double right = evaluateDouble(binary.right);
+                switch (binary.operator) {
+                    // Same semantics as Double.equals, which the boxed path uses
+                    case "==" -> {
+                        return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+                    }
+                    case "!=" -> {
+                        return Double.doubleToLongBits(left) != Double.doubleToLongBits(right);
+                    }
+                    case ">" -> {
+                        return left > right;
+                    }
+                    case "<" -> {
+                        return left < right;
+                    }
+                    case ">=" -> {
+                        return left >= right;
+                    }
+                    case "<=" -> {
+                        return left <= right;
+                    }
+                }
+            }
+        }
+        return isTruthy(evaluateGeneric(expr));
+    }
+
+    private boolean evaluateCondition(Expr expr) {
+        return expr.type == Type.BOOLEAN ? evaluateBoolean(expr) : isTruthy(evaluate(expr));
+    }
+
+    private Object load(IdentifierExpr identifier) {
+        return isLocal(identifier.depth) ? stack[fp + identifier.slot] : globals.load(slot(identifier));
+    }
+
+    private double loadNumber(IdentifierExpr identifier) {
+        return isLocal(identifier.depth) ? stackNumbers[fp + identifier.slot] : globals.loadNumber(slot(identifier));
+    }
+
+    private long loadInteger(IdentifierExpr identifier) {
+        int slot = isLocal(identifier.depth) ? fp + identifier.slot : slot(identifier);
+        Object big = isLocal(identifier.depth) ? stack[slot] : globals.load(slot);
+        if (big != null) {
+            overflow = (BigInteger) big;
+            return 0;
+        }
+        return isLocal(identifier.depth) ? stackIntegers[slot] : globals.loadInteger(slot);
+    }
+
+    private int slot(IdentifierExpr identifier) {
+        int slot = identifier.slot;
+        if (slot < 0 || slot >= globals.capacity()) {
+            throw new SemanticError("Variable '" + identifier.name + "' is not defined.");
+        }
+        return slot;
+    }
+
+    private double[] newArray(ArrayLiteralExpr literal) {
+        List<Expr> elements = literal.elements;
+        double[] array = new double[elements.size()];
+        for (int i = 0; i < array.length; i++) {
+            Expr element = elements.get(i);
+            array[i] = element.type.isNumeric() ? evaluateDouble(element) : ArrayMath.element(evaluate(element));
+        }
+        allocated(array);
+        return array;
+    }
+
+    private Object call(CallExpr call) {
+        FunctionDeclStmt function = call.function;
+        if (function == null) {
+            throw new SemanticError("Function '" + call.callee + "' was not resolved.");
+        }
+        if (callDepth == MAX_CALL_DEPTH) {
+            throw new RuntimeException(STACK_OVERFLOW);
+        }
+        checkpoint();
+        int savedFp = fp;
+        int base = top;
+        ensureStackCapacity(base + function.frameSize);
+        try {
+            // Arguments are evaluated in the caller's frame. Each one claims its parameter slot before the next is
+            // evaluated, so calls among the arguments build their frames above it.
+            List<Expr> arguments = call.arguments;
+            for (int i = 0; i < arguments.size(); i++) {
+                Object argument = evaluate(arguments.get(i));
+                stack[base + i] = argument;
+                top = base + i + 1;
+            }
+            fp = base;
+            top = base + function.frameSize;
+            callDepth++;
+            try {
+                for (Stmt stmt : function.body) {
+                    if (execute(stmt) == Completion.RETURN) {
+                        return takeReturnValue();
+                    }
+                }
+            } finally {
+                callDepth--;
+            }
+            return null;
+        } catch (StackOverflowError e) {
+            // A thread with less than STACK_SIZE runs out before MAX_CALL_DEPTH; fail the way the limit does
+            throw new RuntimeException(STACK_OVERFLOW);
+        } finally {
+            fp = savedFp;
+            top = base;
+        }
+    }
+
+    // Arguments are evaluated by the spawner, then the body runs on a virtual thread with a stack of its own
+    private LumaTask spawn(CallExpr call) {
+        FunctionDeclStmt function = call.function;
+        if (function == null) {
+            throw new SemanticError("Function '" + call.callee + "' was not resolved.");
+        }
+        List<Expr> arguments = call.arguments;
+        Object[] values = new Object[arguments.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = evaluate(arguments.get(i));
+        }
+        Interpreter task = new Interpreter(globals, budget == null ? null : budget.fork());
+        LumaTask handle = new LumaTask(function.name);
+        allocated(handle);
+        globals.share();
+        globals.tasks.add(handle);
+        handle.start(() -> {
+            Object result = task.runTask(function, values);
+            globals.tasks.remove(handle);
+            return result;
+        });
+        return handle;
+    }
+
+    private Object runTask(FunctionDeclStmt function, Object[] arguments) {
+        try {
+            ensureStackCapacity(function.frameSize);
+            System.arraycopy(arguments, 0, stack, 0, arguments.length);
+            top = function.frameSize;
+            callDepth = 1;
+            for (Stmt stmt : function.body) {
+                if (execute(stmt) == Completion.RETURN) {
+                    return takeReturnValue();
+                }
+            }
+            return null;
+        } finally {
+            if (budget != null) {
+                budget.flush();
+            }
+        }
+    }
+
+    private Object join(JoinExpr join) {
+        Object task = evaluate(join.task);
+        if (!(task instanceof LumaTask)) {
+            throw new RuntimeException("Only tasks can be joined, not " + ArrayMath.describe(task) + ".");
+        }
+        LumaTask handle = (LumaTask) task;
+        Object result;
+        try {
+            result = handle.join(budget);
+        } finally {
+            // Its failure, if any, has been raised here, so the end of the script has nothing left to report
+            if (handle.isObserved()) {
+                globals.tasks.remove(handle);
+            }
+        }
+        if (result == null && join.valueUsed) {
+            throw new RuntimeException("Function '" + handle.getFunction()
+                    + "' did not return a value to join.");
+        }
+        return result;
+    }
+
+    private LumaChannel channel(Expr expr) {
+        Object channel = evaluate(expr);
+        if (!(channel instanceof LumaChannel)) {
+            throw new RuntimeException("Expected a channel but got " + ArrayMath.describe(channel) + ".");
+        }
+        return (LumaChannel) channel;
+    }
+
     private Object evaluateBinary(BinaryExpr expr) {
+        if (metrics != null) {
+            metrics.binaryEvaluated(expr.operator);
+        }
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
         return switch (expr.operator) {
-            case "+" -> (double) left + (double) right;
-            case "-" -> (double) left - (double) right;
-            case "*" -> (double) left * (double) right;
-            case "/" -> {
-                if ((double) right == 0) {
-                    throw new RuntimeException("Division by zero.");
-                }
-                yield (double) left / (double) right;
-            }
-            case "==" -> left.equals(right);
-            case "!=" -> !left.equals(right);
-            case ">" -> (double) left > (double) right;
-            case "<" -> (double) left < (double) right;
-            case ">=" -> (double) left >= (double) right;
-            case "<=" -> (double) left <= (double) right;
+            case "+", "-", "*", "/" -> {
+                Object value = arithmetic(expr.operator, left, right);
+                allocated(value);
+                yield value;
+            }
+            case "==", "!=", ">", "<", ">=", "<=" -> compare(expr.operator, left, right);
             default -> throw new RuntimeException("Unknown operator: " + expr.operator);
         };
     }
 
-    private boolean isTruthy(Object object) {
-        if (object == null) return false;
-        if (object instanceof Boolean) return (boolean) object;
-        return true;
+    private boolean compare(String operator, Object left, Object right) {
+        return switch (operator) {
+            case "==" -> Numbers.equal(left, right);
+            case "!=" -> !Numbers.equal(left, right);
+            default -> Numbers.compare(operator, left, right);
+        };
     }
 
-    private static class ReturnException extends RuntimeException {
-        private final Object value;
+    // Operands without a static number type may be arrays
+    private Object arithmetic(String operator, Object left, Object right) {
+        return switch (operator) {
+            case "+" -> ArrayMath.add(left, right);
+            case "-" -> ArrayMath.subtract(left, right);
+            case "*" -> ArrayMath.multiply(left, right);
+            default -> ArrayMath.divide(left, right);
+        };
+    }
 
-        public ReturnException(Object value) {
-            this.value = value;
+    // Counts a boxed value against the budget
+    private void allocated() {
+        if (budget != null) {
+            budget.allocate(1);
         }
+    }
 
-        public Object getValue() {
-            return value;
+    // Counts a new value against the budget, an array by its elements
+    private void allocated(Object value) {
+        if (budget != null) {
+            budget.allocate(ArrayMath.size(value));
         }
     }
+
+    private boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
 }
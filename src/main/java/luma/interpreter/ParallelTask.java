@@ -0,0 +1,59 @@
+package luma.interpreter;
+
+import luma.parser.ParallelStmt;
+import luma.runtime.Numbers;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs the iterations from start up to end of a parallel loop. Ranges longer than the grain are split in half and
+// the halves run as tasks of their own, so idle workers can steal them. Returns the values the reduction variables
+// reached over the range, in the order of the loop's reductions.
+final class ParallelTask extends RecursiveTask<Object[]> {
+    private final Interpreter interpreter;
+    private final ParallelStmt stmt;
+    private final long start;
+    private final long end;
+    private final long grain;
+    // The first error any iteration raised; the other tasks stop at their next iteration once it is set
+    private final AtomicReference<RuntimeException> failure;
+
+    ParallelTask(Interpreter interpreter, ParallelStmt stmt, long start, long end, long grain,
+                 AtomicReference<RuntimeException> failure) {
+        this.interpreter = interpreter;
+        this.stmt = stmt;
+        this.start = start;
+        this.end = end;
+        this.grain = grain;
+        this.failure = failure;
+    }
+
+    @Override
+    protected Object[] compute() {
+        // The range may be longer than Long.MAX_VALUE, so its length is unsigned
+        if (Long.compareUnsigned(end - start, grain) <= 0) {
+            return interpreter.runIterations(stmt, start, end, failure);
+        }
+        long middle = start + ((end - start) >>> 1);
+        ParallelTask right = new ParallelTask(interpreter, stmt, middle, end, grain, failure);
+        right.fork();
+        Object[] left = new ParallelTask(interpreter, stmt, start, middle, grain, failure).compute();
+        return combine(stmt.reductionOperators, left, right.join());
+    }
+
+    static Object[] combine(List<String> operators, Object[] left, Object[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] = combine(operators.get(i), left[i], right[i]);
+        }
+        return left;
+    }
+
+    static Object combine(String operator, Object left, Object right) {
+        return switch (operator) {
+            case "sum" -> Numbers.add(left, right);
+            case "min" -> Numbers.compare("<", right, left) ? right : left;
+            default -> Numbers.compare(">", right, left) ? right : left;
+        };
+    }
+}
@@ -0,0 +1,486 @@
+package luma.interpreter.node;
+
+import luma.runtime.ArrayMath;
+import luma.runtime.Numbers;
+
+// Starts uninitialized and specializes on the operand types seen by its first execution. A specialized node
+// whose operand guard fails rewrites itself to Generic, which handles every type combination. Long arithmetic
+// also rewrites itself the first time it overflows, since its result no longer fits in a long.
+abstract class BinaryNode extends ExprNode {
+    final String operator;
+    ExprNode left;
+    ExprNode right;
+
+    BinaryNode(String operator, ExprNode left, ExprNode right) {
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    static BinaryNode create(String operator, ExprNode left, ExprNode right) {
+        return new Uninitialized(operator, left, right);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (left == oldChild) {
+            left = (ExprNode) newChild;
+        } else if (right == oldChild) {
+            right = (ExprNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    Generic generalize() {
+        return replace(new Generic(operator, left, right));
+    }
+
+    static final class Uninitialized extends BinaryNode {
+        Uninitialized(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            Object leftValue = left.execute(frame);
+            Object rightValue = right.execute(frame);
+            replace(specialize(leftValue, rightValue));
+            return Generic.apply(operator, leftValue, rightValue);
+        }
+
+        private BinaryNode specialize(Object leftValue, Object rightValue) {
+            if (leftValue instanceof Double && rightValue instanceof Double) {
+                return switch (operator) {
+                    case "+" -> new DoubleAdd(operator, left, right);
+                    case "-" -> new DoubleSubtract(operator, left, right);
+                    case "*" -> new DoubleMultiply(operator, left, right);
+                    case "/" -> new DoubleDivide(operator, left, right);
+                    case "<" -> new DoubleLess(operator, left, right);
+                    case "<=" -> new DoubleLessEqual(operator, left, right);
+                    case ">" -> new DoubleGreater(operator, left, right);
+                    case ">=" -> new DoubleGreaterEqual(operator, left, right);
+                    case "==" -> new DoubleEquals(operator, left, right, false);
+                    case "!=" -> new DoubleEquals(operator, left, right, true);
+                    default -> new Generic(operator, left, right);
+                };
+            }
+            if (leftValue instanceof Long && rightValue instanceof Long) {
+                return switch (operator) {
+                    case "+" -> new LongAdd(operator, left, right);
+                    case "-" -> new LongSubtract(operator, left, right);
+                    case "*" -> new LongMultiply(operator, left, right);
+                    case "<" -> new LongLess(operator, left, right);
+                    case "<=" -> new LongLessEqual(operator, left, right);
+                    case ">" -> new LongGreater(operator, left, right);
+                    case ">=" -> new LongGreaterEqual(operator, left, right);
+                    case "==" -> new LongEquals(operator, left, right, false);
+                    case "!=" -> new LongEquals(operator, left, right, true);
+                    // Division gives a float
+                    default -> new Generic(operator, left, right);
+                };
+            }
+            if (leftValue instanceof Boolean && rightValue instanceof Boolean) {
+                return switch (operator) {
+                    case "==" -> new BooleanEquals(operator, left, right, false);
+                    case "!=" -> new BooleanEquals(operator, left, right, true);
+                    default -> new Generic(operator, left, right);
+                };
+            }
+            return new Generic(operator, left, right);
+        }
+    }
+
+    abstract static class DoubleArithmetic extends BinaryNode {
+        DoubleArithmetic(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        abstract double compute(double leftValue, double rightValue);
+
+        @Override
+        Object execute(Frame frame) {
+            try {
+                return executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return e.getResult();
+            }
+        }
+
+        @Override
+        double executeDouble(Frame frame) throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return expectDouble(generalize().executeEvaluated(e.getResult(), right.execute(frame)));
+            }
+            try {
+                return compute(leftValue, right.executeDouble(frame));
+            } catch (UnexpectedResultException e) {
+                return expectDouble(generalize().executeEvaluated(leftValue, e.getResult()));
+            }
+        }
+    }
+
+    static final class DoubleAdd extends DoubleArithmetic {
+        DoubleAdd(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double compute(double leftValue, double rightValue) {
+            return leftValue + rightValue;
+        }
+    }
+
+    static final class DoubleSubtract extends DoubleArithmetic {
+        DoubleSubtract(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double compute(double leftValue, double rightValue) {
+            return leftValue - rightValue;
+        }
+    }
+
+    static final class DoubleMultiply extends DoubleArithmetic {
+        DoubleMultiply(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double compute(double leftValue, double rightValue) {
+            return leftValue * rightValue;
+        }
+    }
+
+    static final class DoubleDivide extends DoubleArithmetic {
+        DoubleDivide(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        double compute(double leftValue, double rightValue) {
+            if (rightValue == 0) {
+                throw new RuntimeException("Division by zero.");
+            }
+            return leftValue / rightValue;
+        }
+    }
+
+    abstract static class DoubleComparison extends BinaryNode {
+        DoubleComparison(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        abstract boolean compare(double leftValue, double rightValue);
+
+        @Override
+        Object execute(Frame frame) {
+            try {
+                return executeBoolean(frame);
+            } catch (UnexpectedResultException e) {
+                return e.getResult();
+            }
+        }
+
+        @Override
+        boolean executeBoolean(Frame frame) throws UnexpectedResultException {
+            double leftValue;
+            try {
+                leftValue = left.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return expectBoolean(generalize().executeEvaluated(e.getResult(), right.execute(frame)));
+            }
+            try {
+                return compare(leftValue, right.executeDouble(frame));
+            } catch (UnexpectedResultException e) {
+                return expectBoolean(generalize().executeEvaluated(leftValue, e.getResult()));
+            }
+        }
+    }
+
+    static final class DoubleLess extends DoubleComparison {
+        DoubleLess(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(double leftValue, double rightValue) {
+            return leftValue < rightValue;
+        }
+    }
+
+    static final class DoubleLessEqual extends DoubleComparison {
+        DoubleLessEqual(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(double leftValue, double rightValue) {
+            return leftValue <= rightValue;
+        }
+    }
+
+    static final class DoubleGreater extends DoubleComparison {
+        DoubleGreater(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(double leftValue, double rightValue) {
+            return leftValue > rightValue;
+        }
+    }
+
+    static final class DoubleGreaterEqual extends DoubleComparison {
+        DoubleGreaterEqual(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(double leftValue, double rightValue) {
+            return leftValue >= rightValue;
+        }
+    }
+
+    static final class DoubleEquals extends DoubleComparison {
+        private final boolean negated;
+
+        DoubleEquals(String operator, ExprNode left, ExprNode right, boolean negated) {
+            super(operator, left, right);
+            this.negated = negated;
+        }
+
+        @Override
+        boolean compare(double leftValue, double rightValue) {
+            // Same semantics as Double.equals, which the generic path uses
+            return (Double.doubleToLongBits(leftValue) == Double.doubleToLongBits(rightValue)) != negated;
+        }
+    }
+
+    abstract static class LongArithmetic extends BinaryNode {
+        LongArithmetic(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        // Throws ArithmeticException when the result does not fit in a long
+        abstract long compute(long leftValue, long rightValue);
+
+        @Override
+        Object execute(Frame frame) {
+            try {
+                return executeLong(frame);
+            } catch (UnexpectedResultException e) {
+                return e.getResult();
+            }
+        }
+
+        @Override
+        long executeLong(Frame frame) throws UnexpectedResultException {
+            long leftValue;
+            try {
+                leftValue = left.executeLong(frame);
+            } catch (UnexpectedResultException e) {
+                return expectLong(generalize().executeEvaluated(e.getResult(), right.execute(frame)));
+            }
+            long rightValue;
+            try {
+                rightValue = right.executeLong(frame);
+            } catch (UnexpectedResultException e) {
+                return expectLong(generalize().executeEvaluated(leftValue, e.getResult()));
+            }
+            try {
+                return compute(leftValue, rightValue);
+            } catch (ArithmeticException e) {
+                return expectLong(generalize().executeEvaluated(leftValue, rightValue));
+            }
+        }
+    }
+
+    static final class LongAdd extends LongArithmetic {
+        LongAdd(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        long compute(long leftValue, long rightValue) {
+            return Math.addExact(leftValue, rightValue);
+        }
+    }
+
+    static final class LongSubtract extends LongArithmetic {
+        LongSubtract(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        long compute(long leftValue, long rightValue) {
+            return Math.subtractExact(leftValue, rightValue);
+        }
+    }
+
+    static final class LongMultiply extends LongArithmetic {
+        LongMultiply(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        long compute(long leftValue, long rightValue) {
+            return Math.multiplyExact(leftValue, rightValue);
+        }
+    }
+
+    abstract static class LongComparison extends BinaryNode {
+        LongComparison(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        abstract boolean compare(long leftValue, long rightValue);
+
+        @Override
+        Object execute(Frame frame) {
+            try {
+                return executeBoolean(frame);
+            } catch (UnexpectedResultException e) {
+                return e.getResult();
+            }
+        }
+
+        @Override
+        boolean executeBoolean(Frame frame) throws UnexpectedResultException {
+            long leftValue;
+            try {
+                leftValue = left.executeLong(frame);
+            } catch (UnexpectedResultException e) {
+                return expectBoolean(generalize().executeEvaluated(e.getResult(), right.execute(frame)));
+            }
+            try {
+                return compare(leftValue, right.executeLong(frame));
+            } catch (UnexpectedResultException e) {
+                return expectBoolean(generalize().executeEvaluated(leftValue, e.getResult()));
+            }
+        }
+    }
+
+    static final class LongLess extends LongComparison {
+        LongLess(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(long leftValue, long rightValue) {
+            return leftValue < rightValue;
+        }
+    }
+
+    static final class LongLessEqual extends LongComparison {
+        LongLessEqual(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(long leftValue, long rightValue) {
+            return leftValue <= rightValue;
+        }
+    }
+
+    static final class LongGreater extends LongComparison {
+        LongGreater(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(long leftValue, long rightValue) {
+            return leftValue > rightValue;
+        }
+    }
+
+    static final class LongGreaterEqual extends LongComparison {
+        LongGreaterEqual(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        boolean compare(long leftValue, long rightValue) {
+            return leftValue >= rightValue;
+        }
+    }
+
+    static final class LongEquals extends LongComparison {
+        private final boolean negated;
+
+        LongEquals(String operator, ExprNode left, ExprNode right, boolean negated) {
+            super(operator, left, right);
+            this.negated = negated;
+        }
+
+        @Override
+        boolean compare(long leftValue, long rightValue) {
+            return (leftValue == rightValue) != negated;
+        }
+    }
+
+    static final class BooleanEquals extends BinaryNode {
+        private final boolean negated;
+
+        BooleanEquals(String operator, ExprNode left, ExprNode right, boolean negated) {
+            super(operator, left, right);
+            this.negated = negated;
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            try {
+                return executeBoolean(frame);
+            } catch (UnexpectedResultException e) {
+                return e.getResult();
+            }
+        }
+
+        @Override
+        boolean executeBoolean(Frame frame) throws UnexpectedResultException {
+            boolean leftValue;
+            try {
+                leftValue = left.executeBoolean(frame);
+            } catch (UnexpectedResultException e) {
+                return expectBoolean(generalize().executeEvaluated(e.getResult(), right.execute(frame)));
+            }
+            try {
+                return (leftValue == right.executeBoolean(frame)) != negated;
+            } catch (UnexpectedResultException e) {
+                return expectBoolean(generalize().executeEvaluated(leftValue, e.getResult()));
+            }
+        }
+    }
+
+    static final class Generic extends BinaryNode {
+        Generic(String operator, ExprNode left, ExprNode right) {
+            super(operator, left, right);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            return apply(operator, left.execute(frame), right.execute(frame));
+        }
+
+        Object executeEvaluated(Object leftValue, Object rightValue) {
+            return apply(operator, leftValue, rightValue);
+        }
+
+        static Object apply(String operator, Object left, Object right) {
+            return switch (operator) {
+                case "+" -> ArrayMath.add(left, right);
+                case "-" -> ArrayMath.subtract(left, right);
+                case "*" -> ArrayMath.multiply(left, right);
+                case "/" -> ArrayMath.divide(left, right);
+                case "==" -> Numbers.equal(left, right);
+                case "!=" -> !Numbers.equal(left, right);
+                case ">", "<", ">=", "<=" -> Numbers.compare(operator, left, right);
+                default -> throw new RuntimeException("Unknown operator: " + operator);
+            };
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+
+final class BlockNode extends StmtNode {
+    private final StmtNode[] statements;
+
+    BlockNode(StmtNode[] statements) {
+        this.statements = statements;
+        for (StmtNode statement : statements) {
+            adopt(statement);
+        }
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        for (int i = 0; i < statements.length; i++) {
+            if (statements[i] == oldChild) {
+                statements[i] = (StmtNode) newChild;
+                return;
+            }
+        }
+        super.replaceChild(oldChild, newChild);
+    }
+
+    @Override
+    int execute(Frame frame) {
+        for (StmtNode statement : statements) {
+            int completion = statement.execute(frame);
+            if (completion != Completion.NORMAL) {
+                return completion;
+            }
+        }
+        return Completion.NORMAL;
+    }
+}
@@ -0,0 +1,55 @@
+package luma.interpreter.node;
+
+import luma.semantic.SemanticError;
+
+// Slot storage with a tag per slot recording whether the value currently lives unboxed in doubles or longs
+final class Frame {
+    static final byte EMPTY = 0;
+    static final byte DOUBLE = 1;
+    static final byte OBJECT = 2;
+    static final byte LONG = 3;
+
+    final Object[] objects;
+    final double[] doubles;
+    final long[] longs;
+    final byte[] tags;
+    // Set by the return statement that ends the execution
+    Object returnValue;
+
+    Frame(int size) {
+        objects = new Object[size];
+        doubles = new double[size];
+        longs = new long[size];
+        tags = new byte[size];
+    }
+
+    Object get(String name, int slot) {
+        switch (tags[slot]) {
+            case DOUBLE -> {
+                return doubles[slot];
+            }
+            case OBJECT -> {
+                return objects[slot];
+            }
+            case LONG -> {
+                return longs[slot];
+            }
+            default -> throw new SemanticError("Variable '" + name + "' is not defined.");
+        }
+    }
+
+    void setDouble(int slot, double value) {
+        doubles[slot] = value;
+        tags[slot] = DOUBLE;
+    }
+
+    void setLong(int slot, long value) {
+        longs[slot] = value;
+        tags[slot] = LONG;
+    }
+
+    void setObject(int slot, Object value) {
+        objects[slot] = value;
+        tags[slot] = OBJECT;
+    }
+}
@@ -0,0 +1,38 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+
+final class IfNode extends StmtNode {
+    private ExprNode condition;
+    private StmtNode thenBranch;
+    private StmtNode elseBranch;
+
+    IfNode(ExprNode condition, StmtNode thenBranch, StmtNode elseBranch) {
+        this.condition = adopt(condition);
+        this.thenBranch = adopt(thenBranch);
+        this.elseBranch = adopt(elseBranch);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (condition == oldChild) {
+            condition = (ExprNode) newChild;
+        } else if (thenBranch == oldChild) {
+            thenBranch = (StmtNode) newChild;
+        } else if (elseBranch == oldChild) {
+            elseBranch = (StmtNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    @Override
+    int execute(Frame frame) {
+        if (executeCondition(condition, frame)) {
+            return thenBranch.execute(frame);
+        } else if (elseBranch != null) {
+            return elseBranch.execute(frame);
+        }
+        return Completion.NORMAL;
+    }
+}
@@ -0,0 +1,15 @@
+package luma.interpreter.node;
+
+// A break or continue; the enclosing WhileNode acts on the completion
+final class JumpNode extends StmtNode {
+    private final int completion;
+
+    JumpNode(int completion) {
+        this.completion = completion;
+    }
+
+    @Override
+    int execute(Frame frame) {
+        return completion;
+    }
+}
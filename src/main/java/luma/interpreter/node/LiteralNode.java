@@ -0,0 +1,29 @@
+package luma.interpreter.node;
+
+final class LiteralNode extends ExprNode {
+    private final Object value;
+
+    LiteralNode(Object value) {
+        this.value = value;
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return value;
+    }
+
+    @Override
+    double executeDouble(Frame frame) throws UnexpectedResultException {
+        return expectDouble(value);
+    }
+
+    @Override
+    long executeLong(Frame frame) throws UnexpectedResultException {
+        return expectLong(value);
+    }
+
+    @Override
+    boolean executeBoolean(Frame frame) throws UnexpectedResultException {
+        return expectBoolean(value);
+    }
+}
@@ -0,0 +1,51 @@
+package luma.interpreter.node;
+
+import luma.runtime.ArrayMath;
+
+final class NegateNode extends ExprNode {
+    private ExprNode operand;
+
+    NegateNode(ExprNode operand) {
+        this.operand = adopt(operand);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (operand == oldChild) {
+            operand = (ExprNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return ArrayMath.negate(operand.execute(frame));
+    }
+
+    // An operand of another type is negated on the generic path, so the exception carries the negation
+    @Override
+    double executeDouble(Frame frame) throws UnexpectedResultException {
+        double value;
+        try {
+            value = operand.executeDouble(frame);
+        } catch (UnexpectedResultException e) {
+            throw new UnexpectedResultException(ArrayMath.negate(e.getResult()));
+        }
+        return -value;
+    }
+
+    @Override
+    long executeLong(Frame frame) throws UnexpectedResultException {
+        long value;
+        try {
+            value = operand.executeLong(frame);
+        } catch (UnexpectedResultException e) {
+            throw new UnexpectedResultException(ArrayMath.negate(e.getResult()));
+        }
+        if (value == Long.MIN_VALUE) {
+            throw new UnexpectedResultException(ArrayMath.negate(value));
+        }
+        return -value;
+    }
+}
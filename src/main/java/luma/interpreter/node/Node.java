@@ -0,0 +1,24 @@
+package luma.interpreter.node;
+
+// Base of the self-specializing node tree. A node replaces itself in its parent when it observes values
+// its current specialization cannot handle.
+abstract class Node {
+    Node parent;
+
+    <T extends Node> T adopt(T child) {
+        if (child != null) {
+            child.parent = this;
+        }
+        return child;
+    }
+
+    <T extends Node> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        replacement.parent = parent;
+        return replacement;
+    }
+
+    void replaceChild(Node oldChild, Node newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no child " + oldChild);
+    }
+}
@@ -0,0 +1,100 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+import luma.parser.*;
+import luma.runtime.LumaString;
+import luma.semantic.SemanticError;
+import luma.semantic.Type;
+
+import java.util.List;
+
+// Builds an uninitialized node tree from analyzed statements
+public class NodeBuilder {
+    private int frameSize = 0;
+
+    public RootNode build(List<Stmt> statements) {
+        BlockNode body = block(statements);
+        return new RootNode(body, frameSize);
+    }
+
+    private BlockNode block(List<Stmt> statements) {
+        StmtNode[] nodes = new StmtNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = build(statements.get(i));
+        }
+        return new BlockNode(nodes);
+    }
+
+    private StmtNode build(Stmt stmt) {
+        if (stmt instanceof VarDeclStmt) {
+            VarDeclStmt varDecl = (VarDeclStmt) stmt;
+            return WriteLocalNode.create(slot(varDecl.name, varDecl.slot), stored(varDecl.initializer, varDecl.type));
+        } else if (stmt instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) stmt;
+            return WriteLocalNode.create(slot(assign.name, assign.slot), stored(assign.value, assign.type));
+        } else if (stmt instanceof BlockStmt) {
+            return block(((BlockStmt) stmt).statements);
+        } else if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            StmtNode elseBranch = ifStmt.elseBranch != null ? build(ifStmt.elseBranch) : null;
+            return new IfNode(build(ifStmt.condition), build(ifStmt.thenBranch), elseBranch);
+        } else if (stmt instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            return new WhileNode(build(whileStmt.getCondition()), build(whileStmt.getBody()));
+        } else if (stmt instanceof ReturnStmt) {
+            return new ReturnNode(build(((ReturnStmt) stmt).value));
+        } else if (stmt instanceof BreakStmt) {
+            return new JumpNode(Completion.BREAK);
+        } else if (stmt instanceof ContinueStmt) {
+            return new JumpNode(Completion.CONTINUE);
+        } else if (stmt instanceof FunctionDeclStmt || stmt instanceof ExprStmt) {
+            throw new RuntimeException("Functions are not supported by the node engine.");
+        } else if (stmt instanceof IndexAssignStmt) {
+            throw new RuntimeException("Arrays are not supported by the node engine.");
+        } else if (stmt instanceof ParallelStmt) {
+            throw new RuntimeException("Parallel loops are not supported by the node engine.");
+        }
+        throw new RuntimeException("Unknown statement type: " + stmt);
+    }
+
+    // A variable that is a float holds integers it is assigned as floats
+    private ExprNode stored(Expr value, Type type) {
+        if (type == Type.NUMBER && value.type == Type.INTEGER) {
+            return new ToDoubleNode(build(value));
+        }
+        return build(value);
+    }
+
+    private ExprNode build(Expr expr) {
+        if (expr instanceof LiteralExpr) {
+            if (((LiteralExpr) expr).value instanceof LumaString) {
+                throw new RuntimeException("Strings are not supported by the node engine.");
+            }
+            return new LiteralNode(((LiteralExpr) expr).value);
+        } else if (expr instanceof IdentifierExpr) {
+            IdentifierExpr identifier = (IdentifierExpr) expr;
+            return ReadLocalNode.create(identifier.name, slot(identifier.name, identifier.slot));
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            return BinaryNode.create(binary.operator, build(binary.left), build(binary.right));
+        } else if (expr instanceof UnaryExpr) {
+            return new NegateNode(build(((UnaryExpr) expr).right));
+        } else if (expr instanceof CallExpr) {
+            throw new RuntimeException("Functions are not supported by the node engine.");
+        } else if (expr instanceof ArrayLiteralExpr || expr instanceof IndexExpr || expr instanceof LengthExpr) {
+            throw new RuntimeException("Arrays are not supported by the node engine.");
+        } else if (expr instanceof SpawnExpr || expr instanceof JoinExpr || expr instanceof ChannelExpr
+                || expr instanceof SendExpr || expr instanceof ReceiveExpr) {
+            throw new RuntimeException("Tasks and channels are not supported by the node engine.");
+        }
+        throw new RuntimeException("Unknown expression type: " + expr);
+    }
+
+    private int slot(String name, int slot) {
+        if (slot < 0) {
+            throw new SemanticError("Variable '" + name + "' was not resolved.");
+        }
+        frameSize = Math.max(frameSize, slot + 1);
+        return slot;
+    }
+}
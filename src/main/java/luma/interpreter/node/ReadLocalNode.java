@@ -0,0 +1,119 @@
+package luma.interpreter.node;
+
+// Caches where a variable was found on its first read: unboxed in Frame.doubles or Frame.longs, or boxed in
+// Frame.objects
+abstract class ReadLocalNode extends ExprNode {
+    final String name;
+    final int slot;
+
+    ReadLocalNode(String name, int slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    static ReadLocalNode create(String name, int slot) {
+        return new Uninitialized(name, slot);
+    }
+
+    static final class Uninitialized extends ReadLocalNode {
+        Uninitialized(String name, int slot) {
+            super(name, slot);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            ReadLocalNode specialized = switch (frame.tags[slot]) {
+                case Frame.DOUBLE -> new DoubleRead(name, slot);
+                case Frame.LONG -> new LongRead(name, slot);
+                case Frame.OBJECT -> new ObjectRead(name, slot);
+                default -> new GenericRead(name, slot);
+            };
+            return replace(specialized).execute(frame);
+        }
+    }
+
+    static final class DoubleRead extends ReadLocalNode {
+        DoubleRead(String name, int slot) {
+            super(name, slot);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            if (frame.tags[slot] == Frame.DOUBLE) {
+                return frame.doubles[slot];
+            }
+            return replace(new GenericRead(name, slot)).execute(frame);
+        }
+
+        @Override
+        double executeDouble(Frame frame) throws UnexpectedResultException {
+            if (frame.tags[slot] == Frame.DOUBLE) {
+                return frame.doubles[slot];
+            }
+            return replace(new GenericRead(name, slot)).executeDouble(frame);
+        }
+    }
+
+    static final class LongRead extends ReadLocalNode {
+        LongRead(String name, int slot) {
+            super(name, slot);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            if (frame.tags[slot] == Frame.LONG) {
+                return frame.longs[slot];
+            }
+            return replace(new GenericRead(name, slot)).execute(frame);
+        }
+
+        @Override
+        long executeLong(Frame frame) throws UnexpectedResultException {
+            if (frame.tags[slot] == Frame.LONG) {
+                return frame.longs[slot];
+            }
+            return replace(new GenericRead(name, slot)).executeLong(frame);
+        }
+    }
+
+    static final class ObjectRead extends ReadLocalNode {
+        ObjectRead(String name, int slot) {
+            super(name, slot);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            if (frame.tags[slot] == Frame.OBJECT) {
+                return frame.objects[slot];
+            }
+            return replace(new GenericRead(name, slot)).execute(frame);
+        }
+    }
+
+    static final class GenericRead extends ReadLocalNode {
+        GenericRead(String name, int slot) {
+            super(name, slot);
+        }
+
+        @Override
+        Object execute(Frame frame) {
+            return frame.get(name, slot);
+        }
+
+        @Override
+        double executeDouble(Frame frame) throws UnexpectedResultException {
+            if (frame.tags[slot] == Frame.DOUBLE) {
+                return frame.doubles[slot];
+            }
+            return expectDouble(frame.get(name, slot));
+        }
+
+        @Override
+        long executeLong(Frame frame) throws UnexpectedResultException {
+            if (frame.tags[slot] == Frame.LONG) {
+                return frame.longs[slot];
+            }
+            return expectLong(frame.get(name, slot));
+        }
+    }
+}
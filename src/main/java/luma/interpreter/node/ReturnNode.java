@@ -0,0 +1,26 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+
+final class ReturnNode extends StmtNode {
+    private ExprNode value;
+
+    ReturnNode(ExprNode value) {
+        this.value = adopt(value);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (value == oldChild) {
+            value = (ExprNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    @Override
+    int execute(Frame frame) {
+        frame.returnValue = value.execute(frame);
+        return Completion.RETURN;
+    }
+}
@@ -0,0 +1,20 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+
+// Entry point of a specialized node tree. The tree keeps its specializations across executions, so
+// running the same RootNode repeatedly starts from the types observed so far.
+public final class RootNode extends Node {
+    private final BlockNode body;
+    private final int frameSize;
+
+    RootNode(BlockNode body, int frameSize) {
+        this.body = adopt(body);
+        this.frameSize = frameSize;
+    }
+
+    public Object execute() {
+        Frame frame = new Frame(frameSize);
+        return body.execute(frame) == Completion.RETURN ? frame.returnValue : null;
+    }
+}
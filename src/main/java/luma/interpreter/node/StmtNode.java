@@ -0,0 +1,21 @@
+package luma.interpreter.node;
+
+abstract class StmtNode extends Node {
+
+    // Returns a luma.interpreter.Completion; a return leaves its value in the frame
+    abstract int execute(Frame frame);
+
+    static boolean executeCondition(ExprNode condition, Frame frame) {
+        try {
+            return condition.executeBoolean(frame);
+        } catch (UnexpectedResultException e) {
+            return isTruthy(e.getResult());
+        }
+    }
+
+    static boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean) return (boolean) object;
+        return true;
+    }
+}
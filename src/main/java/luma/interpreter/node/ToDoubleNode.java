@@ -0,0 +1,35 @@
+package luma.interpreter.node;
+
+import luma.runtime.Numbers;
+
+// Converts an integer, which may have grown beyond a long, to a float
+final class ToDoubleNode extends ExprNode {
+    private ExprNode operand;
+
+    ToDoubleNode(ExprNode operand) {
+        this.operand = adopt(operand);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (operand == oldChild) {
+            operand = (ExprNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    @Override
+    Object execute(Frame frame) {
+        return Numbers.toDouble(operand.execute(frame));
+    }
+
+    @Override
+    double executeDouble(Frame frame) {
+        try {
+            return operand.executeLong(frame);
+        } catch (UnexpectedResultException e) {
+            return Numbers.toDouble(e.getResult());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package luma.interpreter.node;
+
+// Thrown by a typed execute method when the value does not have the requested type. Carries the value so the
+// caller can continue on a generic path without evaluating the child again.
+class UnexpectedResultException extends Exception {
+    private final Object result;
+
+    UnexpectedResultException(Object result) {
+        super(null, null, false, false);
+        this.result = result;
+    }
+
+    Object getResult() {
+        return result;
+    }
+}
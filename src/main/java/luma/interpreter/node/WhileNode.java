@@ -0,0 +1,37 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+
+final class WhileNode extends StmtNode {
+    private ExprNode condition;
+    private StmtNode body;
+
+    WhileNode(ExprNode condition, StmtNode body) {
+        this.condition = adopt(condition);
+        this.body = adopt(body);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (condition == oldChild) {
+            condition = (ExprNode) newChild;
+        } else if (body == oldChild) {
+            body = (StmtNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    @Override
+    int execute(Frame frame) {
+        while (executeCondition(condition, frame)) {
+            int completion = body.execute(frame);
+            if (completion == Completion.BREAK) {
+                break;
+            } else if (completion == Completion.RETURN) {
+                return completion;
+            }
+        }
+        return Completion.NORMAL;
+    }
+}
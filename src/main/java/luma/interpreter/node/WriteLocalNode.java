@@ -0,0 +1,102 @@
+package luma.interpreter.node;
+
+import luma.interpreter.Completion;
+
+// Stores unboxed while the assigned value has only ever been a float, or only ever an integer that fits in a long
+abstract class WriteLocalNode extends StmtNode {
+    final int slot;
+    ExprNode value;
+
+    WriteLocalNode(int slot, ExprNode value) {
+        this.slot = slot;
+        this.value = adopt(value);
+    }
+
+    static WriteLocalNode create(int slot, ExprNode value) {
+        return new Uninitialized(slot, value);
+    }
+
+    @Override
+    void replaceChild(Node oldChild, Node newChild) {
+        if (value == oldChild) {
+            value = (ExprNode) newChild;
+        } else {
+            super.replaceChild(oldChild, newChild);
+        }
+    }
+
+    static final class Uninitialized extends WriteLocalNode {
+        Uninitialized(int slot, ExprNode value) {
+            super(slot, value);
+        }
+
+        @Override
+        int execute(Frame frame) {
+            Object result = value.execute(frame);
+            if (result instanceof Double) {
+                replace(new DoubleWrite(slot, value));
+                frame.setDouble(slot, (double) result);
+            } else if (result instanceof Long) {
+                replace(new LongWrite(slot, value));
+                frame.setLong(slot, (long) result);
+            } else {
+                replace(new ObjectWrite(slot, value));
+                frame.setObject(slot, result);
+            }
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class DoubleWrite extends WriteLocalNode {
+        DoubleWrite(int slot, ExprNode value) {
+            super(slot, value);
+        }
+
+        @Override
+        int execute(Frame frame) {
+            try {
+                frame.setDouble(slot, value.executeDouble(frame));
+            } catch (UnexpectedResultException e) {
+                replace(new ObjectWrite(slot, value));
+                frame.setObject(slot, e.getResult());
+            }
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class LongWrite extends WriteLocalNode {
+        LongWrite(int slot, ExprNode value) {
+            super(slot, value);
+        }
+
+        @Override
+        int execute(Frame frame) {
+            try {
+                frame.setLong(slot, value.executeLong(frame));
+            } catch (UnexpectedResultException e) {
+                replace(new ObjectWrite(slot, value));
+                frame.setObject(slot, e.getResult());
+            }
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class ObjectWrite extends WriteLocalNode {
+        ObjectWrite(int slot, ExprNode value) {
+            super(slot, value);
+        }
+
+        @Override
+        int execute(Frame frame) {
+            Object result = value.execute(frame);
+            if (result instanceof Double) {
+                frame.setDouble(slot, (double) result);
+            } else if (result instanceof Long) {
+                frame.setLong(slot, (long) result);
+            } else {
+                frame.setObject(slot, result);
+            }
+            return Completion.NORMAL;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package luma.lexer;
+
+import java.io.Reader;
+
+final class CharSequenceReader extends Reader {
+    private final CharSequence source;
+    private int position = 0;
+
+    CharSequenceReader(CharSequence source) {
+        this.source = source;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        if (position >= source.length()) {
+            return -1;
+        }
+        int count = Math.min(length, source.length() - position);
+        if (source instanceof String) {
+            ((String) source).getChars(position, position + count, buffer, offset);
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = source.charAt(position + i);
+            }
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
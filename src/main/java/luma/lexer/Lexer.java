@@ -1,43 +1,136 @@
 package luma.lexer;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-public class Lexer {
-    private final String source;
-    private final List<Token> tokens;
+// Pull-based lexer: tokens are produced one at a time from a sliding window over the input, so the source
+// never has to be held in memory as a whole.
+public class Lexer implements TokenSource {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final NameTable names;
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int limit = 0;
+    private boolean exhausted = false;
+    // Absolute source offset of buffer[0]
+    private int windowOffset = 0;
+    // Offsets into buffer; the window is shifted so that the current token always starts inside it
     private int start = 0;
     private int current = 0;
     private int line = 1;
     private int column = 1;
+    // Where the current token starts; strings can run over several lines
+    private int startLine = 1;
+    private int startColumn = 1;
+    private TokenType scanned;
 
-    private static final Map<String, TokenType> keywords;
+    public Lexer(String source) {
+        this((CharSequence) source);
+    }
 
-    static {
-        keywords = new HashMap<>();
-        keywords.put("function", TokenType.FUNCTION);
-        keywords.put("if", TokenType.IF);
-        keywords.put("else", TokenType.ELSE);
-        keywords.put("while", TokenType.WHILE);
-        keywords.put("return", TokenType.RETURN);
-        keywords.put("var", TokenType.VAR);
+    public Lexer(CharSequence source) {
+        this(new CharSequenceReader(source));
     }
 
-    public Lexer(String source) {
-        this.source = source;
-        this.tokens = new ArrayList<>();
+    public Lexer(CharSequence source, NameTable names) {
+        this(new CharSequenceReader(source), names);
+    }
+
+    public Lexer(Reader reader) {
+        this(reader, new NameTable());
+    }
+
+    // Identifiers are interned into names, which can be shared with other lexers of the same program
+    public Lexer(Reader reader, NameTable names) {
+        this.reader = reader;
+        this.names = names;
+    }
+
+    // Maps the file instead of reading it, so the OS pages the source in as the lexer advances
+    public static Lexer fromFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Lexer(new MappedFileReader(bytes));
+        }
+    }
+
+    // Lexes the whole source into parallel primitive arrays without creating a Token or String per lexeme
+    public static TokenBuffer tokenize(CharSequence source) {
+        return tokenize(source, new NameTable());
+    }
+
+    public static TokenBuffer tokenize(CharSequence source, NameTable names) {
+        return tokenize(source, names, 1, 1);
+    }
+
+    // Lexes source as if it started at the given line and column, for a part of a larger document
+    public static TokenBuffer tokenize(CharSequence source, NameTable names, int line, int column) {
+        Lexer lexer = new Lexer(source, names);
+        lexer.line = line;
+        lexer.column = column;
+        TokenBuffer tokens = new TokenBuffer(source, names);
+        TokenType type;
+        while ((type = lexer.scan()) != null) {
+            int length = lexer.current - lexer.start;
+            tokens.add(type, lexer.windowOffset + lexer.start, length, lexer.startLine, lexer.startColumn,
+                    lexer.internScanned(type));
+        }
+        tokens.add(TokenType.EOF, source.length(), 0, lexer.line, lexer.column, -1);
+        return tokens;
+    }
+
+    public NameTable getNames() {
+        return names;
     }
 
     public List<Token> scanTokens() {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.getType() != TokenType.EOF);
+        return tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+        TokenType type = scan();
+        if (type == null) {
+            return new Token(TokenType.EOF, "", line, column);
+        }
+        int id = internScanned(type);
+        String value = id >= 0 ? names.name(id) : new String(buffer, start, current - start);
+        return new Token(type, value, startLine, startColumn, id);
+    }
+
+    // Interns the token just scanned if it is an identifier; -1 otherwise
+    private int internScanned(TokenType type) {
+        return type == TokenType.IDENTIFIER ? names.intern(buffer, start, current - start) : -1;
+    }
+
+    // Advances over the next token and returns its type, leaving it at buffer[start, current); null at the end
+    private TokenType scan() {
         while (!isAtEnd()) {
             start = current;
+            startLine = line;
+            startColumn = column;
+            scanned = null;
             scanToken();
+            if (scanned != null) {
+                return scanned;
+            }
         }
-
-        tokens.add(new Token(TokenType.EOF, "", line, column));
-        return tokens;
+        return null;
     }
 
     private void scanToken() {
@@ -47,7 +140,10 @@ public class Lexer {
             case ')' -> addToken(TokenType.RPAREN);
             case '{' -> addToken(TokenType.LBRACE);
             case '}' -> addToken(TokenType.RBRACE);
+            case '[' -> addToken(TokenType.LBRACKET);
+            case ']' -> addToken(TokenType.RBRACKET);
             case ',' -> addToken(TokenType.COMMA);
+            case '.' -> addToken(TokenType.DOT);
             case ';' -> addToken(TokenType.SEMICOLON);
             case '+' -> addToken(TokenType.PLUS);
             case '-' -> addToken(TokenType.MINUS);
@@ -57,6 +153,7 @@ public class Lexer {
             case '!' -> addToken(match('=') ? TokenType.NOT_EQUALS : TokenType.ERROR);
             case '<' -> addToken(match('=') ? TokenType.LESS_THAN_EQUALS : TokenType.LESS_THAN);
             case '>' -> addToken(match('=') ? TokenType.GREATER_THAN_EQUALS : TokenType.GREATER_THAN);
+            case '"' -> string();
             case ' ', '\r', '\t' -> {
                 column++;
             }
@@ -79,9 +176,73 @@ public class Lexer {
     private void identifier() {
         while (isAlphaNumeric(peek())) advance();
 
-        String text = source.substring(start, current);
-        TokenType type = keywords.getOrDefault(text, TokenType.IDENTIFIER);
-        addToken(type);
+        addToken(keyword());
+    }
+
+    // Keyword recognition by length and then characters, without building a String for the lexeme
+    private TokenType keyword() {
+        switch (current - start) {
+            case 2 -> {
+                if (matchesRest("if")) return TokenType.IF;
+            }
+            case 3 -> {
+                if (matchesRest("var")) return TokenType.VAR;
+            }
+            case 4 -> {
+                if (matchesRest("else")) return TokenType.ELSE;
+                if (matchesRest("join")) return TokenType.JOIN;
+                if (matchesRest("send")) return TokenType.SEND;
+            }
+            case 5 -> {
+                if (matchesRest("while")) return TokenType.WHILE;
+                if (matchesRest("break")) return TokenType.BREAK;
+                if (matchesRest("spawn")) return TokenType.SPAWN;
+            }
+            case 6 -> {
+                if (matchesRest("return")) return TokenType.RETURN;
+                if (matchesRest("reduce")) return TokenType.REDUCE;
+            }
+            case 7 -> {
+                if (matchesRest("channel")) return TokenType.CHANNEL;
+                if (matchesRest("receive")) return TokenType.RECEIVE;
+            }
+            case 8 -> {
+                if (matchesRest("function")) return TokenType.FUNCTION;
+                if (matchesRest("continue")) return TokenType.CONTINUE;
+                if (matchesRest("parallel")) return TokenType.PARALLEL;
+            }
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    private boolean matchesRest(String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (buffer[start + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The token keeps its quotes and escapes; the parser decodes them. Strings may span lines.
+    private void string() {
+        while (peek() != '"' && !isAtEnd()) {
+            char c = advance();
+            if (c == '\\' && !isAtEnd()) {
+                c = advance();
+            }
+            if (c == '\n') {
+                line++;
+                column = 1;
+            }
+        }
+        if (isAtEnd()) {
+            // Unterminated
+            addToken(TokenType.ERROR);
+            return;
+        }
+        advance(); // The closing quote
+        addToken(TokenType.STRING);
     }
 
     private void number() {
@@ -99,11 +260,11 @@ public class Lexer {
     private char advance() {
         current++;
         column++;
-        return source.charAt(current - 1);
+        return buffer[current - 1];
     }
 
     private boolean match(char expected) {
-        if (isAtEnd() || source.charAt(current) != expected) {
+        if (isAtEnd() || buffer[current] != expected) {
             return false;
         }
         current++;
@@ -112,11 +273,11 @@ public class Lexer {
     }
 
     private char peek() {
-        return isAtEnd() ? '\0' : source.charAt(current);
+        return isAtEnd() ? '\0' : buffer[current];
     }
 
     private char peekNext() {
-        return current + 1 >= source.length() ? '\0' : source.charAt(current + 1);
+        return available(2) ? buffer[current + 1] : '\0';
     }
 
     private boolean isDigit(char c) {
@@ -134,11 +295,47 @@ public class Lexer {
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return !available(1);
+    }
+
+    private boolean available(int count) {
+        while (limit - current < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reads more input into the window, dropping everything before the current token
+    private boolean fill() {
+        if (exhausted) {
+            return false;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            windowOffset += start;
+            limit -= start;
+            current -= start;
+            start = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                exhausted = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private void addToken(TokenType type) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, line, column - (current - start)));
+        scanned = type;
     }
 }
\ No newline at end of file
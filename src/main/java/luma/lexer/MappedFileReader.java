@@ -0,0 +1,42 @@
+package luma.lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+// Decodes UTF-8 straight out of a memory-mapped file, so only the lexer's window is ever held as chars
+final class MappedFileReader extends Reader {
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private boolean flushed = false;
+
+    MappedFileReader(ByteBuffer bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (flushed) {
+            return -1;
+        }
+        CharBuffer out = CharBuffer.wrap(buffer, offset, length);
+        // The whole input is mapped, so every decode call may treat the remaining bytes as final
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+        if (!bytes.hasRemaining() && decoder.flush(out).isUnderflow()) {
+            flushed = true;
+        }
+        int count = out.position() - offset;
+        return count == 0 && flushed ? -1 : count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
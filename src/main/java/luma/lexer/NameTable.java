@@ -0,0 +1,90 @@
+package luma.lexer;
+
+import java.util.Arrays;
+
+// Interns identifiers to dense ids: the n-th distinct name gets id n, so later stages can key arrays on names.
+// Lookups hash the characters where they lie, so a name seen before costs no String. One table is shared by
+// everything lexed for the same program; it is not thread-safe.
+public final class NameTable {
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    // Open addressing with linear probing; each entry is an id plus one, 0 when empty
+    private int[] entries = new int[128];
+    private int size = 0;
+
+    public int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    public int intern(char[] chars, int start, int length) {
+        int hash = hash(chars, start, length);
+        int mask = entries.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = entries[i];
+            if (entry == 0) {
+                return add(new String(chars, start, length), hash, i);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(names[id], chars, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(String name, int hash, int entry) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        entries[entry] = id + 1;
+        // Kept at most half full, so probe sequences stay short
+        if (size * 2 > entries.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        entries = new int[entries.length * 2];
+        int mask = entries.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (entries[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            entries[i] = id + 1;
+        }
+    }
+
+    // String.hashCode, with the high bits folded into the low ones the mask keeps
+    private static int hash(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, char[] chars, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -5,12 +5,19 @@ public class Token {
     private final String value;
     private final int line;
     private final int column;
+    // Id of an identifier in the lexer's NameTable, -1 for other tokens
+    private final int id;
 
     public Token(TokenType type, String value, int line, int column) {
+        this(type, value, line, column, -1);
+    }
+
+    public Token(TokenType type, String value, int line, int column, int id) {
         this.type = type;
         this.value = value;
         this.line = line;
         this.column = column;
+        this.id = id;
     }
 
     public TokenType getType() {
@@ -29,6 +36,10 @@ public class Token {
         return column;
     }
 
+    public int getId() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return String.format("Token{type=%s, value='%s', position=%d:%d}",
@@ -0,0 +1,100 @@
+package luma.lexer;
+
+import java.util.Arrays;
+
+// Tokens packed into parallel primitive arrays. Lexemes are not stored; they are cut from the source on
+// demand, so a whole file lexes into a handful of arrays instead of a Token and a String per lexeme.
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence source;
+    private final NameTable names;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    // NameTable ids of identifiers, -1 for other tokens
+    private int[] ids;
+    private int size = 0;
+
+    TokenBuffer(CharSequence source, NameTable names) {
+        this.source = source;
+        this.names = names;
+        // Typical Luma code averages a token every few characters; sizing up front avoids most regrowth
+        int capacity = Math.max(256, source.length() / 4);
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        ids = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int length, int line, int column, int id) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        ids[size] = id;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int column(int index) {
+        return columns[index];
+    }
+
+    public int id(int index) {
+        return ids[index];
+    }
+
+    // Identifiers come from the name table rather than being cut from the source again
+    public String lexeme(int index) {
+        if (ids[index] >= 0) {
+            return names.name(ids[index]);
+        }
+        return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), lexeme(index), lines[index], columns[index], ids[index]);
+    }
+
+    public NameTable getNames() {
+        return names;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,6 @@
+package luma.lexer;
+
+public interface TokenSource {
+    // Returns the next token; once the input is exhausted every call returns an EOF token
+    Token nextToken();
+}
@@ -8,6 +8,15 @@ public enum TokenType {
     WHILE("while"),
     RETURN("return"),
     VAR("var"),
+    BREAK("break"),
+    CONTINUE("continue"),
+    PARALLEL("parallel"),
+    REDUCE("reduce"),
+    SPAWN("spawn"),
+    JOIN("join"),
+    CHANNEL("channel"),
+    SEND("send"),
+    RECEIVE("receive"),
 
     // Operators
     PLUS("+"),
@@ -27,8 +36,11 @@ public enum TokenType {
     RPAREN(")"),
     LBRACE("{"),
     RBRACE("}"),
+    LBRACKET("["),
+    RBRACKET("]"),
     SEMICOLON(";"),
     COMMA(","),
+    DOT("."),
 
     // Literals
     IDENTIFIER,
@@ -0,0 +1,24 @@
+package luma.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("luma.CompilerPhase")
+@Label("Compiler Phase")
+@Category("Luma")
+@Description("One front-end phase: lex, parse, analyze or optimize")
+public class CompilerPhaseEvent extends Event {
+    @Label("Script")
+    public String script;
+
+    @Label("Phase")
+    public String phase;
+
+    // Whether a recording wants these events; lets callers skip work done only for the sake of timing
+    public static boolean isRecording() {
+        return new CompilerPhaseEvent().isEnabled();
+    }
+}
@@ -0,0 +1,103 @@
+package luma.metrics;
+
+import luma.parser.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Counters collected by an instrumented Interpreter. Engines only touch this when they were given an instance,
+// so leaving instrumentation off costs a null check per hook. Not thread-safe: use one instance per execution.
+public class ExecutionMetrics {
+    public enum StatementKind {
+        VAR, ASSIGN, INDEX_ASSIGN, BLOCK, IF, WHILE, PARALLEL, RETURN, BREAK, CONTINUE, CALL, FUNCTION
+    }
+
+    private final long[] statements = new long[StatementKind.values().length];
+    // Counters are one-element arrays so that counting does not box
+    private final Map<String, long[]> binaryOperations = new HashMap<>();
+    private final Map<Integer, long[]> loopIterations = new TreeMap<>();
+    private long blockEntries = 0;
+
+    public void statementExecuted(Stmt stmt) {
+        statements[kind(stmt).ordinal()]++;
+    }
+
+    public void binaryEvaluated(String operator) {
+        binaryOperations.computeIfAbsent(operator, key -> new long[1])[0]++;
+    }
+
+    public void loopFinished(int line, long iterations) {
+        loopIterations.computeIfAbsent(line, key -> new long[1])[0] += iterations;
+    }
+
+    public void blockEntered() {
+        blockEntries++;
+    }
+
+    public long getStatements(StatementKind kind) {
+        return statements[kind.ordinal()];
+    }
+
+    public long getBinaryOperations(String operator) {
+        long[] count = binaryOperations.get(operator);
+        return count == null ? 0 : count[0];
+    }
+
+    // Iterations of all while loops starting on the given line
+    public long getLoopIterations(int line) {
+        long[] count = loopIterations.get(line);
+        return count == null ? 0 : count[0];
+    }
+
+    public long getBlockEntries() {
+        return blockEntries;
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder("Statements executed:\n");
+        for (StatementKind kind : StatementKind.values()) {
+            if (statements[kind.ordinal()] > 0) {
+                report.append("  ").append(kind.name().toLowerCase()).append(": ")
+                        .append(statements[kind.ordinal()]).append('\n');
+            }
+        }
+        report.append("Binary operations:\n");
+        new TreeMap<>(binaryOperations).forEach((operator, count) ->
+                report.append("  ").append(operator).append(": ").append(count[0]).append('\n'));
+        report.append("Loop iterations:\n");
+        loopIterations.forEach((line, count) ->
+                report.append("  line ").append(line).append(": ").append(count[0]).append('\n'));
+        report.append("Block entries: ").append(blockEntries).append('\n');
+        return report.toString();
+    }
+
+    private StatementKind kind(Stmt stmt) {
+        if (stmt instanceof VarDeclStmt) {
+            return StatementKind.VAR;
+        } else if (stmt instanceof AssignStmt) {
+            return StatementKind.ASSIGN;
+        } else if (stmt instanceof IndexAssignStmt) {
+            return StatementKind.INDEX_ASSIGN;
+        } else if (stmt instanceof BlockStmt) {
+            return StatementKind.BLOCK;
+        } else if (stmt instanceof IfStmt) {
+            return StatementKind.IF;
+        } else if (stmt instanceof WhileStmt) {
+            return StatementKind.WHILE;
+        } else if (stmt instanceof ParallelStmt) {
+            return StatementKind.PARALLEL;
+        } else if (stmt instanceof ReturnStmt) {
+            return StatementKind.RETURN;
+        } else if (stmt instanceof BreakStmt) {
+            return StatementKind.BREAK;
+        } else if (stmt instanceof ContinueStmt) {
+            return StatementKind.CONTINUE;
+        } else if (stmt instanceof ExprStmt) {
+            return StatementKind.CALL;
+        } else if (stmt instanceof FunctionDeclStmt) {
+            return StatementKind.FUNCTION;
+        }
+        throw new RuntimeException("Unknown statement type: " + stmt);
+    }
+}
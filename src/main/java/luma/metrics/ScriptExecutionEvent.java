@@ -0,0 +1,24 @@
+package luma.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Spans one script run; its start and end time are those of the execution
+@Name("luma.ScriptExecution")
+@Label("Script Execution")
+@Category("Luma")
+@Description("Execution of one Luma script")
+public class ScriptExecutionEvent extends Event {
+    @Label("Script")
+    public String script;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Error")
+    @Description("Message of the error that ended the script, if any")
+    public String error;
+}
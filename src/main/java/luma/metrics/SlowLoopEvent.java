@@ -0,0 +1,22 @@
+package luma.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// Only committed for loops that run longer than the threshold, which recordings can override
+@Name("luma.SlowLoop")
+@Label("Slow Loop")
+@Category("Luma")
+@Description("A while loop that ran for longer than the threshold")
+@Threshold("20 ms")
+public class SlowLoopEvent extends Event {
+    @Label("Line")
+    public int line;
+
+    @Label("Iterations")
+    public long iterations;
+}
@@ -0,0 +1,239 @@
+package luma.optimizer;
+
+import luma.lexer.Token;
+import luma.parser.*;
+import luma.runtime.LumaString;
+import luma.runtime.Numbers;
+import luma.semantic.SemanticAnalyzer;
+import luma.semantic.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Runs on analyzed statements: relies on the types and slots SemanticAnalyzer recorded
+public class Optimizer {
+
+    public List<Stmt> optimize(List<Stmt> statements) {
+        List<Stmt> optimized = new ArrayList<>();
+        for (Stmt stmt : statements) {
+            Stmt result = optimize(stmt);
+            if (result != null) {
+                optimized.add(result);
+            }
+        }
+        return optimized;
+    }
+
+    // Returns null when the statement can be dropped entirely
+    private Stmt optimize(Stmt stmt) {
+        if (stmt instanceof VarDeclStmt) {
+            VarDeclStmt varDecl = (VarDeclStmt) stmt;
+            varDecl.initializer = fold(varDecl.initializer);
+            return varDecl;
+        } else if (stmt instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) stmt;
+            assign.value = fold(assign.value);
+            return assign;
+        } else if (stmt instanceof IndexAssignStmt) {
+            IndexAssignStmt assign = (IndexAssignStmt) stmt;
+            assign.index = fold(assign.index);
+            assign.value = fold(assign.value);
+            return assign;
+        } else if (stmt instanceof ReturnStmt) {
+            ReturnStmt returnStmt = (ReturnStmt) stmt;
+            returnStmt.value = fold(returnStmt.value);
+            return returnStmt;
+        } else if (stmt instanceof BlockStmt) {
+            BlockStmt block = (BlockStmt) stmt;
+            block.statements = optimize(block.statements);
+            return block;
+        } else if (stmt instanceof IfStmt) {
+            return optimizeIf((IfStmt) stmt);
+        } else if (stmt instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) stmt;
+            Expr condition = fold(whileStmt.getCondition());
+            if (condition instanceof LiteralExpr && !isTruthy(((LiteralExpr) condition).value)) {
+                return null;
+            }
+            return new WhileStmt(whileStmt.getKeyword(), condition, orEmpty(optimize(whileStmt.getBody())));
+        } else if (stmt instanceof ParallelStmt) {
+            ParallelStmt parallel = (ParallelStmt) stmt;
+            parallel.start = fold(parallel.start);
+            parallel.end = fold(parallel.end);
+            parallel.body = orEmpty(optimize(parallel.body));
+            return parallel;
+        } else if (stmt instanceof FunctionDeclStmt) {
+            FunctionDeclStmt function = (FunctionDeclStmt) stmt;
+            function.body = optimize(function.body);
+            return function;
+        } else if (stmt instanceof ExprStmt) {
+            ExprStmt exprStmt = (ExprStmt) stmt;
+            exprStmt.expression = fold(exprStmt.expression);
+            return exprStmt;
+        }
+        return stmt;
+    }
+
+    private Stmt optimizeIf(IfStmt stmt) {
+        Expr condition = fold(stmt.condition);
+        if (condition instanceof LiteralExpr) {
+            // A branch that is not a block declares into the enclosing scope, so it can replace the if as-is
+            if (isTruthy(((LiteralExpr) condition).value)) {
+                return optimize(stmt.thenBranch);
+            }
+            return stmt.elseBranch != null ? optimize(stmt.elseBranch) : null;
+        }
+        stmt.condition = condition;
+        stmt.thenBranch = orEmpty(optimize(stmt.thenBranch));
+        if (stmt.elseBranch != null) {
+            stmt.elseBranch = optimize(stmt.elseBranch);
+        }
+        return stmt;
+    }
+
+    private Stmt orEmpty(Stmt stmt) {
+        return stmt != null ? stmt : new BlockStmt(new ArrayList<>());
+    }
+
+    private Expr fold(Expr expr) {
+        if (expr instanceof UnaryExpr) {
+            UnaryExpr unary = (UnaryExpr) expr;
+            unary.right = fold(unary.right);
+            if (unary.right instanceof LiteralExpr && Numbers.isNumber(((LiteralExpr) unary.right).value)) {
+                return literal(unary.getToken(), Numbers.negate(((LiteralExpr) unary.right).value));
+            }
+            return unary;
+        } else if (expr instanceof BinaryExpr) {
+            return foldBinary((BinaryExpr) expr);
+        } else if (expr instanceof CallExpr) {
+            List<Expr> arguments = ((CallExpr) expr).arguments;
+            arguments.replaceAll(this::fold);
+            return expr;
+        } else if (expr instanceof ArrayLiteralExpr) {
+            ((ArrayLiteralExpr) expr).elements.replaceAll(this::fold);
+            return expr;
+        } else if (expr instanceof IndexExpr) {
+            IndexExpr index = (IndexExpr) expr;
+            index.array = fold(index.array);
+            index.index = fold(index.index);
+            return expr;
+        } else if (expr instanceof LengthExpr) {
+            LengthExpr length = (LengthExpr) expr;
+            length.array = fold(length.array);
+            return expr;
+        } else if (expr instanceof SpawnExpr) {
+            fold(((SpawnExpr) expr).call);
+            return expr;
+        } else if (expr instanceof JoinExpr) {
+            JoinExpr join = (JoinExpr) expr;
+            join.task = fold(join.task);
+            return expr;
+        } else if (expr instanceof ChannelExpr) {
+            ChannelExpr channel = (ChannelExpr) expr;
+            channel.capacity = fold(channel.capacity);
+            return expr;
+        } else if (expr instanceof SendExpr) {
+            SendExpr send = (SendExpr) expr;
+            send.channel = fold(send.channel);
+            send.value = fold(send.value);
+            return expr;
+        } else if (expr instanceof ReceiveExpr) {
+            ReceiveExpr receive = (ReceiveExpr) expr;
+            receive.channel = fold(receive.channel);
+            return expr;
+        }
+        return expr;
+    }
+
+    private Expr foldBinary(BinaryExpr expr) {
+        expr.left = fold(expr.left);
+        expr.right = fold(expr.right);
+        Object left = expr.left instanceof LiteralExpr ? ((LiteralExpr) expr.left).value : null;
+        Object right = expr.right instanceof LiteralExpr ? ((LiteralExpr) expr.right).value : null;
+
+        if (left != null && right != null) {
+            Object value = evaluateConstant(expr.operator, left, right);
+            if (value != null) {
+                return literal(expr.getToken(), value);
+            }
+            return expr;
+        }
+
+        // Algebraic identities, which only hold when the remaining operand is a number of the result's kind:
+        // x / 1 is a float even when x is an integer
+        switch (expr.operator) {
+            case "+" -> {
+                if (isZero(right, expr.left, true) && canReplace(expr, expr.left)) return expr.left;
+                if (isZero(left, expr.right, true) && canReplace(expr, expr.right)) return expr.right;
+            }
+            case "-" -> {
+                if (isZero(right, expr.left, false) && canReplace(expr, expr.left)) return expr.left;
+            }
+            case "*" -> {
+                if (isNumber(right, 1) && canReplace(expr, expr.left)) return expr.left;
+                if (isNumber(left, 1) && canReplace(expr, expr.right)) return expr.right;
+            }
+            case "/" -> {
+                if (isNumber(right, 1) && canReplace(expr, expr.left)) return expr.left;
+            }
+        }
+        return expr;
+    }
+
+    private boolean canReplace(Expr expr, Expr operand) {
+        return operand.type.isNumeric() && operand.type == expr.type;
+    }
+
+    // Returns null for expressions that must be left to fail at runtime, such as division by zero
+    private Object evaluateConstant(String operator, Object left, Object right) {
+        switch (operator) {
+            case "==" -> {
+                return Numbers.equal(left, right);
+            }
+            case "!=" -> {
+                return !Numbers.equal(left, right);
+            }
+            case "+" -> {
+                if (left instanceof LumaString || right instanceof LumaString) {
+                    return LumaString.of(LumaString.concat(left, right).toString());
+                }
+            }
+        }
+        if (!Numbers.isNumber(left) || !Numbers.isNumber(right)) {
+            return null;
+        }
+        return switch (operator) {
+            case "+" -> Numbers.add(left, right);
+            case "-" -> Numbers.subtract(left, right);
+            case "*" -> Numbers.multiply(left, right);
+            case "/" -> Numbers.toDouble(right) == 0 ? null : Numbers.divide(left, right);
+            case ">", "<", ">=", "<=" -> Numbers.compare(operator, left, right);
+            default -> null;
+        };
+    }
+
+    private LiteralExpr literal(Token token, Object value) {
+        LiteralExpr literal = new LiteralExpr(token, value);
+        literal.type = SemanticAnalyzer.literalType(value);
+        return literal;
+    }
+
+    private boolean isNumber(Object value, double expected) {
+        return Numbers.isNumber(value) && Numbers.toDouble(value) == expected;
+    }
+
+    // Whether adding or subtracting value leaves operand unchanged. For floats that takes a zero of the right sign:
+    // -0.0 + 0.0 is 0.0, while x + -0.0 and x - 0.0 are x for every x.
+    private boolean isZero(Object value, Expr operand, boolean negative) {
+        if (!isNumber(value, 0)) {
+            return false;
+        }
+        return operand.type == Type.INTEGER || Math.copySign(1.0, Numbers.toDouble(value)) < 0 == negative;
+    }
+
+    private boolean isTruthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (boolean) value;
+        return true;
+    }
+}
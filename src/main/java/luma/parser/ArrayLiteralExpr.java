@@ -0,0 +1,15 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+import java.util.List;
+
+// `[1, 2, 3]`: a new array of numbers
+public class ArrayLiteralExpr extends Expr {
+    public List<Expr> elements;
+
+    public ArrayLiteralExpr(Token token, List<Expr> elements) {
+        super(token);
+        this.elements = elements;
+    }
+}
@@ -0,0 +1,19 @@
+package luma.parser;
+
+import luma.semantic.Type;
+
+public class AssignStmt extends Stmt {
+    public String name;
+    public int id;
+    public Expr value;
+    public int depth = -1;
+    public int slot = -1;
+    // Static type of the assigned variable. A value of type any is checked against it when it is stored.
+    public Type type = Type.ANY;
+
+    public AssignStmt(String name, int id, Expr value) {
+        this.name = name;
+        this.id = id;
+        this.value = value;
+    }
+}
@@ -0,0 +1,12 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+public class BreakStmt extends Stmt {
+    // Kept for error messages
+    public Token keyword;
+
+    public BreakStmt(Token keyword) {
+        this.keyword = keyword;
+    }
+}
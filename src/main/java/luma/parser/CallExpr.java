@@ -0,0 +1,20 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+import java.util.List;
+
+public class CallExpr extends Expr {
+    public String callee;
+    public int calleeId;
+    public List<Expr> arguments;
+    // Resolved by SemanticAnalyzer; calls are bound to their declaration statically
+    public FunctionDeclStmt function;
+
+    public CallExpr(Token token, String callee, int calleeId, List<Expr> arguments) {
+        super(token);
+        this.callee = callee;
+        this.calleeId = calleeId;
+        this.arguments = arguments;
+    }
+}
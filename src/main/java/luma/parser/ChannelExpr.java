@@ -0,0 +1,13 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+// `channel(capacity)`: a new channel holding up to capacity values
+public class ChannelExpr extends Expr {
+    public Expr capacity;
+
+    public ChannelExpr(Token token, Expr capacity) {
+        super(token);
+        this.capacity = capacity;
+    }
+}
@@ -0,0 +1,12 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+public class ContinueStmt extends Stmt {
+    // Kept for error messages
+    public Token keyword;
+
+    public ContinueStmt(Token keyword) {
+        this.keyword = keyword;
+    }
+}
@@ -1,11 +1,18 @@
 package luma.parser;
 
 import luma.lexer.Token;
+import luma.semantic.Type;
 
 public abstract class Expr {
     Token token;
+    // Static type inferred by SemanticAnalyzer
+    public Type type = Type.ANY;
 
     public Expr(Token token) {
         this.token = token;
     }
+
+    public Token getToken() {
+        return token;
+    }
 }
@@ -0,0 +1,10 @@
+package luma.parser;
+
+// An expression evaluated for its effect; the parser only produces these for calls
+public class ExprStmt extends Stmt {
+    public Expr expression;
+
+    public ExprStmt(Expr expression) {
+        this.expression = expression;
+    }
+}
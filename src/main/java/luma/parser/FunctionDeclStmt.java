@@ -0,0 +1,28 @@
+package luma.parser;
+
+import java.util.List;
+
+public class FunctionDeclStmt extends Stmt {
+    public String name;
+    public int id;
+    public List<String> parameters;
+    // Interned ids of the parameters, in the same order
+    public int[] parameterIds;
+    public List<Stmt> body;
+    // Set by SemanticAnalyzer: the global slot of the name, the number of slots a call frame needs, and whether
+    // every path through the body ends in a return
+    public int slot = -1;
+    public int frameSize = 0;
+    public boolean returnsValue = false;
+    // Set by SemanticAnalyzer when the body, or a function it calls, assigns a global or an array element or uses
+    // tasks or channels, which parallel loops cannot allow
+    public boolean writesShared = false;
+
+    public FunctionDeclStmt(String name, int id, List<String> parameters, int[] parameterIds, List<Stmt> body) {
+        this.name = name;
+        this.id = id;
+        this.parameters = parameters;
+        this.parameterIds = parameterIds;
+        this.body = body;
+    }
+}
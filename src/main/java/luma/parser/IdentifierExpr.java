@@ -4,9 +4,15 @@ import luma.lexer.Token;
 
 public class IdentifierExpr extends Expr {
     public String name;
+    // Interned by the lexer; SymbolTable is keyed on it
+    public int id;
+    // Resolved by SemanticAnalyzer: frames outward from the current one, and the slot within that frame
+    public int depth = -1;
+    public int slot = -1;
 
-    public IdentifierExpr(Token token, String name) {
+    public IdentifierExpr(Token token, String name, int id) {
         super(token);
         this.name = name;
+        this.id = id;
     }
 }
@@ -0,0 +1,14 @@
+package luma.parser;
+
+// `name[index] = value;` stores into the array held by a variable
+public class IndexAssignStmt extends Stmt {
+    public IdentifierExpr array;
+    public Expr index;
+    public Expr value;
+
+    public IndexAssignStmt(IdentifierExpr array, Expr index, Expr value) {
+        this.array = array;
+        this.index = index;
+        this.value = value;
+    }
+}
@@ -0,0 +1,14 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+public class IndexExpr extends Expr {
+    public Expr array;
+    public Expr index;
+
+    public IndexExpr(Token token, Expr array, Expr index) {
+        super(token);
+        this.array = array;
+        this.index = index;
+    }
+}
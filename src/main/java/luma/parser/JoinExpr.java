@@ -0,0 +1,15 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+// `join(task)`: waits for the task and evaluates to what its function returned
+public class JoinExpr extends Expr {
+    public Expr task;
+    // Set by SemanticAnalyzer when the result is used, which requires the function to have returned one
+    public boolean valueUsed = false;
+
+    public JoinExpr(Token token, Expr task) {
+        super(token);
+        this.task = task;
+    }
+}
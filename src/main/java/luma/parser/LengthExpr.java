@@ -0,0 +1,13 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+// `array.length`
+public class LengthExpr extends Expr {
+    public Expr array;
+
+    public LengthExpr(Token token, Expr array) {
+        super(token);
+        this.array = array;
+    }
+}
@@ -3,9 +3,11 @@ package luma.parser;
 import luma.lexer.Token;
 
 public class LiteralExpr extends Expr {
-    public String value;
+    // Decoded once by the parser: a Long, or a BigInteger past the long range, for integers, a Double for floats,
+    // a LumaString for strings, a Boolean for folded comparisons
+    public Object value;
 
-    public LiteralExpr(Token token, String value) {
+    public LiteralExpr(Token token, Object value) {
         super(token);
         this.value = value;
     }
@@ -0,0 +1,43 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+import java.util.List;
+
+// `parallel (i = start, end) reduce (sum total, max best) body` runs body once for every integer i from start up
+// to but excluding end, in any order and possibly at the same time. Each iteration has its own scope, and the
+// reduction variables are the only outer variables it may assign: each task works on a private copy, and the
+// copies are combined into the variable when the loop ends.
+public class ParallelStmt extends Stmt {
+    // Kept for error messages
+    public Token keyword;
+    public String variable;
+    public int variableId;
+    public Expr start;
+    public Expr end;
+    // "sum", "min" or "max" for each reduction variable, in the same order
+    public List<String> reductionOperators;
+    public List<IdentifierExpr> reductions;
+    public Stmt body;
+    // Set by SemanticAnalyzer: the slot of the loop variable, and two more that sequential engines can use for the
+    // counter and the end of the range. All three are in the loop's frame.
+    public int slot = -1;
+    public int counterSlot = -1;
+    public int endSlot = -1;
+
+    public ParallelStmt(Token keyword, String variable, int variableId, Expr start, Expr end,
+                        List<String> reductionOperators, List<IdentifierExpr> reductions, Stmt body) {
+        this.keyword = keyword;
+        this.variable = variable;
+        this.variableId = variableId;
+        this.start = start;
+        this.end = end;
+        this.reductionOperators = reductionOperators;
+        this.reductions = reductions;
+        this.body = body;
+    }
+
+    public int getLine() {
+        return keyword.getLine();
+    }
+}
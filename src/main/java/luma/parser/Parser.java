@@ -1,27 +1,58 @@
 package luma.parser;
 
 import luma.lexer.Token;
+import luma.lexer.TokenBuffer;
+import luma.lexer.TokenSource;
 import luma.lexer.TokenType;
+import luma.runtime.LumaString;
+import luma.runtime.Numbers;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
+// Uses a single token of lookahead, so it can run directly on a streaming Lexer or on a packed TokenBuffer.
+// Token objects are only materialized for tokens that end up in the AST or in an error message.
 public class Parser {
-    private final List<Token> tokens;
-    private int current = 0;
+    private final TokenCursor tokens;
+    // Every literal with the same contents becomes the same value, so comparing them is a reference check
+    private final Map<String, LumaString> strings = new HashMap<>();
 
     public Parser(List<Token> tokens) {
-        this.tokens = tokens;
+        this(listSource(tokens));
+    }
+
+    public Parser(TokenSource source) {
+        this.tokens = new StreamCursor(source);
+    }
+
+    public Parser(TokenBuffer buffer) {
+        this.tokens = new BufferCursor(buffer);
     }
 
     public List<Stmt> parse() {
         List<Stmt> statements = new ArrayList<>();
-        while (!isAtEnd()) {
-            statements.add(statement());
+        Stmt stmt;
+        while ((stmt = parseNext()) != null) {
+            statements.add(stmt);
         }
         return statements;
     }
 
+    // Parses the next top-level statement, or returns null at the end of the input
+    public Stmt parseNext() {
+        return isAtEnd() ? null : statement();
+    }
+
+    // Number of tokens consumed so far
+    public int getPosition() {
+        return tokens.position();
+    }
+
     private Stmt statement() {
         if (match(TokenType.VAR)) {
             return varDeclaration();
@@ -35,6 +66,26 @@ public class Parser {
             return block();
         } else if (match(TokenType.WHILE)) {
             return whileStatement();
+        } else if (match(TokenType.PARALLEL)) {
+            return parallelStatement();
+        } else if (match(TokenType.BREAK)) {
+            Token keyword = previous();
+            consume(TokenType.SEMICOLON, "Expect ';' after 'break'.");
+            return new BreakStmt(keyword);
+        } else if (match(TokenType.CONTINUE)) {
+            Token keyword = previous();
+            consume(TokenType.SEMICOLON, "Expect ';' after 'continue'.");
+            return new ContinueStmt(keyword);
+        } else if (check(TokenType.SPAWN) || check(TokenType.JOIN) || check(TokenType.SEND)
+                || check(TokenType.RECEIVE)) {
+            Expr expression = primary();
+            consume(TokenType.SEMICOLON, "Expect ';' after expression.");
+            return new ExprStmt(expression);
+        } else if (match(TokenType.IDENTIFIER)) {
+            if (check(TokenType.LPAREN)) {
+                return callStatement();
+            }
+            return check(TokenType.LBRACKET) ? indexAssignment() : assignment();
         }
         throw new RuntimeException("Unexpected token: " + peek().getValue());
     }
@@ -51,17 +102,55 @@ public class Parser {
     }
 
     private Stmt varDeclaration() {
-        Token name = consume(TokenType.IDENTIFIER, "Expect variable name.");
+        consume(TokenType.IDENTIFIER, "Expect variable name.");
+        Token name = previous();
         consume(TokenType.ASSIGN, "Expect '=' after variable name.");
         Expr initializer = expression();
         consume(TokenType.SEMICOLON, "Expect ';' after variable declaration.");
-        return new VarDeclStmt(name.getValue(), initializer);
+        return new VarDeclStmt(name.getValue(), name.getId(), initializer);
+    }
+
+    private Stmt assignment() {
+        Token name = previous();
+        consume(TokenType.ASSIGN, "Expect '=' after variable name.");
+        Expr value = expression();
+        consume(TokenType.SEMICOLON, "Expect ';' after assignment.");
+        return new AssignStmt(name.getValue(), name.getId(), value);
+    }
+
+    private Stmt indexAssignment() {
+        Token name = previous();
+        consume(TokenType.LBRACKET, "Expect '[' after array name.");
+        Expr index = expression();
+        consume(TokenType.RBRACKET, "Expect ']' after index.");
+        consume(TokenType.ASSIGN, "Expect '=' after index.");
+        Expr value = expression();
+        consume(TokenType.SEMICOLON, "Expect ';' after assignment.");
+        return new IndexAssignStmt(new IdentifierExpr(name, name.getValue(), name.getId()), index, value);
+    }
+
+    private Stmt callStatement() {
+        Expr call = call(previous());
+        consume(TokenType.SEMICOLON, "Expect ';' after call.");
+        return new ExprStmt(call);
     }
 
     private Stmt functionDeclaration() {
-        Token name = consume(TokenType.IDENTIFIER, "Expect function name.");
+        consume(TokenType.IDENTIFIER, "Expect function name.");
+        Token name = previous();
         consume(TokenType.LPAREN, "Expect '(' after function name.");
-        // Function parameter parsing can be added here
+        List<String> parameters = new ArrayList<>();
+        int[] parameterIds = new int[4];
+        if (!check(TokenType.RPAREN)) {
+            do {
+                consume(TokenType.IDENTIFIER, "Expect parameter name.");
+                if (parameters.size() == parameterIds.length) {
+                    parameterIds = Arrays.copyOf(parameterIds, parameterIds.length * 2);
+                }
+                parameterIds[parameters.size()] = previous().getId();
+                parameters.add(previous().getValue());
+            } while (match(TokenType.COMMA));
+        }
         consume(TokenType.RPAREN, "Expect ')' after function parameters.");
         consume(TokenType.LBRACE, "Expect '{' before function body.");
         List<Stmt> body = new ArrayList<>();
@@ -69,15 +158,49 @@ public class Parser {
             body.add(statement());
         }
         consume(TokenType.RBRACE, "Expect '}' after function body.");
-        return new BlockStmt(body);
+        return new FunctionDeclStmt(name.getValue(), name.getId(), parameters,
+                Arrays.copyOf(parameterIds, parameters.size()), body);
     }
 
     private Stmt whileStatement() {
+        Token keyword = previous();
         consume(TokenType.LPAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
         consume(TokenType.RPAREN, "Expect ')' after condition.");
         Stmt body = statement();
-        return new WhileStmt(condition, body);
+        return new WhileStmt(keyword, condition, body);
+    }
+
+    private Stmt parallelStatement() {
+        Token keyword = previous();
+        consume(TokenType.LPAREN, "Expect '(' after 'parallel'.");
+        consume(TokenType.IDENTIFIER, "Expect loop variable name.");
+        Token variable = previous();
+        consume(TokenType.ASSIGN, "Expect '=' after loop variable.");
+        Expr start = expression();
+        consume(TokenType.COMMA, "Expect ',' after the start of the range.");
+        Expr end = expression();
+        consume(TokenType.RPAREN, "Expect ')' after the end of the range.");
+        List<String> operators = new ArrayList<>();
+        List<IdentifierExpr> reductions = new ArrayList<>();
+        if (match(TokenType.REDUCE)) {
+            consume(TokenType.LPAREN, "Expect '(' after 'reduce'.");
+            do {
+                consume(TokenType.IDENTIFIER, "Expect 'sum', 'min' or 'max'.");
+                String operator = previous().getValue();
+                if (!operator.equals("sum") && !operator.equals("min") && !operator.equals("max")) {
+                    throw new RuntimeException("Unknown reduction: " + operator);
+                }
+                consume(TokenType.IDENTIFIER, "Expect variable name after '" + operator + "'.");
+                Token name = previous();
+                operators.add(operator);
+                reductions.add(new IdentifierExpr(name, name.getValue(), name.getId()));
+            } while (match(TokenType.COMMA));
+            consume(TokenType.RPAREN, "Expect ')' after reductions.");
+        }
+        Stmt body = statement();
+        return new ParallelStmt(keyword, variable.getValue(), variable.getId(), start, end, operators, reductions,
+                body);
     }
 
     private Stmt ifStatement() {
@@ -146,23 +269,136 @@ public class Parser {
         if (match(TokenType.MINUS)) {
             Token operator = previous();
             Expr right = primary();
-            return new BinaryExpr(operator, new LiteralExpr(operator, "0"), operator.getValue(), right);
+            return new UnaryExpr(operator, operator.getValue(), right);
         }
         return primary();
     }
 
     private Expr primary() {
+        Expr expr;
         if (match(TokenType.NUMBER)) {
-            return new LiteralExpr(previous(), previous().getValue());
+            Token number = previous();
+            return new LiteralExpr(number, number(number.getValue()));
+        } else if (match(TokenType.STRING)) {
+            Token string = previous();
+            expr = new LiteralExpr(string, strings.computeIfAbsent(unescape(string.getValue()), LumaString::of));
         } else if (match(TokenType.IDENTIFIER)) {
-            return new IdentifierExpr(previous(), previous().getValue());
+            Token identifier = previous();
+            expr = check(TokenType.LPAREN) ? call(identifier)
+                    : new IdentifierExpr(identifier, identifier.getValue(), identifier.getId());
+        } else if (match(TokenType.LBRACKET)) {
+            expr = arrayLiteral(previous());
+        } else if (match(TokenType.SPAWN)) {
+            Token keyword = previous();
+            consume(TokenType.IDENTIFIER, "Expect function name after 'spawn'.");
+            return new SpawnExpr(keyword, (CallExpr) call(previous()));
+        } else if (match(TokenType.JOIN, TokenType.CHANNEL, TokenType.SEND, TokenType.RECEIVE)) {
+            expr = builtin(previous());
+        } else if (check(TokenType.ERROR) && peek().getValue().startsWith("\"")) {
+            throw new RuntimeException("Unterminated string on line " + peek().getLine() + ".");
+        } else {
+            throw new RuntimeException("Unexpected token: " + peek().getValue());
         }
-        throw new RuntimeException("Unexpected token: " + peek().getValue());
+        return postfix(expr);
+    }
+
+    // Indexing and `.length` after a primary, as in `a[i]` or `[1, 2].length`
+    private Expr postfix(Expr expr) {
+        while (true) {
+            if (match(TokenType.LBRACKET)) {
+                Token bracket = previous();
+                Expr index = expression();
+                consume(TokenType.RBRACKET, "Expect ']' after index.");
+                expr = new IndexExpr(bracket, expr, index);
+            } else if (match(TokenType.DOT)) {
+                consume(TokenType.IDENTIFIER, "Expect property name after '.'.");
+                Token property = previous();
+                if (!property.getValue().equals("length")) {
+                    throw new RuntimeException("Unknown property: " + property.getValue());
+                }
+                expr = new LengthExpr(property, expr);
+            } else {
+                return expr;
+            }
+        }
+    }
+
+    // A number with a decimal point is a float, one without an integer
+    private Object number(String lexeme) {
+        if (lexeme.indexOf('.') >= 0) {
+            return Double.parseDouble(lexeme);
+        }
+        return Numbers.normalize(new BigInteger(lexeme));
+    }
+
+    // Strips the quotes of a string token and decodes its escape sequences
+    private String unescape(String lexeme) {
+        StringBuilder value = new StringBuilder(lexeme.length());
+        for (int i = 1; i < lexeme.length() - 1; i++) {
+            char c = lexeme.charAt(i);
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = lexeme.charAt(++i);
+            switch (escaped) {
+                case 'n' -> value.append('\n');
+                case 't' -> value.append('\t');
+                case '"', '\\' -> value.append(escaped);
+                default -> throw new RuntimeException("Unknown escape sequence: \\" + escaped);
+            }
+        }
+        return value.toString();
+    }
+
+    // Parses the elements after an already consumed '['
+    private Expr arrayLiteral(Token bracket) {
+        List<Expr> elements = new ArrayList<>();
+        if (!check(TokenType.RBRACKET)) {
+            do {
+                elements.add(expression());
+            } while (match(TokenType.COMMA));
+        }
+        consume(TokenType.RBRACKET, "Expect ']' after array elements.");
+        return new ArrayLiteralExpr(bracket, elements);
+    }
+
+    // Parses the parenthesized operands of join, channel, send or receive
+    private Expr builtin(Token keyword) {
+        consume(TokenType.LPAREN, "Expect '(' after '" + keyword.getValue() + "'.");
+        Expr first = expression();
+        Expr expr;
+        if (keyword.getType() == TokenType.SEND) {
+            consume(TokenType.COMMA, "Expect ',' after the channel.");
+            expr = new SendExpr(keyword, first, expression());
+        } else if (keyword.getType() == TokenType.JOIN) {
+            expr = new JoinExpr(keyword, first);
+        } else if (keyword.getType() == TokenType.CHANNEL) {
+            expr = new ChannelExpr(keyword, first);
+        } else {
+            expr = new ReceiveExpr(keyword, first);
+        }
+        consume(TokenType.RPAREN, "Expect ')' after '" + keyword.getValue() + "' operands.");
+        return expr;
+    }
+
+    // Parses the argument list after an already consumed callee name
+    private Expr call(Token callee) {
+        consume(TokenType.LPAREN, "Expect '(' after function name.");
+        List<Expr> arguments = new ArrayList<>();
+        if (!check(TokenType.RPAREN)) {
+            do {
+                arguments.add(expression());
+            } while (match(TokenType.COMMA));
+        }
+        consume(TokenType.RPAREN, "Expect ')' after arguments.");
+        return new CallExpr(callee, callee.getValue(), callee.getId(), arguments);
     }
 
-    private Token consume(TokenType type, String message) {
+    private void consume(TokenType type, String message) {
         if (check(type)) {
-            return advance();
+            advance();
+            return;
         }
         throw new RuntimeException(message);
     }
@@ -179,23 +415,114 @@ public class Parser {
 
     private boolean check(TokenType type) {
         if (isAtEnd()) return false;
-        return peek().getType() == type;
+        return tokens.peekType() == type;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return tokens.peek();
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.previous();
     }
 
     private boolean isAtEnd() {
-        return peek().getType() == TokenType.EOF;
+        return tokens.peekType() == TokenType.EOF;
+    }
+
+    private void advance() {
+        if (!isAtEnd()) {
+            tokens.advance();
+        }
+    }
+
+    private static TokenSource listSource(List<Token> tokens) {
+        Iterator<Token> iterator = tokens.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : new Token(TokenType.EOF, "", 0, 0);
     }
 
-    private Token advance() {
-        if (!isAtEnd()) current++;
-        return previous();
+    private interface TokenCursor {
+        TokenType peekType();
+
+        Token peek();
+
+        Token previous();
+
+        int position();
+
+        void advance();
+    }
+
+    private static final class StreamCursor implements TokenCursor {
+        private final TokenSource source;
+        private Token current;
+        private Token previous;
+        private int position = 0;
+
+        StreamCursor(TokenSource source) {
+            this.source = source;
+            this.current = source.nextToken();
+        }
+
+        @Override
+        public TokenType peekType() {
+            return current.getType();
+        }
+
+        @Override
+        public Token peek() {
+            return current;
+        }
+
+        @Override
+        public Token previous() {
+            return previous;
+        }
+
+        @Override
+        public int position() {
+            return position;
+        }
+
+        @Override
+        public void advance() {
+            previous = current;
+            current = source.nextToken();
+            position++;
+        }
+    }
+
+    private static final class BufferCursor implements TokenCursor {
+        private final TokenBuffer buffer;
+        private int current = 0;
+
+        BufferCursor(TokenBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public TokenType peekType() {
+            return buffer.type(current);
+        }
+
+        @Override
+        public Token peek() {
+            return buffer.token(current);
+        }
+
+        @Override
+        public Token previous() {
+            return buffer.token(current - 1);
+        }
+
+        @Override
+        public int position() {
+            return current;
+        }
+
+        @Override
+        public void advance() {
+            current++;
+        }
     }
 }
@@ -0,0 +1,13 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+// `receive(channel)`: takes the oldest value from the channel, waiting while it is empty
+public class ReceiveExpr extends Expr {
+    public Expr channel;
+
+    public ReceiveExpr(Token token, Expr channel) {
+        super(token);
+        this.channel = channel;
+    }
+}
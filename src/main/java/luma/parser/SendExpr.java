@@ -0,0 +1,15 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+// `send(channel, value)`, waiting while the channel is full. Only valid as a statement.
+public class SendExpr extends Expr {
+    public Expr channel;
+    public Expr value;
+
+    public SendExpr(Token token, Expr channel, Expr value) {
+        super(token);
+        this.channel = channel;
+        this.value = value;
+    }
+}
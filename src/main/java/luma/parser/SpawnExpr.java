@@ -0,0 +1,13 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+// `spawn f(a, b)`: starts the call as a task of its own and evaluates to the task
+public class SpawnExpr extends Expr {
+    public CallExpr call;
+
+    public SpawnExpr(Token token, CallExpr call) {
+        super(token);
+        this.call = call;
+    }
+}
@@ -0,0 +1,14 @@
+package luma.parser;
+
+import luma.lexer.Token;
+
+public class UnaryExpr extends Expr {
+    public String operator;
+    public Expr right;
+
+    public UnaryExpr(Token token, String operator, Expr right) {
+        super(token);
+        this.operator = operator;
+        this.right = right;
+    }
+}
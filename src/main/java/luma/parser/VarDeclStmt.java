@@ -1,11 +1,19 @@
 package luma.parser;
 
+import luma.semantic.Type;
+
 public class VarDeclStmt extends Stmt {
     public String name;
+    public int id;
     public Expr initializer;
+    public int depth = -1;
+    public int slot = -1;
+    // Static type of the declared variable, which is a float when a float is assigned to it later
+    public Type type = Type.ANY;
 
-    public VarDeclStmt(String name, Expr initializer) {
+    public VarDeclStmt(String name, int id, Expr initializer) {
         this.name = name;
+        this.id = id;
         this.initializer = initializer;
     }
 }
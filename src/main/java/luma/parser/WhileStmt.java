@@ -1,14 +1,26 @@
 package luma.parser;
 
+import luma.lexer.Token;
+
 public class WhileStmt extends Stmt {
+    private final Token keyword;
     private final Expr condition;
     private final Stmt body;
 
-    public WhileStmt(Expr condition, Stmt body) {
+    public WhileStmt(Token keyword, Expr condition, Stmt body) {
+        this.keyword = keyword;
         this.condition = condition;
         this.body = body;
     }
 
+    public Token getKeyword() {
+        return keyword;
+    }
+
+    public int getLine() {
+        return keyword.getLine();
+    }
+
     public Expr getCondition() {
         return condition;
     }
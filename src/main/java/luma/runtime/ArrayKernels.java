@@ -0,0 +1,13 @@
+package luma.runtime;
+
+// Element-wise loops behind ArrayMath. The caller has checked lengths and divisors, and result has the length of
+// the array operands.
+interface ArrayKernels {
+    void apply(int operation, double[] left, double[] right, double[] result);
+
+    void apply(int operation, double[] left, double right, double[] result);
+
+    void apply(int operation, double left, double[] right, double[] result);
+
+    void negate(double[] array, double[] result);
+}
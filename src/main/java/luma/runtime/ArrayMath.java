@@ -0,0 +1,240 @@
+package luma.runtime;
+
+import java.util.Arrays;
+
+// Runtime semantics of Luma arrays, shared by the engines. Arrays are plain double[]; arithmetic on them is
+// element-wise, between arrays of the same length or between an array and a number, and always creates a new array.
+// The operators here also accept two numbers, which Numbers handles, and + concatenates when either side is a string,
+// so engines can send every operand they cannot type statically here. Integers combined with arrays act as floats.
+public final class ArrayMath {
+    static final int ADD = 0;
+    static final int SUBTRACT = 1;
+    static final int MULTIPLY = 2;
+    static final int DIVIDE = 3;
+
+    // Vector loops unless the incubator module is missing or -Dluma.vector=false asks for the scalar ones
+    private static final ArrayKernels KERNELS = loadKernels();
+
+    private ArrayMath() {
+    }
+
+    private static ArrayKernels loadKernels() {
+        if (Boolean.parseBoolean(System.getProperty("luma.vector", "true"))) {
+            try {
+                return (ArrayKernels) Class.forName("luma.runtime.VectorArrayKernels").getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar loops
+            }
+        }
+        return new ScalarArrayKernels();
+    }
+
+    public static boolean isVectorized() {
+        return KERNELS instanceof VectorArrayKernels;
+    }
+
+    public static Object add(Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left + (double) right;
+        } else if (left instanceof LumaString || right instanceof LumaString) {
+            return LumaString.concat(left, right);
+        } else if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return Numbers.add(left, right);
+        }
+        return elementWise(ADD, "+", left, right);
+    }
+
+    public static Object subtract(Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left - (double) right;
+        } else if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return Numbers.subtract(left, right);
+        }
+        return elementWise(SUBTRACT, "-", left, right);
+    }
+
+    public static Object multiply(Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            return (double) left * (double) right;
+        } else if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return Numbers.multiply(left, right);
+        }
+        return elementWise(MULTIPLY, "*", left, right);
+    }
+
+    public static Object divide(Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) {
+            if ((double) right == 0) {
+                throw new RuntimeException("Division by zero.");
+            }
+            return (double) left / (double) right;
+        } else if (Numbers.isNumber(left) && Numbers.isNumber(right)) {
+            return Numbers.divide(left, right);
+        }
+        return elementWise(DIVIDE, "/", left, right);
+    }
+
+    public static Object negate(Object value) {
+        if (Numbers.isNumber(value)) {
+            return Numbers.negate(value);
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            double[] result = new double[array.length];
+            KERNELS.negate(array, result);
+            return result;
+        }
+        throw new RuntimeException("Operator '-' expects a number or an array but got " + describe(value) + ".");
+    }
+
+    private static Object elementWise(int operation, String operator, Object left, Object right) {
+        if (left instanceof double[] && right instanceof double[]) {
+            double[] leftArray = (double[]) left;
+            double[] rightArray = (double[]) right;
+            if (leftArray.length != rightArray.length) {
+                throw new RuntimeException("Operator '" + operator + "' on arrays of different lengths: "
+                        + leftArray.length + " and " + rightArray.length + ".");
+            }
+            if (operation == DIVIDE) {
+                checkDivisors(rightArray);
+            }
+            double[] result = new double[leftArray.length];
+            KERNELS.apply(operation, leftArray, rightArray, result);
+            return result;
+        } else if (left instanceof double[] && Numbers.isNumber(right)) {
+            double[] leftArray = (double[]) left;
+            double scalar = Numbers.toDouble(right);
+            if (operation == DIVIDE && scalar == 0) {
+                throw new RuntimeException("Division by zero.");
+            }
+            double[] result = new double[leftArray.length];
+            KERNELS.apply(operation, leftArray, scalar, result);
+            return result;
+        } else if (Numbers.isNumber(left) && right instanceof double[]) {
+            double[] rightArray = (double[]) right;
+            if (operation == DIVIDE) {
+                checkDivisors(rightArray);
+            }
+            double[] result = new double[rightArray.length];
+            KERNELS.apply(operation, Numbers.toDouble(left), rightArray, result);
+            return result;
+        }
+        throw new RuntimeException("Operator '" + operator + "' expects numbers or arrays but got "
+                + describe(left) + " and " + describe(right) + ".");
+    }
+
+    private static void checkDivisors(double[] divisors) {
+        for (double divisor : divisors) {
+            if (divisor == 0) {
+                throw new RuntimeException("Division by zero.");
+            }
+        }
+    }
+
+    // Checks that a value can be stored in an array, where integers become floats
+    public static double element(Object value) {
+        if (!Numbers.isNumber(value)) {
+            throw new RuntimeException("Arrays hold numbers, not " + describe(value) + ".");
+        }
+        return Numbers.toDouble(value);
+    }
+
+    public static double get(Object array, Object index) {
+        if (index instanceof Long) {
+            return get(array, (long) index);
+        }
+        double[] elements = array(array);
+        return elements[index(elements, number(index))];
+    }
+
+    public static double get(Object array, long index) {
+        double[] elements = array(array);
+        return elements[index(elements, index)];
+    }
+
+    public static double get(Object array, double index) {
+        double[] elements = array(array);
+        return elements[index(elements, index)];
+    }
+
+    public static void set(Object array, Object index, Object value) {
+        double[] elements = array(array);
+        int position = index instanceof Long ? index(elements, (long) index) : index(elements, number(index));
+        elements[position] = element(value);
+    }
+
+    public static void set(Object array, long index, double value) {
+        double[] elements = array(array);
+        elements[index(elements, index)] = value;
+    }
+
+    public static void set(Object array, double index, double value) {
+        double[] elements = array(array);
+        elements[index(elements, index)] = value;
+    }
+
+    public static int length(Object value) {
+        if (value instanceof LumaString) {
+            return ((LumaString) value).length();
+        }
+        return array(value).length;
+    }
+
+    private static double[] array(Object value) {
+        if (!(value instanceof double[])) {
+            throw new RuntimeException("Expected an array but got " + describe(value) + ".");
+        }
+        return (double[]) value;
+    }
+
+    private static double number(Object index) {
+        if (!Numbers.isNumber(index)) {
+            throw new RuntimeException("Array index must be a number but got " + describe(index) + ".");
+        }
+        return Numbers.toDouble(index);
+    }
+
+    private static int index(double[] array, double index) {
+        if (index != Math.rint(index) || index < 0 || index >= array.length) {
+            throw new RuntimeException("Array index " + index + " out of bounds for length " + array.length + ".");
+        }
+        return (int) index;
+    }
+
+    private static int index(double[] array, long index) {
+        if (index < 0 || index >= array.length) {
+            throw new RuntimeException("Array index " + index + " out of bounds for length " + array.length + ".");
+        }
+        return (int) index;
+    }
+
+    // Number of values the budget is charged for creating this one
+    public static long size(Object value) {
+        return value instanceof double[] ? ((double[]) value).length : 1;
+    }
+
+    // The kind of a runtime value for error messages, such as "a number"
+    public static String describe(Object value) {
+        if (value instanceof Double) {
+            return "a number";
+        } else if (Numbers.isInteger(value)) {
+            return "an integer";
+        } else if (value instanceof Boolean) {
+            return "a boolean";
+        } else if (value instanceof double[]) {
+            return "an array";
+        } else if (value instanceof LumaString) {
+            return "a string";
+        } else if (value instanceof LumaTask) {
+            return "a task";
+        } else if (value instanceof LumaChannel) {
+            return "a channel";
+        }
+        return value == null ? "nothing" : "a " + value.getClass().getSimpleName();
+    }
+
+    // How a script's result is shown to a user
+    public static String toString(Object value) {
+        return value instanceof double[] ? Arrays.toString((double[]) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,8 @@
+package luma.runtime;
+
+// Thrown at a checkpoint when a script runs out of budget or is cancelled
+public class ExecutionAbortedException extends RuntimeException {
+    public ExecutionAbortedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,144 @@
+package luma.runtime;
+
+// Tracks what one script execution has used against its limits. Engines call checkpoint() on every loop back-edge
+// and block entry; everything except cancel() is only called from the thread running the script. Other threads
+// working for the script, such as its tasks, each count against a budget of their own from fork().
+public class ExecutionBudget {
+    // Reading the clock costs far more than counting, so it is only consulted every this many steps
+    private static final int CLOCK_INTERVAL = 1024;
+    // A virtual thread running longer than this without blocking yields its carrier to other scripts
+    private static final long TIME_SLICE_NANOS = 2_000_000;
+    // How often a task waiting on a channel or another task checks whether it should give up
+    static final long WAIT_MILLIS = 50;
+
+    private final ExecutionLimits limits;
+    // The budget this one was forked from, or null
+    private final ExecutionBudget parent;
+    // Counted by the thread that owns this budget
+    private long steps = 0;
+    private long values = 0;
+    // Passed on by forks, which may run at the same time as the owner
+    private volatile long forkedSteps = 0;
+    private volatile long forkedValues = 0;
+    // What a forked budget has already passed on to its parent
+    private long flushedSteps = 0;
+    private long flushedValues = 0;
+    private long deadline;
+    private long sliceStart;
+    private volatile boolean cancelled = false;
+
+    public ExecutionBudget(ExecutionLimits limits) {
+        this.limits = limits;
+        this.parent = null;
+        start();
+    }
+
+    private ExecutionBudget(ExecutionBudget parent) {
+        this.limits = parent.limits;
+        this.parent = parent;
+        this.deadline = parent.deadline;
+        this.sliceStart = System.nanoTime();
+    }
+
+    // A budget for another thread working on the same script. It shares the deadline and cancellation, and
+    // passes what it counts on to the script's budget every CLOCK_INTERVAL steps and on flush(), where the limits
+    // are checked. Forks of forks report to the script's budget directly, however deeply tasks nest.
+    public ExecutionBudget fork() {
+        return new ExecutionBudget(parent != null ? parent : this);
+    }
+
+    // Passes what this forked budget counted since the last flush on to its parent
+    public void flush() {
+        if (parent != null) {
+            long newSteps = steps - flushedSteps;
+            long newValues = values - flushedValues;
+            flushedSteps = steps;
+            flushedValues = values;
+            parent.charge(newSteps, newValues);
+        }
+    }
+
+    private synchronized void charge(long newSteps, long newValues) {
+        forkedSteps += newSteps;
+        forkedValues += newValues;
+        // The owner's counts may be a little behind here, which only makes the check later by that much
+        if (getSteps() > limits.getMaxSteps()) {
+            throw new ExecutionAbortedException("Script exceeded its limit of " + limits.getMaxSteps() + " steps.");
+        }
+        checkValues();
+    }
+
+    // Restarts the wall clock; called when the script actually begins running rather than when it was queued
+    public void start() {
+        sliceStart = System.nanoTime();
+        deadline = limits.getMaxWallTime() == null ? 0 : sliceStart + limits.getMaxWallTime().toNanos();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+
+    public long getSteps() {
+        return steps + forkedSteps;
+    }
+
+    public long getValues() {
+        return values + forkedValues;
+    }
+
+    public void checkpoint() {
+        if (isCancelled()) {
+            throw new ExecutionAbortedException("Script was cancelled.");
+        }
+        if (++steps + forkedSteps > limits.getMaxSteps()) {
+            flush();
+            throw new ExecutionAbortedException("Script exceeded its limit of " + limits.getMaxSteps() + " steps.");
+        }
+        if (steps % CLOCK_INTERVAL == 0) {
+            flush();
+            checkClock();
+        }
+    }
+
+    public void allocate(long count) {
+        values += count;
+        checkValues();
+    }
+
+    private void checkValues() {
+        if (getValues() > limits.getMaxValues()) {
+            throw new ExecutionAbortedException("Script exceeded its limit of " + limits.getMaxValues() + " values.");
+        }
+    }
+
+    // For code that waits rather than steps: fails once the script is cancelled or out of time
+    public void checkAlive() {
+        if (isCancelled()) {
+            throw new ExecutionAbortedException("Script was cancelled.");
+        }
+        checkDeadline(System.nanoTime());
+    }
+
+    private void checkDeadline(long now) {
+        if (deadline != 0 && now - deadline > 0) {
+            throw new ExecutionAbortedException("Script exceeded its wall time limit of "
+                    + limits.getMaxWallTime().toMillis() + " ms.");
+        }
+    }
+
+    private void checkClock() {
+        long now = System.nanoTime();
+        checkDeadline(now);
+        if (now - sliceStart > TIME_SLICE_NANOS) {
+            // Virtual threads are only descheduled when they block, so a spinning loop has to step aside itself
+            if (Thread.currentThread().isVirtual()) {
+                Thread.yield();
+            }
+            sliceStart = System.nanoTime();
+        }
+    }
+}
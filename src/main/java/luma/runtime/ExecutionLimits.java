@@ -0,0 +1,32 @@
+package luma.runtime;
+
+import java.time.Duration;
+
+// Per-script bounds. Steps are loop iterations and block entries; values are boxed values and array elements the
+// script creates.
+public class ExecutionLimits {
+    public static final ExecutionLimits UNLIMITED = new ExecutionLimits(Long.MAX_VALUE, null, Long.MAX_VALUE);
+
+    private final long maxSteps;
+    private final Duration maxWallTime;
+    private final long maxValues;
+
+    public ExecutionLimits(long maxSteps, Duration maxWallTime, long maxValues) {
+        this.maxSteps = maxSteps;
+        this.maxWallTime = maxWallTime;
+        this.maxValues = maxValues;
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    // Null when there is no time limit
+    public Duration getMaxWallTime() {
+        return maxWallTime;
+    }
+
+    public long getMaxValues() {
+        return maxValues;
+    }
+}
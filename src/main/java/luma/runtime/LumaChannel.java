@@ -0,0 +1,63 @@
+package luma.runtime;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+// A bounded queue between tasks: send waits while it is full and receive while it is empty. With a capacity of 0
+// every send waits for a receive. Tasks are virtual threads, so a waiting task holds no platform thread.
+public final class LumaChannel {
+    private final int capacity;
+    private final BlockingQueue<Object> queue;
+
+    public LumaChannel(long capacity) {
+        if (capacity < 0 || capacity > Integer.MAX_VALUE) {
+            throw new RuntimeException("Channel capacity must be between 0 and " + Integer.MAX_VALUE + ", not "
+                    + capacity + ".");
+        }
+        this.capacity = (int) capacity;
+        // Linked nodes, so an unused capacity costs nothing
+        this.queue = capacity == 0 ? new SynchronousQueue<>() : new LinkedBlockingQueue<>(this.capacity);
+    }
+
+    // A null budget waits for as long as it takes
+    public void send(Object value, ExecutionBudget budget) {
+        if (value == null) {
+            throw new RuntimeException("Cannot send nothing over a channel.");
+        }
+        try {
+            if (budget == null) {
+                queue.put(value);
+                return;
+            }
+            while (!queue.offer(value, ExecutionBudget.WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                budget.checkAlive();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionAbortedException("Script was interrupted.");
+        }
+    }
+
+    public Object receive(ExecutionBudget budget) {
+        try {
+            if (budget == null) {
+                return queue.take();
+            }
+            Object value;
+            while ((value = queue.poll(ExecutionBudget.WAIT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                budget.checkAlive();
+            }
+            return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionAbortedException("Script was interrupted.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "channel(" + capacity + ")";
+    }
+}
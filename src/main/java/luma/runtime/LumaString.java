@@ -0,0 +1,116 @@
+package luma.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A Luma string value. Concatenation builds a rope: a node that only refers to its two halves, so appending to a
+// string in a loop costs a node per iteration instead of a copy of everything so far. The characters are gathered
+// into one flat String the first time anything needs them, and the halves are then dropped.
+//
+// Values can be shared between threads, and two of them may flatten overlapping ropes at once. Flattening only
+// ever replaces halves by an equal flat String, and the fields are volatile so a reader that saw no flat String
+// also sees the halves that were there before it.
+public final class LumaString implements CharSequence {
+    // Results shorter than this are copied right away; a node would cost more than the copy
+    private static final int MIN_ROPE_LENGTH = 32;
+
+    private final int length;
+    // Null while this is a concatenation nobody has looked into yet
+    private volatile String flat;
+    private volatile LumaString left;
+    private volatile LumaString right;
+
+    private LumaString(String flat) {
+        this.length = flat.length();
+        this.flat = flat;
+    }
+
+    private LumaString(LumaString left, LumaString right) {
+        this.length = left.length + right.length;
+        this.left = left;
+        this.right = right;
+    }
+
+    public static LumaString of(String value) {
+        return new LumaString(value);
+    }
+
+    // Concatenates two values of which at least one is a string; the other is converted as it would be shown
+    public static LumaString concat(Object left, Object right) {
+        LumaString leftString = left instanceof LumaString ? (LumaString) left : of(ArrayMath.toString(left));
+        LumaString rightString = right instanceof LumaString ? (LumaString) right : of(ArrayMath.toString(right));
+        if (leftString.length == 0) {
+            return rightString;
+        } else if (rightString.length == 0) {
+            return leftString;
+        } else if (leftString.length + rightString.length < MIN_ROPE_LENGTH) {
+            return of(leftString.toString() + rightString);
+        }
+        return new LumaString(leftString, rightString);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    // Walks the rope without recursion: a string built by appending in a loop is a chain as deep as the loop ran
+    @Override
+    public String toString() {
+        String result = flat;
+        if (result != null) {
+            return result;
+        }
+        char[] chars = new char[length];
+        int end = length;
+        List<LumaString> pending = new ArrayList<>();
+        pending.add(this);
+        // Right halves are filled in first, from the end of the array backwards
+        while (!pending.isEmpty()) {
+            LumaString node = pending.remove(pending.size() - 1);
+            // Halves before the flat String: they are only dropped after it is set
+            LumaString nodeLeft = node.left;
+            LumaString nodeRight = node.right;
+            String nodeFlat = node.flat;
+            if (nodeFlat != null) {
+                end -= node.length;
+                nodeFlat.getChars(0, node.length, chars, end);
+            } else {
+                pending.add(nodeLeft);
+                pending.add(nodeRight);
+            }
+        }
+        result = new String(chars);
+        flat = result;
+        left = null;
+        right = null;
+        return result;
+    }
+
+    // Interned literals are the same object, so comparing them never looks at the characters
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LumaString) || ((LumaString) other).length != length) {
+            return false;
+        }
+        return toString().equals(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
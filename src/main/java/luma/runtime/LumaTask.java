@@ -0,0 +1,122 @@
+package luma.runtime;
+
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// A function call running on a virtual thread of its own. join() waits for it and hands over its result, or
+// raises the error it failed with in the joining task.
+public final class LumaTask {
+    public static final Comparator<LumaTask> SPAWN_ORDER = Comparator.comparingLong(task -> task.sequence);
+    private static final AtomicLong spawned = new AtomicLong();
+
+    private final String function;
+    private final long sequence = spawned.getAndIncrement();
+    private final CountDownLatch done = new CountDownLatch(1);
+    // Written by the task before it counts done down, so waiting on done makes them visible
+    private Object result;
+    private Throwable failure;
+    // Whether a join has seen the outcome, so a failure nobody joined can still be reported once
+    private volatile boolean observed = false;
+    // cancel() sets cancelled before it reads thread and the task sets thread before it reads cancelled, so one of
+    // them sees the other even when the task is cancelled while it starts
+    private volatile Thread thread;
+    private volatile boolean cancelled = false;
+
+    public LumaTask(String function) {
+        this.function = function;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public boolean isObserved() {
+        return observed;
+    }
+
+    public void start(Supplier<Object> body) {
+        Thread started = Thread.ofVirtual().name("luma-" + function).unstarted(() -> {
+            try {
+                if (cancelled) {
+                    Thread.currentThread().interrupt();
+                }
+                result = body.get();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        });
+        thread = started;
+        started.start();
+    }
+
+    public Object join(ExecutionBudget budget) {
+        await(budget);
+        observed = true;
+        rethrowFailure();
+        return result;
+    }
+
+    // Waits for the task and raises its failure only if no join has raised it already
+    public void finish(ExecutionBudget budget) {
+        await(budget);
+        if (!observed) {
+            observed = true;
+            rethrowFailure();
+        }
+    }
+
+    // Interrupts the task, which stops at its next checkpoint or wait, and waits until it has stopped. Its outcome
+    // is dropped: this is for a script that has already failed.
+    public void cancel() {
+        cancelled = true;
+        Thread running = thread;
+        if (running != null) {
+            running.interrupt();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void await(ExecutionBudget budget) {
+        try {
+            if (budget == null) {
+                done.await();
+                return;
+            }
+            while (!done.await(ExecutionBudget.WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                budget.checkAlive();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionAbortedException("Script was interrupted.");
+        }
+    }
+
+    private void rethrowFailure() {
+        if (failure instanceof ExecutionAbortedException) {
+            throw (ExecutionAbortedException) failure;
+        } else if (failure != null) {
+            throw new RuntimeException("Task '" + function + "' failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "task(" + function + ")";
+    }
+}
@@ -0,0 +1,157 @@
+package luma.runtime;
+
+import java.math.BigInteger;
+
+// Runtime semantics of Luma numbers. Integers are Long while they fit in 64 bits and BigInteger beyond, never a
+// BigInteger that would fit, and integer arithmetic is exact: a long operation that overflows is redone on
+// BigIntegers. Floats are Double. An operation with a float on either side, and every division, converts its
+// integer operands to floats.
+public final class Numbers {
+
+    private Numbers() {
+    }
+
+    public static boolean isInteger(Object value) {
+        return value instanceof Long || value instanceof BigInteger;
+    }
+
+    public static boolean isNumber(Object value) {
+        return value instanceof Double || value instanceof Long || value instanceof BigInteger;
+    }
+
+    public static Object add(long left, long right) {
+        try {
+            return Math.addExact(left, right);
+        } catch (ArithmeticException e) {
+            return BigInteger.valueOf(left).add(BigInteger.valueOf(right));
+        }
+    }
+
+    public static Object subtract(long left, long right) {
+        try {
+            return Math.subtractExact(left, right);
+        } catch (ArithmeticException e) {
+            return BigInteger.valueOf(left).subtract(BigInteger.valueOf(right));
+        }
+    }
+
+    public static Object multiply(long left, long right) {
+        try {
+            return Math.multiplyExact(left, right);
+        } catch (ArithmeticException e) {
+            return BigInteger.valueOf(left).multiply(BigInteger.valueOf(right));
+        }
+    }
+
+    public static Object negate(long value) {
+        return value == Long.MIN_VALUE ? BigInteger.valueOf(value).negate() : (Object) (-value);
+    }
+
+    // The operators below take any two numbers
+    public static Object add(Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return add((long) left, (long) right);
+        } else if (left instanceof Double || right instanceof Double) {
+            return toDouble(left) + toDouble(right);
+        }
+        return normalize(big(left).add(big(right)));
+    }
+
+    public static Object subtract(Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return subtract((long) left, (long) right);
+        } else if (left instanceof Double || right instanceof Double) {
+            return toDouble(left) - toDouble(right);
+        }
+        return normalize(big(left).subtract(big(right)));
+    }
+
+    public static Object multiply(Object left, Object right) {
+        if (left instanceof Long && right instanceof Long) {
+            return multiply((long) left, (long) right);
+        } else if (left instanceof Double || right instanceof Double) {
+            return toDouble(left) * toDouble(right);
+        }
+        return normalize(big(left).multiply(big(right)));
+    }
+
+    public static double divide(Object left, Object right) {
+        double divisor = toDouble(right);
+        if (divisor == 0) {
+            throw new RuntimeException("Division by zero.");
+        }
+        return toDouble(left) / divisor;
+    }
+
+    public static Object negate(Object value) {
+        if (value instanceof Long) {
+            return negate((long) value);
+        } else if (value instanceof Double) {
+            return -(double) value;
+        }
+        return normalize(((BigInteger) value).negate());
+    }
+
+    // An integer compared with a float is converted to a float first, as in arithmetic; anything that is not a
+    // number compares with equals
+    public static boolean equal(Object left, Object right) {
+        if (left instanceof Double && right instanceof Long || left instanceof Long && right instanceof Double
+                || left instanceof Double && right instanceof BigInteger
+                || left instanceof BigInteger && right instanceof Double) {
+            return Double.valueOf(toDouble(left)).equals(toDouble(right));
+        }
+        return left.equals(right);
+    }
+
+    // One of <, <=, > and >=. Two integers compare exactly, whatever their size.
+    public static boolean compare(String operator, Object left, Object right) {
+        if (!isNumber(left) || !isNumber(right)) {
+            throw new RuntimeException("Operator '" + operator + "' expects numbers but got "
+                    + ArrayMath.describe(left) + " and " + ArrayMath.describe(right) + ".");
+        }
+        if (left instanceof Double || right instanceof Double) {
+            return compare(operator, toDouble(left), toDouble(right));
+        } else if (left instanceof Long && right instanceof Long) {
+            return compare(operator, Long.compare((long) left, (long) right));
+        }
+        return compare(operator, big(left).compareTo(big(right)));
+    }
+
+    private static boolean compare(String operator, double left, double right) {
+        return switch (operator) {
+            case "<" -> left < right;
+            case "<=" -> left <= right;
+            case ">" -> left > right;
+            case ">=" -> left >= right;
+            default -> throw new RuntimeException("Unknown operator: " + operator);
+        };
+    }
+
+    private static boolean compare(String operator, int order) {
+        return switch (operator) {
+            case "<" -> order < 0;
+            case "<=" -> order <= 0;
+            case ">" -> order > 0;
+            case ">=" -> order >= 0;
+            default -> throw new RuntimeException("Unknown operator: " + operator);
+        };
+    }
+
+    public static double toDouble(Object number) {
+        if (number instanceof Double) {
+            return (double) number;
+        } else if (number instanceof Long) {
+            return (long) number;
+        }
+        return ((BigInteger) number).doubleValue();
+    }
+
+    public static BigInteger big(Object integer) {
+        return integer instanceof Long ? BigInteger.valueOf((long) integer) : (BigInteger) integer;
+    }
+
+    // Long when the value fits, so every integer has a single representation
+    public static Object normalize(BigInteger value) {
+        return value.bitLength() < 64 ? (Object) value.longValue() : value;
+    }
+}
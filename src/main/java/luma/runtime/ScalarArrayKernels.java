@@ -0,0 +1,80 @@
+package luma.runtime;
+
+// Plain loops, used when the Vector API is unavailable and for the tails the vector loops leave over
+final class ScalarArrayKernels implements ArrayKernels {
+
+    @Override
+    public void apply(int operation, double[] left, double[] right, double[] result) {
+        apply(operation, left, right, result, 0);
+    }
+
+    @Override
+    public void apply(int operation, double[] left, double right, double[] result) {
+        apply(operation, left, right, result, 0);
+    }
+
+    @Override
+    public void apply(int operation, double left, double[] right, double[] result) {
+        apply(operation, left, right, result, 0);
+    }
+
+    @Override
+    public void negate(double[] array, double[] result) {
+        negate(array, result, 0);
+    }
+
+    static void apply(int operation, double[] left, double[] right, double[] result, int from) {
+        switch (operation) {
+            case ArrayMath.ADD -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] + right[i];
+            }
+            case ArrayMath.SUBTRACT -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] - right[i];
+            }
+            case ArrayMath.MULTIPLY -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] * right[i];
+            }
+            default -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] / right[i];
+            }
+        }
+    }
+
+    static void apply(int operation, double[] left, double right, double[] result, int from) {
+        switch (operation) {
+            case ArrayMath.ADD -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] + right;
+            }
+            case ArrayMath.SUBTRACT -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] - right;
+            }
+            case ArrayMath.MULTIPLY -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] * right;
+            }
+            default -> {
+                for (int i = from; i < result.length; i++) result[i] = left[i] / right;
+            }
+        }
+    }
+
+    static void apply(int operation, double left, double[] right, double[] result, int from) {
+        switch (operation) {
+            case ArrayMath.ADD -> {
+                for (int i = from; i < result.length; i++) result[i] = left + right[i];
+            }
+            case ArrayMath.SUBTRACT -> {
+                for (int i = from; i < result.length; i++) result[i] = left - right[i];
+            }
+            case ArrayMath.MULTIPLY -> {
+                for (int i = from; i < result.length; i++) result[i] = left * right[i];
+            }
+            default -> {
+                for (int i = from; i < result.length; i++) result[i] = left / right[i];
+            }
+        }
+    }
+
+    static void negate(double[] array, double[] result, int from) {
+        for (int i = from; i < result.length; i++) result[i] = -array[i];
+    }
+}
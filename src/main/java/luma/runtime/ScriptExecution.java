@@ -0,0 +1,39 @@
+package luma.runtime;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Handle to a script submitted to a ScriptScheduler
+public class ScriptExecution {
+    private final Future<Object> future;
+    private final ExecutionBudget budget;
+
+    ScriptExecution(Future<Object> future, ExecutionBudget budget) {
+        this.future = future;
+        this.budget = budget;
+    }
+
+    // Stops the script at its next checkpoint
+    public void cancel() {
+        budget.cancel();
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public ExecutionBudget getBudget() {
+        return budget;
+    }
+
+    // Returns the script's result; errors, including exceeded limits, arrive as the cause of the ExecutionException
+    public Object get() throws InterruptedException, ExecutionException {
+        return future.get();
+    }
+
+    public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(timeout, unit);
+    }
+}
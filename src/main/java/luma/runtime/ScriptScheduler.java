@@ -0,0 +1,43 @@
+package luma.runtime;
+
+import luma.codegen.IntermediateCode;
+import luma.codegen.VirtualMachine;
+import luma.interpreter.Interpreter;
+import luma.parser.Stmt;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs every script on its own virtual thread under an ExecutionBudget. Scripts only block on channels and joins,
+// which park their virtual threads; otherwise fairness comes from the budget's checkpoints, which cancel, enforce
+// limits and yield long-running scripts.
+public class ScriptScheduler implements AutoCloseable {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ScriptExecution submit(IntermediateCode code, ExecutionLimits limits) {
+        ExecutionBudget budget = new ExecutionBudget(limits);
+        Future<Object> future = executor.submit(() -> {
+            budget.start();
+            return new VirtualMachine(code, budget).run();
+        });
+        return new ScriptExecution(future, budget);
+    }
+
+    // Statements must already be analyzed; they are only read, so one tree can back many executions
+    public ScriptExecution submit(List<Stmt> statements, ExecutionLimits limits) {
+        ExecutionBudget budget = new ExecutionBudget(limits);
+        Future<Object> future = executor.submit(() -> {
+            budget.start();
+            return new Interpreter(budget).interpret(statements);
+        });
+        return new ScriptExecution(future, budget);
+    }
+
+    // Waits for submitted scripts to finish; cancel them first to stop runaway ones
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,113 @@
+package luma.runtime;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD loops over the widest vector shape the CPU supports. Only ever loaded reflectively by ArrayMath, since the
+// jdk.incubator.vector module is missing unless the JVM was started with --add-modules jdk.incubator.vector.
+final class VectorArrayKernels implements ArrayKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void apply(int operation, double[] left, double[] right, double[] result) {
+        int bound = SPECIES.loopBound(result.length);
+        int i = 0;
+        switch (operation) {
+            case ArrayMath.ADD -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).add(load(right, i)).intoArray(result, i);
+                }
+            }
+            case ArrayMath.SUBTRACT -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).sub(load(right, i)).intoArray(result, i);
+                }
+            }
+            case ArrayMath.MULTIPLY -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).mul(load(right, i)).intoArray(result, i);
+                }
+            }
+            default -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).div(load(right, i)).intoArray(result, i);
+                }
+            }
+        }
+        ScalarArrayKernels.apply(operation, left, right, result, i);
+    }
+
+    @Override
+    public void apply(int operation, double[] left, double right, double[] result) {
+        DoubleVector scalar = DoubleVector.broadcast(SPECIES, right);
+        int bound = SPECIES.loopBound(result.length);
+        int i = 0;
+        switch (operation) {
+            case ArrayMath.ADD -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).add(scalar).intoArray(result, i);
+                }
+            }
+            case ArrayMath.SUBTRACT -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).sub(scalar).intoArray(result, i);
+                }
+            }
+            case ArrayMath.MULTIPLY -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).mul(scalar).intoArray(result, i);
+                }
+            }
+            default -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(left, i).div(scalar).intoArray(result, i);
+                }
+            }
+        }
+        ScalarArrayKernels.apply(operation, left, right, result, i);
+    }
+
+    @Override
+    public void apply(int operation, double left, double[] right, double[] result) {
+        DoubleVector scalar = DoubleVector.broadcast(SPECIES, left);
+        int bound = SPECIES.loopBound(result.length);
+        int i = 0;
+        switch (operation) {
+            case ArrayMath.ADD -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    scalar.add(load(right, i)).intoArray(result, i);
+                }
+            }
+            case ArrayMath.SUBTRACT -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    scalar.sub(load(right, i)).intoArray(result, i);
+                }
+            }
+            case ArrayMath.MULTIPLY -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    scalar.mul(load(right, i)).intoArray(result, i);
+                }
+            }
+            default -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    scalar.div(load(right, i)).intoArray(result, i);
+                }
+            }
+        }
+        ScalarArrayKernels.apply(operation, left, right, result, i);
+    }
+
+    @Override
+    public void negate(double[] array, double[] result) {
+        int bound = SPECIES.loopBound(result.length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            load(array, i).neg().intoArray(result, i);
+        }
+        ScalarArrayKernels.negate(array, result, i);
+    }
+
+    private static DoubleVector load(double[] array, int offset) {
+        return DoubleVector.fromArray(SPECIES, array, offset);
+    }
+}
@@ -0,0 +1,109 @@
+package luma.script;
+
+import luma.codegen.IntermediateCode;
+import luma.codegen.VirtualMachine;
+import luma.runtime.LumaString;
+import luma.runtime.Numbers;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import java.math.BigInteger;
+
+// Immutable result of compiling a script once. Every eval gets its own frame and VirtualMachine, so any number of
+// threads can evaluate the same instance concurrently.
+public final class LumaCompiledScript extends CompiledScript {
+    private final LumaScriptEngine engine;
+    private final IntermediateCode code;
+    // Host bindings the script reads or writes, held in slots 0..n-1
+    private final String[] externals;
+    // Top-level variables the script declares, copied into the engine scope after each run
+    private final String[] globalNames;
+    private final int[] globalSlots;
+
+    LumaCompiledScript(LumaScriptEngine engine, IntermediateCode code, String[] externals, String[] globalNames,
+                       int[] globalSlots) {
+        this.engine = engine;
+        this.code = code;
+        this.externals = externals;
+        this.globalNames = globalNames;
+        this.globalSlots = globalSlots;
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+        Object[] frame = new Object[Math.max(code.getSlotCount(), externals.length)];
+        Object[] inputs = new Object[externals.length];
+        for (int i = 0; i < externals.length; i++) {
+            inputs[i] = toLuma(externals[i], context);
+            frame[i] = inputs[i];
+        }
+
+        Object result;
+        try {
+            result = new VirtualMachine(code).run(frame);
+        } catch (RuntimeException e) {
+            throw LumaScriptEngine.scriptException("Runtime error: ", e, context);
+        }
+
+        for (int i = 0; i < externals.length; i++) {
+            // Only bindings the script assigned are written back, so untouched ones keep their host type
+            if (frame[i] != inputs[i]) {
+                context.setAttribute(externals[i], toHost(frame[i]), context.getAttributesScope(externals[i]));
+            }
+        }
+        Bindings engineScope = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        for (int i = 0; i < globalNames.length; i++) {
+            // Declarations after an early return never ran; function slots hold nothing
+            Object value = frame[globalSlots[i]];
+            if (value != null) {
+                engineScope.put(globalNames[i], toHost(value));
+            }
+        }
+        for (int i = 0; i < code.getFunctions().length; i++) {
+            engineScope.put(code.getFunctions()[i].getName(), new LumaFunction(code, i, frame));
+        }
+        return toHost(result);
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+        return engine;
+    }
+
+    private static Object toLuma(String name, ScriptContext context) throws ScriptException {
+        if (context.getAttributesScope(name) < 0) {
+            throw LumaScriptEngine.scriptException("Binding '" + name + "' is not set.", null, context);
+        }
+        return toLuma("Binding '" + name + "'", context.getAttribute(name), context);
+    }
+
+    // Strings go back to the host as java.lang.String; everything else already is a plain Java value
+    static Object toHost(Object value) {
+        return value instanceof LumaString ? value.toString() : value;
+    }
+
+    // description names where the value came from, for the error message
+    static Object toLuma(String description, Object value, ScriptContext context) throws ScriptException {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof BigInteger) {
+            return Numbers.normalize((BigInteger) value);
+        } else if (value instanceof Number) {
+            // Floats, and decimals such as BigDecimal, which Luma only has floats for
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return value;
+        } else if (value instanceof double[]) {
+            // Shared rather than copied, so the host sees what the script stores into it
+            return value;
+        } else if (value instanceof CharSequence) {
+            return LumaString.of(value.toString());
+        }
+        String type = value == null ? "null" : value.getClass().getSimpleName();
+        throw LumaScriptEngine.scriptException(description + " holds a " + type
+                + ", which Luma cannot use.", null, context);
+    }
+}
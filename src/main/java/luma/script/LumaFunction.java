@@ -0,0 +1,52 @@
+package luma.script;
+
+import luma.codegen.IntermediateCode;
+import luma.codegen.VirtualMachine;
+
+import javax.script.ScriptContext;
+import javax.script.ScriptException;
+
+// A function declared by an evaluated script, as left in the engine scope. Calls share the global frame of the
+// eval that declared the function, so they see and update that run's top-level variables; callers that invoke it
+// from several threads at once must not rely on those globals.
+public final class LumaFunction {
+    private final IntermediateCode code;
+    private final int index;
+    private final Object[] globals;
+
+    LumaFunction(IntermediateCode code, int index, Object[] globals) {
+        this.code = code;
+        this.index = index;
+        this.globals = globals;
+    }
+
+    public String getName() {
+        return code.getFunctions()[index].getName();
+    }
+
+    public int getParameterCount() {
+        return code.getFunctions()[index].getParameterCount();
+    }
+
+    Object call(ScriptContext context, Object[] args) throws ScriptException {
+        if (args.length != getParameterCount()) {
+            throw LumaScriptEngine.scriptException("Function '" + getName() + "' expects " + getParameterCount()
+                    + " arguments but got " + args.length + ".", null, context);
+        }
+        Object[] arguments = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            arguments[i] = LumaCompiledScript.toLuma("Argument " + (i + 1) + " of '" + getName() + "'", args[i],
+                    context);
+        }
+        try {
+            return LumaCompiledScript.toHost(new VirtualMachine(code).call(index, globals, arguments));
+        } catch (RuntimeException e) {
+            throw LumaScriptEngine.scriptException("Runtime error: ", e, context);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "function " + getName();
+    }
+}
@@ -0,0 +1,163 @@
+package luma.script;
+
+import luma.codegen.CodeGenerator;
+import luma.codegen.IntermediateCode;
+import luma.lexer.Lexer;
+import luma.optimizer.Optimizer;
+import luma.parser.*;
+import luma.semantic.SemanticAnalyzer;
+import luma.semantic.Symbol;
+import luma.semantic.SymbolTable;
+import luma.semantic.Type;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.Invocable;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// JSR-223 front end. Scripts compile to IntermediateCode that is never modified afterwards; identifiers a script
+// uses without declaring them at the top level are read from, and written back to, the bindings of the context.
+public class LumaScriptEngine extends AbstractScriptEngine implements Compilable, Invocable {
+    private final ScriptEngineFactory factory;
+
+    LumaScriptEngine(ScriptEngineFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return eval(new StringReader(script), context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return compile(reader, context).eval(context);
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        return compile(new StringReader(script));
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(script, getContext());
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    // Functions are those the scripts evaluated so far left in the bindings
+    @Override
+    public Object invokeFunction(String name, Object... args) throws ScriptException, NoSuchMethodException {
+        Object function = getContext().getAttribute(name);
+        if (!(function instanceof LumaFunction)) {
+            throw new NoSuchMethodException("No function named '" + name + "'.");
+        }
+        return ((LumaFunction) function).call(getContext(), args);
+    }
+
+    @Override
+    public Object invokeMethod(Object thiz, String name, Object... args) throws NoSuchMethodException {
+        throw new NoSuchMethodException("Luma values have no methods; cannot call '" + name + "'.");
+    }
+
+    @Override
+    public <T> T getInterface(Class<T> type) {
+        return null;
+    }
+
+    @Override
+    public <T> T getInterface(Object thiz, Class<T> type) {
+        return null;
+    }
+
+    private LumaCompiledScript compile(Reader script, ScriptContext context) throws ScriptException {
+        List<Stmt> statements;
+        Lexer lexer = new Lexer(script);
+        try {
+            statements = new Parser(lexer).parse();
+        } catch (UncheckedIOException e) {
+            throw scriptException("Could not read script: ", e, context);
+        } catch (RuntimeException e) {
+            throw scriptException("Error during parsing: ", e, context);
+        }
+
+        // Names the script uses where no declaration of its own is in scope are looked up in the bindings when it
+        // runs, so a script compiled once can run against any bindings that provide them. A first analysis finds
+        // them; the second one gives them the first global slots.
+        List<Symbol> freeNames;
+        SymbolTable symbolTable = new SymbolTable();
+        try {
+            SymbolTable names = new SymbolTable();
+            names.allowFreeNames();
+            SemanticAnalyzer analyzer = new SemanticAnalyzer(names);
+            analyzer.analyze(statements);
+            if (analyzer.usesTasks()) {
+                throw scriptException("Tasks and channels are not supported by the script engine.", null, context);
+            }
+            freeNames = names.getFreeNames();
+            for (Symbol name : freeNames) {
+                // The host decides the value, so nothing is known about its type
+                symbolTable.declare(new Symbol(name.getName(), name.getId(), Type.ANY, false, null, 0,
+                        symbolTable.allocateSlot()));
+            }
+            new SemanticAnalyzer(symbolTable).analyze(statements);
+        } catch (RuntimeException e) {
+            throw scriptException("Error during semantic analysis: ", e, context);
+        }
+        String[] externals = new String[freeNames.size()];
+        for (int i = 0; i < externals.length; i++) {
+            externals[i] = freeNames.get(i).getName();
+        }
+        List<Symbol> globals = new ArrayList<>();
+        for (Symbol symbol : symbolTable.getGlobals().subList(externals.length, symbolTable.getGlobalCount())) {
+            // Functions are handed out through LumaFunction instead
+            if (!symbol.isFunction()) {
+                globals.add(symbol);
+            }
+        }
+        String[] globalNames = new String[globals.size()];
+        int[] globalSlots = new int[globals.size()];
+        for (int i = 0; i < globalNames.length; i++) {
+            globalNames[i] = globals.get(i).getName();
+            globalSlots[i] = globals.get(i).getSlot();
+        }
+
+        IntermediateCode code;
+        try {
+            code = new CodeGenerator().generate(new Optimizer().optimize(statements), symbolTable.getGlobalCount());
+        } catch (RuntimeException e) {
+            throw scriptException("Error during code generation: ", e, context);
+        }
+        return new LumaCompiledScript(this, code, externals, globalNames, globalSlots);
+    }
+
+    static ScriptException scriptException(String prefix, Exception cause, ScriptContext context) {
+        Object fileName = context.getAttribute(ScriptEngine.FILENAME);
+        String message = cause == null ? prefix : prefix + cause.getMessage();
+        ScriptException exception = new ScriptException(message, fileName == null ? null : fileName.toString(), -1);
+        if (cause != null) {
+            exception.initCause(cause);
+        }
+        return exception;
+    }
+}
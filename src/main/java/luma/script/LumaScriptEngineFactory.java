@@ -0,0 +1,83 @@
+package luma.script;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import java.util.List;
+
+public class LumaScriptEngineFactory implements ScriptEngineFactory {
+    private static final String VERSION = "0.1";
+
+    @Override
+    public String getEngineName() {
+        return "Luma";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return List.of("luma");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return List.of("application/x-luma");
+    }
+
+    @Override
+    public List<String> getNames() {
+        return List.of("luma", "Luma");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "Luma";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        return switch (key) {
+            case ScriptEngine.ENGINE -> getEngineName();
+            case ScriptEngine.ENGINE_VERSION -> getEngineVersion();
+            case ScriptEngine.NAME -> getNames().get(0);
+            case ScriptEngine.LANGUAGE -> getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION -> getLanguageVersion();
+            // The engine holds no state between evaluations and compiled scripts are immutable
+            case "THREADING" -> "MULTITHREADED";
+            default -> null;
+        };
+    }
+
+    @Override
+    public String getMethodCallSyntax(String object, String method, String... args) {
+        return method + "(" + String.join(", ", args) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        // Luma has no output statement; the value of a script is what it returns
+        return "return " + toDisplay + ";";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder program = new StringBuilder();
+        for (String statement : statements) {
+            program.append(statement).append(";\n");
+        }
+        return program.toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new LumaScriptEngine(this);
+    }
+}
@@ -1,23 +1,80 @@
 package luma.semantic;
 
+import luma.lexer.Token;
 import luma.parser.*;
+import luma.runtime.LumaString;
+import luma.runtime.Numbers;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class SemanticAnalyzer {
     private final SymbolTable symbolTable;
+    // While loops enclosing the statement being analyzed, within the current function
+    private int loopDepth = 0;
+    // The innermost parallel loop around the statement being analyzed, or null
+    private ParallelContext parallel;
+    // The function whose body is being analyzed, or null at the top level
+    private FunctionDeclStmt function;
+    // Initializers of the integer variables that are assigned a float, which makes them floats, and the pass that
+    // found the assignment
+    private final Map<Expr, Integer> widened = new IdentityHashMap<>();
+    private int pass = 0;
+    private boolean widenedInPass = false;
+    // The assignment of a min or max reduction that the if statement being analyzed guards with its comparison
+    private AssignStmt guardedUpdate;
+    private boolean usesTasks = false;
 
     public SemanticAnalyzer() {
-        this.symbolTable = new SymbolTable();
+        this(new SymbolTable());
+    }
+
+    public SemanticAnalyzer(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
     }
 
     public void analyze(List<Stmt> statements) {
-        for (Stmt statement : statements) {
-            analyze(statement);
-        }
+        analyze(statements, null);
+    }
+
+    // Records the global count after each statement in globalsAfter unless it is null. A float assigned to an
+    // integer variable only shows up after the variable's uses were typed as integers, so the statements are
+    // analyzed again with the variable declared as a float, until a pass widens nothing new.
+    public void analyze(List<Stmt> statements, int[] globalsAfter) {
+        SymbolTable.Mark mark = symbolTable.mark();
+        do {
+            pass++;
+            widenedInPass = false;
+            symbolTable.reset(mark);
+            for (int i = 0; i < statements.size(); i++) {
+                analyze(statements.get(i));
+                if (globalsAfter != null) {
+                    globalsAfter[i] = symbolTable.getGlobalCount();
+                }
+            }
+        } while (widenedInPass);
+    }
+
+    // True when the statements use tasks or channels, which only the tree engine can run
+    public boolean usesTasks() {
+        return usesTasks;
     }
 
-    private void analyze(Stmt stmt) {
+    // True when a variable was made a float. Callers that analyze one statement at a time have to analyze all of
+    // them again in that case.
+    public boolean hasWidened() {
+        return !widened.isEmpty();
+    }
+
+    public void analyze(Stmt stmt) {
         if (stmt instanceof VarDeclStmt) {
             analyzeVarDeclStmt((VarDeclStmt) stmt);
         } else if (stmt instanceof BlockStmt) {
@@ -26,6 +83,39 @@ public class SemanticAnalyzer {
             analyzeIfStmt((IfStmt) stmt);
         } else if (stmt instanceof ReturnStmt) {
             analyzeReturnStmt((ReturnStmt) stmt);
+        } else if (stmt instanceof WhileStmt) {
+            analyzeWhileStmt((WhileStmt) stmt);
+        } else if (stmt instanceof ParallelStmt) {
+            analyzeParallelStmt((ParallelStmt) stmt);
+        } else if (stmt instanceof AssignStmt) {
+            analyzeAssignStmt((AssignStmt) stmt);
+        } else if (stmt instanceof IndexAssignStmt) {
+            analyzeIndexAssignStmt((IndexAssignStmt) stmt);
+        } else if (stmt instanceof BreakStmt) {
+            if (loopDepth == 0 && parallel != null) {
+                throw new SemanticError("'break' cannot leave the parallel loop on line " + parallel.stmt.getLine()
+                        + ".");
+            }
+            expectLoop("break", ((BreakStmt) stmt).keyword);
+        } else if (stmt instanceof ContinueStmt) {
+            // Ends the iteration, which a parallel loop allows as well
+            if (parallel == null) {
+                expectLoop("continue", ((ContinueStmt) stmt).keyword);
+            }
+        } else if (stmt instanceof FunctionDeclStmt) {
+            analyzeFunctionDeclStmt((FunctionDeclStmt) stmt);
+        } else if (stmt instanceof ExprStmt) {
+            Expr expression = ((ExprStmt) stmt).expression;
+            if (expression instanceof CallExpr) {
+                // The result is discarded, so the function does not have to return one
+                expression.type = analyzeCall((CallExpr) expression, false);
+            } else if (expression instanceof JoinExpr) {
+                expression.type = analyzeJoin((JoinExpr) expression, false);
+            } else if (expression instanceof SendExpr) {
+                analyzeSend((SendExpr) expression);
+            } else {
+                analyzeExpr(expression);
+            }
         }
         // Add more cases for other statement types
     }
@@ -33,8 +123,251 @@ public class SemanticAnalyzer {
     private void analyzeVarDeclStmt(VarDeclStmt stmt) {
         String name = stmt.name;
         Expr initializer = stmt.initializer;
-        Symbol symbol = new Symbol(name, "var", false, initializer); // You can extend this to handle types
-        symbolTable.declare(name, symbol);
+        // Resolve the initializer first so that `var x = x + 1` refers to the enclosing x
+        Type type = analyzeExpr(initializer);
+        if (type == Type.INTEGER && widened.containsKey(initializer)) {
+            type = Type.NUMBER;
+        }
+        int slot = symbolTable.allocateSlot();
+        symbolTable.declare(new Symbol(name, stmt.id, type, false, initializer, symbolTable.getFrameLevel(), slot));
+        stmt.depth = 0;
+        stmt.slot = slot;
+        stmt.type = type;
+    }
+
+    private void analyzeAssignStmt(AssignStmt stmt) {
+        Symbol symbol = variable(stmt.id, stmt.name);
+        Type type = parallel != null && parallel.reductions.contains(symbol)
+                ? analyzeReduction(stmt, symbol)
+                : analyzeExpr(stmt.value);
+        // Values of type any are checked when they are stored, integers stored into floats are converted
+        if (symbol.getType() != Type.ANY && type != Type.ANY && symbol.getType() != type
+                && !(symbol.getType() == Type.NUMBER && type == Type.INTEGER) && !widen(symbol)) {
+            throw new SemanticError("Cannot assign " + type.withArticle() + " to '" + stmt.name + "', which holds "
+                    + symbol.getType().withArticle() + ".");
+        }
+        expectWritable(symbol, stmt.name);
+        if (function != null && symbol.getFrameLevel() == 0) {
+            function.writesShared = true;
+        }
+        stmt.depth = symbolTable.getFrameLevel() - symbol.getFrameLevel();
+        stmt.slot = symbol.getSlot();
+        stmt.type = symbol.getType();
+    }
+
+    // Iterations update private copies of a reduction variable, so its value is only meaningful once the loop
+    // combined them. A sum can only be added to, as in t = t + e, and a minimum or maximum only replaced by a
+    // smaller or larger value under the matching comparison, where e does not read the variable.
+    private Type analyzeReduction(AssignStmt stmt, Symbol symbol) {
+        String operator = parallel.operator(symbol);
+        if (operator.equals("sum") && stmt.value instanceof BinaryExpr) {
+            BinaryExpr value = (BinaryExpr) stmt.value;
+            if (value.operator.equals("+") && isVariable(value.left, symbol)) {
+                Type left = analyzeVariable((IdentifierExpr) value.left);
+                Type right = analyzeExpr(value.right);
+                value.type = binaryType(value.operator, left, right);
+                return value.type;
+            }
+        } else if (!operator.equals("sum") && stmt == guardedUpdate) {
+            return analyzeExpr(stmt.value);
+        }
+        throw reductionError(symbol, operator);
+    }
+
+    // Analyzes if (e < t) { t = e; } for a min reduction t, or the same with > for max
+    private boolean analyzeGuardedUpdate(IfStmt stmt) {
+        Stmt update = stmt.thenBranch;
+        if (update instanceof BlockStmt && ((BlockStmt) update).statements.size() == 1) {
+            update = ((BlockStmt) update).statements.get(0);
+        }
+        if (stmt.elseBranch != null || !(update instanceof AssignStmt) || !(stmt.condition instanceof BinaryExpr)) {
+            return false;
+        }
+        AssignStmt assign = (AssignStmt) update;
+        BinaryExpr condition = (BinaryExpr) stmt.condition;
+        Symbol symbol = symbolTable.resolve(assign.id, assign.name);
+        if (!parallel.reductions.contains(symbol)) {
+            return false;
+        }
+        boolean lessThan = condition.operator.equals("<") || condition.operator.equals("<=");
+        boolean greaterThan = condition.operator.equals(">") || condition.operator.equals(">=");
+        boolean variableLeft = isVariable(condition.left, symbol) && sameExpr(condition.right, assign.value);
+        boolean variableRight = isVariable(condition.right, symbol) && sameExpr(condition.left, assign.value);
+        if (!(lessThan || greaterThan) || variableLeft == variableRight) {
+            return false;
+        }
+        // e < t and t > e both keep the smaller value
+        String kept = lessThan == variableRight ? "min" : "max";
+        if (!parallel.operator(symbol).equals(kept)) {
+            return false;
+        }
+        Type left = variableLeft ? analyzeVariable((IdentifierExpr) condition.left) : analyzeExpr(condition.left);
+        Type right = variableRight ? analyzeVariable((IdentifierExpr) condition.right) : analyzeExpr(condition.right);
+        condition.type = binaryType(condition.operator, left, right);
+        guardedUpdate = assign;
+        analyze(stmt.thenBranch);
+        guardedUpdate = null;
+        return true;
+    }
+
+    private boolean isVariable(Expr expr, Symbol symbol) {
+        return expr instanceof IdentifierExpr
+                && symbolTable.resolve(((IdentifierExpr) expr).id, ((IdentifierExpr) expr).name) == symbol;
+    }
+
+    // Expressions that compute the same value; calls and other expressions with effects never match
+    private static boolean sameExpr(Expr a, Expr b) {
+        if (a instanceof LiteralExpr && b instanceof LiteralExpr) {
+            return ((LiteralExpr) a).value.equals(((LiteralExpr) b).value);
+        } else if (a instanceof IdentifierExpr && b instanceof IdentifierExpr) {
+            return ((IdentifierExpr) a).id == ((IdentifierExpr) b).id;
+        } else if (a instanceof BinaryExpr && b instanceof BinaryExpr) {
+            BinaryExpr left = (BinaryExpr) a;
+            BinaryExpr right = (BinaryExpr) b;
+            return left.operator.equals(right.operator) && sameExpr(left.left, right.left)
+                    && sameExpr(left.right, right.right);
+        } else if (a instanceof UnaryExpr && b instanceof UnaryExpr) {
+            return ((UnaryExpr) a).operator.equals(((UnaryExpr) b).operator)
+                    && sameExpr(((UnaryExpr) a).right, ((UnaryExpr) b).right);
+        } else if (a instanceof IndexExpr && b instanceof IndexExpr) {
+            return sameExpr(((IndexExpr) a).array, ((IndexExpr) b).array)
+                    && sameExpr(((IndexExpr) a).index, ((IndexExpr) b).index);
+        } else if (a instanceof LengthExpr && b instanceof LengthExpr) {
+            return sameExpr(((LengthExpr) a).array, ((LengthExpr) b).array);
+        }
+        return false;
+    }
+
+    private SemanticError reductionError(Symbol symbol, String operator) {
+        ParallelContext context = parallel;
+        while (!context.reductions.contains(symbol)) {
+            context = context.enclosing;
+        }
+        String name = symbol.getName();
+        String shape = switch (operator) {
+            case "sum" -> "add to '" + name + "', as in " + name + " = " + name + " + value";
+            case "min" -> "lower '" + name + "', as in if (value < " + name + ") { " + name + " = value; }";
+            default -> "raise '" + name + "', as in if (value > " + name + ") { " + name + " = value; }";
+        };
+        return new SemanticError("The parallel loop on line " + context.stmt.getLine() + " can only " + shape + ".");
+    }
+
+    // Widens an integer variable that is assigned a float. A declaration widened by an earlier pass that is still an
+    // integer lies outside the statements being analyzed, so it cannot be widened.
+    private boolean widen(Symbol symbol) {
+        if (symbol.getType() != Type.INTEGER || symbol.getValue() == null) {
+            return false;
+        }
+        Integer widenedIn = widened.putIfAbsent(symbol.getValue(), pass);
+        widenedInPass |= widenedIn == null;
+        return widenedIn == null || widenedIn == pass;
+    }
+
+    private void analyzeIndexAssignStmt(IndexAssignStmt stmt) {
+        // Naming the array to assign an element does not read it
+        expectArray(analyzeVariable(stmt.array));
+        expectNumber("[]", analyzeExpr(stmt.index));
+        expectElement(analyzeExpr(stmt.value));
+        // Arrays are shared by reference, so iterations may only write the element their own index picks out.
+        // Iterations of an outer parallel loop would share those elements too.
+        if (parallel != null && (parallel.enclosing != null || !isLoopVariable(stmt.index, parallel))) {
+            throw new SemanticError("The parallel loop on line " + parallel.stmt.getLine() + " can only assign "
+                    + "array elements at its own index, as in " + stmt.array.name + "[" + parallel.stmt.variable
+                    + "].");
+        }
+        if (parallel != null) {
+            Symbol array = variable(stmt.array.id, stmt.array.name);
+            if (isShared(array, parallel)) {
+                parallel.writtenArrays.add(array);
+            }
+        }
+        if (function != null) {
+            function.writesShared = true;
+        }
+    }
+
+    private boolean isLoopVariable(Expr expr, ParallelContext context) {
+        if (!(expr instanceof IdentifierExpr)) {
+            return false;
+        }
+        IdentifierExpr identifier = (IdentifierExpr) expr;
+        return symbolTable.resolve(identifier.id, identifier.name) == context.variable;
+    }
+
+    // Whether the iterations of the loop share the variable, rather than each having its own
+    private boolean isShared(Symbol symbol, ParallelContext context) {
+        return symbol.getFrameLevel() != context.frameLevel || symbol.getSlot() < context.variable.getSlot();
+    }
+
+    // Records a use of a variable inside parallel loops that may read elements other iterations write: anything
+    // but an element at the loop's own index. The loop checks these against the arrays it writes once its body
+    // has been analyzed, since a write may come after the read.
+    private void recordRead(Symbol symbol, Expr index) {
+        for (ParallelContext context = parallel; context != null; context = context.enclosing) {
+            if (isShared(symbol, context) && (index == null || !isLoopVariable(index, context))) {
+                context.readVariables.add(symbol);
+            }
+        }
+    }
+
+    // Outside the iteration's own variables, a parallel loop body may only assign its reduction variables
+    private void expectWritable(Symbol symbol, String name) {
+        if (parallel == null || parallel.reductions.contains(symbol)) {
+            return;
+        }
+        if (isShared(symbol, parallel)) {
+            throw new SemanticError("The parallel loop on line " + parallel.stmt.getLine() + " cannot assign '"
+                    + name + "', which its iterations share; declare it inside the loop or reduce it.");
+        }
+    }
+
+    private void analyzeFunctionDeclStmt(FunctionDeclStmt stmt) {
+        if (!symbolTable.isGlobalScope()) {
+            throw new SemanticError("Function '" + stmt.name + "' must be declared at the top level.");
+        }
+        // Functions take a global slot like variables do, which keeps global slots in declaration order. The
+        // symbol is declared before the body is analyzed so that the function can call itself.
+        stmt.slot = symbolTable.allocateSlot();
+        stmt.returnsValue = alwaysReturns(stmt.body);
+        symbolTable.declare(new Symbol(stmt, stmt.slot));
+
+        symbolTable.pushFrame();
+        for (int i = 0; i < stmt.parameters.size(); i++) {
+            // Arguments can be anything, so parameters have no static type
+            symbolTable.declare(new Symbol(stmt.parameters.get(i), stmt.parameterIds[i], Type.ANY, false, null,
+                    symbolTable.getFrameLevel(), symbolTable.allocateSlot()));
+        }
+        // Loops around the call site do not count inside the body
+        int enclosingLoops = loopDepth;
+        loopDepth = 0;
+        function = stmt;
+        for (Stmt innerStmt : stmt.body) {
+            analyze(innerStmt);
+        }
+        function = null;
+        loopDepth = enclosingLoops;
+        stmt.frameSize = symbolTable.popFrame();
+    }
+
+    private boolean alwaysReturns(List<Stmt> statements) {
+        for (Stmt stmt : statements) {
+            if (alwaysReturns(stmt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean alwaysReturns(Stmt stmt) {
+        if (stmt instanceof ReturnStmt) {
+            return true;
+        } else if (stmt instanceof BlockStmt) {
+            return alwaysReturns(((BlockStmt) stmt).statements);
+        } else if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            return ifStmt.elseBranch != null && alwaysReturns(ifStmt.thenBranch) && alwaysReturns(ifStmt.elseBranch);
+        }
+        return false;
     }
 
     private void analyzeBlockStmt(BlockStmt stmt) {
@@ -46,6 +379,9 @@ public class SemanticAnalyzer {
     }
 
     private void analyzeIfStmt(IfStmt stmt) {
+        if (parallel != null && analyzeGuardedUpdate(stmt)) {
+            return;
+        }
         analyzeExpr(stmt.condition);
         analyze(stmt.thenBranch);
         if (stmt.elseBranch != null) {
@@ -54,20 +390,338 @@ public class SemanticAnalyzer {
     }
 
     private void analyzeReturnStmt(ReturnStmt stmt) {
+        if (parallel != null) {
+            throw new SemanticError("'return' cannot leave the parallel loop on line " + parallel.stmt.getLine()
+                    + ".");
+        }
         analyzeExpr(stmt.value);
     }
 
-    private void analyzeExpr(Expr expr) {
+    private void analyzeWhileStmt(WhileStmt stmt) {
+        analyzeExpr(stmt.getCondition());
+        loopDepth++;
+        analyze(stmt.getBody());
+        loopDepth--;
+    }
+
+    private void analyzeParallelStmt(ParallelStmt stmt) {
+        expectInteger("The start of a parallel range", analyzeExpr(stmt.start));
+        expectInteger("The end of a parallel range", analyzeExpr(stmt.end));
+        List<Symbol> reductions = new ArrayList<>();
+        for (IdentifierExpr reduction : stmt.reductions) {
+            // Naming the variable does not read it
+            Type type = analyzeVariable(reduction);
+            Symbol symbol = variable(reduction.id, reduction.name);
+            if (!type.isNumeric()) {
+                throw new SemanticError("Only numbers can be reduced, and '" + reduction.name + "' holds "
+                        + type.withArticle() + ".");
+            }
+            if (reductions.contains(symbol)) {
+                throw new SemanticError("'" + reduction.name + "' is reduced more than once.");
+            }
+            // The loop writes the combined value, so an enclosing parallel loop has to allow that
+            expectWritable(symbol, reduction.name);
+            reductions.add(symbol);
+        }
+
+        // The loop variable and everything the body declares live in the scope of one iteration. The two slots
+        // after the loop variable are for engines that run the range as a sequential loop.
+        symbolTable.pushScope();
+        int frameLevel = symbolTable.getFrameLevel();
+        stmt.slot = symbolTable.allocateSlot();
+        stmt.counterSlot = symbolTable.allocateSlot();
+        stmt.endSlot = symbolTable.allocateSlot();
+        Symbol variable = new Symbol(stmt.variable, stmt.variableId, Type.INTEGER, false, null, frameLevel, stmt.slot);
+        symbolTable.declare(variable);
+        ParallelContext enclosing = parallel;
+        parallel = new ParallelContext(stmt, frameLevel, variable, reductions, stmt.reductionOperators, enclosing);
+        // Loops around the parallel loop cannot be left from inside it
+        int enclosingLoops = loopDepth;
+        loopDepth = 0;
+        analyze(stmt.body);
+        for (Symbol array : parallel.writtenArrays) {
+            if (parallel.readVariables.contains(array)) {
+                throw new SemanticError("The parallel loop on line " + stmt.getLine() + " assigns elements of '"
+                        + array.getName() + "', so it can only read them at its own index, as in "
+                        + array.getName() + "[" + stmt.variable + "].");
+            }
+        }
+        loopDepth = enclosingLoops;
+        parallel = enclosing;
+        symbolTable.popScope();
+    }
+
+    private void expectLoop(String keyword, Token token) {
+        if (loopDepth == 0) {
+            throw new SemanticError("'" + keyword + "' outside of a loop on line " + token.getLine() + ".");
+        }
+    }
+
+    private Type analyzeExpr(Expr expr) {
+        expr.type = inferType(expr);
+        return expr.type;
+    }
+
+    private Type inferType(Expr expr) {
         if (expr instanceof IdentifierExpr) {
             IdentifierExpr identifier = (IdentifierExpr) expr;
-            symbolTable.resolve(identifier.name);
+            Symbol symbol = variable(identifier.id, identifier.name);
+            for (ParallelContext context = parallel; context != null; context = context.enclosing) {
+                if (context.reductions.contains(symbol)) {
+                    throw reductionError(symbol, context.operator(symbol));
+                }
+            }
+            recordRead(symbol, null);
+            return analyzeVariable(identifier);
         } else if (expr instanceof BinaryExpr) {
             BinaryExpr binaryExpr = (BinaryExpr) expr;
-            analyzeExpr(binaryExpr.left);
-            analyzeExpr(binaryExpr.right);
+            Type left = analyzeExpr(binaryExpr.left);
+            Type right = analyzeExpr(binaryExpr.right);
+            return binaryType(binaryExpr.operator, left, right);
+        } else if (expr instanceof UnaryExpr) {
+            UnaryExpr unaryExpr = (UnaryExpr) expr;
+            Type operand = analyzeExpr(unaryExpr.right);
+            return arithmeticType(unaryExpr.operator, operand, operand);
         } else if (expr instanceof LiteralExpr) {
-            // Literal expressions don't require analysis
+            return literalType(((LiteralExpr) expr).value);
+        } else if (expr instanceof CallExpr) {
+            return analyzeCall((CallExpr) expr, true);
+        } else if (expr instanceof ArrayLiteralExpr) {
+            for (Expr element : ((ArrayLiteralExpr) expr).elements) {
+                expectElement(analyzeExpr(element));
+            }
+            return Type.ARRAY;
+        } else if (expr instanceof IndexExpr) {
+            IndexExpr index = (IndexExpr) expr;
+            if (index.array instanceof IdentifierExpr) {
+                IdentifierExpr array = (IdentifierExpr) index.array;
+                expectArray(analyzeVariable(array));
+                recordRead(variable(array.id, array.name), index.index);
+            } else {
+                expectArray(analyzeExpr(index.array));
+            }
+            expectNumber("[]", analyzeExpr(index.index));
+            return Type.NUMBER;
+        } else if (expr instanceof LengthExpr) {
+            // The length of an array never changes, so taking it does not read any element
+            Expr array = ((LengthExpr) expr).array;
+            Type type = array instanceof IdentifierExpr ? analyzeVariable((IdentifierExpr) array) : analyzeExpr(array);
+            if (type != Type.ARRAY && type != Type.STRING && type != Type.ANY) {
+                throw new SemanticError("Only arrays and strings have a length, not " + type.withArticle() + ".");
+            }
+            return Type.INTEGER;
+        } else if (expr instanceof SpawnExpr) {
+            expectTasksAllowed("spawn tasks");
+            // Like a call statement: the function only has to return a value if a join uses it
+            analyzeCall(((SpawnExpr) expr).call, false);
+            return Type.TASK;
+        } else if (expr instanceof JoinExpr) {
+            return analyzeJoin((JoinExpr) expr, true);
+        } else if (expr instanceof ChannelExpr) {
+            usesTasks = true;
+            expectInteger("A channel capacity", analyzeExpr(((ChannelExpr) expr).capacity));
+            return Type.CHANNEL;
+        } else if (expr instanceof SendExpr) {
+            throw new SemanticError("'send' does not produce a value.");
+        } else if (expr instanceof ReceiveExpr) {
+            expectTasksAllowed("receive from channels");
+            expectChannel(analyzeExpr(((ReceiveExpr) expr).channel));
+            return Type.ANY;
         }
         // Add more cases for other expression types
+        return Type.ANY;
+    }
+
+    private Type analyzeCall(CallExpr call, boolean valueUsed) {
+        Symbol symbol = symbolTable.resolveFunction(call.calleeId, call.callee);
+        if (!symbol.isFunction()) {
+            throw new SemanticError("'" + call.callee + "' is not a function.");
+        }
+        FunctionDeclStmt function = symbol.getFunction();
+        if (call.arguments.size() != function.parameters.size()) {
+            throw new SemanticError("Function '" + call.callee + "' expects " + function.parameters.size()
+                    + " arguments but got " + call.arguments.size() + ".");
+        }
+        if (valueUsed && !function.returnsValue) {
+            throw new SemanticError("Function '" + call.callee + "' does not return a value on every path.");
+        }
+        for (Expr argument : call.arguments) {
+            analyzeExpr(argument);
+        }
+        if (function.writesShared) {
+            if (parallel != null) {
+                throw new SemanticError("The parallel loop on line " + parallel.stmt.getLine() + " cannot call '"
+                        + call.callee + "', which assigns globals or array elements or uses tasks.");
+            }
+            if (this.function != null) {
+                this.function.writesShared = true;
+            }
+        }
+        call.function = function;
+        // Functions can return anything
+        return Type.ANY;
+    }
+
+    private Type analyzeJoin(JoinExpr join, boolean valueUsed) {
+        expectTasksAllowed("join tasks");
+        Type type = analyzeExpr(join.task);
+        if (type != Type.TASK && type != Type.ANY) {
+            throw new SemanticError("Only tasks can be joined, not " + type.withArticle() + ".");
+        }
+        join.valueUsed = valueUsed;
+        // Tasks can return anything
+        return Type.ANY;
+    }
+
+    private void analyzeSend(SendExpr send) {
+        expectTasksAllowed("send to channels");
+        expectChannel(analyzeExpr(send.channel));
+        analyzeExpr(send.value);
+        send.type = Type.ANY;
+    }
+
+    // Tasks run alongside the iterations of a parallel loop and could wait on them, so neither the loop nor a
+    // function it calls may use them
+    private void expectTasksAllowed(String what) {
+        usesTasks = true;
+        if (parallel != null) {
+            throw new SemanticError("The parallel loop on line " + parallel.stmt.getLine() + " cannot " + what
+                    + ".");
+        }
+        if (function != null) {
+            function.writesShared = true;
+        }
+    }
+
+    // Resolves a variable without the checks on reading it
+    private Type analyzeVariable(IdentifierExpr identifier) {
+        Symbol symbol = variable(identifier.id, identifier.name);
+        identifier.depth = symbolTable.getFrameLevel() - symbol.getFrameLevel();
+        identifier.slot = symbol.getSlot();
+        identifier.type = symbol.getType();
+        return identifier.type;
+    }
+
+    private Symbol variable(int id, String name) {
+        Symbol symbol = symbolTable.resolve(id, name);
+        if (symbol.isFunction()) {
+            throw new SemanticError("'" + name + "' is a function, not a variable.");
+        }
+        return symbol;
+    }
+
+    public static Type literalType(Object value) {
+        if (value instanceof Double) {
+            return Type.NUMBER;
+        } else if (Numbers.isInteger(value)) {
+            return Type.INTEGER;
+        } else if (value instanceof Boolean) {
+            return Type.BOOLEAN;
+        } else if (value instanceof LumaString) {
+            return Type.STRING;
+        }
+        return Type.ANY;
+    }
+
+    private Type binaryType(String operator, Type left, Type right) {
+        switch (operator) {
+            case "==", "!=" -> {
+                return Type.BOOLEAN;
+            }
+            case "+", "-", "*", "/" -> {
+                return arithmeticType(operator, left, right);
+            }
+            case ">", "<", ">=", "<=" -> {
+                expectNumber(operator, left);
+                expectNumber(operator, right);
+                return Type.BOOLEAN;
+            }
+            default -> throw new SemanticError("Unknown operator: " + operator);
+        }
+    }
+
+    // Arithmetic is element-wise as soon as one operand is an array. An operand of unknown type could be an array
+    // or a string at runtime, so the result is only known to be a number when both operands are. Integer
+    // arithmetic stays exact; division, or a float on either side, gives a float.
+    private Type arithmeticType(String operator, Type left, Type right) {
+        // A string on either side makes + a concatenation, which accepts anything on the other side
+        if (operator.equals("+") && (left == Type.STRING || right == Type.STRING)) {
+            return Type.STRING;
+        }
+        expectNumberOrArray(operator, left);
+        expectNumberOrArray(operator, right);
+        if (left == Type.ARRAY || right == Type.ARRAY) {
+            return Type.ARRAY;
+        }
+        if (!left.isNumeric() || !right.isNumeric()) {
+            return Type.ANY;
+        }
+        return left == Type.INTEGER && right == Type.INTEGER && !operator.equals("/") ? Type.INTEGER : Type.NUMBER;
+    }
+
+    private void expectNumberOrArray(String operator, Type type) {
+        if (!type.isNumeric() && type != Type.ARRAY && type != Type.ANY) {
+            throw new SemanticError("Operator '" + operator + "' expects numbers or arrays but got "
+                    + type.withArticle() + ".");
+        }
+    }
+
+    private void expectInteger(String what, Type type) {
+        if (type != Type.INTEGER && type != Type.ANY) {
+            throw new SemanticError(what + " must be an integer, not " + type.withArticle() + ".");
+        }
+    }
+
+    private void expectChannel(Type type) {
+        if (type != Type.CHANNEL && type != Type.ANY) {
+            throw new SemanticError("Expected a channel but got " + type.withArticle() + ".");
+        }
+    }
+
+    private void expectArray(Type type) {
+        if (type != Type.ARRAY && type != Type.ANY) {
+            throw new SemanticError("Only arrays can be indexed, not " + type.withArticle() + ".");
+        }
+    }
+
+    private void expectElement(Type type) {
+        if (!type.isNumeric() && type != Type.ANY) {
+            throw new SemanticError("Arrays hold numbers, not " + type.withArticle() + ".");
+        }
+    }
+
+    private void expectNumber(String operator, Type type) {
+        if (!type.isNumeric() && type != Type.ANY) {
+            throw new SemanticError("Operator '" + operator + "' expects numbers but got " + type.withArticle() + ".");
+        }
+    }
+
+    private static final class ParallelContext {
+        final ParallelStmt stmt;
+        // Variables of this frame from the loop variable's slot up belong to one iteration
+        final int frameLevel;
+        final Symbol variable;
+        final List<Symbol> reductions;
+        // "sum", "min" or "max" for each reduction variable
+        final List<String> operators;
+        // Shared arrays the body assigns elements of, and shared variables it uses other than as the array of an
+        // element at the loop's own index
+        final Set<Symbol> writtenArrays = new HashSet<>();
+        final Set<Symbol> readVariables = new HashSet<>();
+        final ParallelContext enclosing;
+
+        ParallelContext(ParallelStmt stmt, int frameLevel, Symbol variable, List<Symbol> reductions,
+                        List<String> operators, ParallelContext enclosing) {
+            this.stmt = stmt;
+            this.frameLevel = frameLevel;
+            this.variable = variable;
+            this.reductions = reductions;
+            this.operators = operators;
+            this.enclosing = enclosing;
+        }
+
+        String operator(Symbol symbol) {
+            return operators.get(reductions.indexOf(symbol));
+        }
     }
 }
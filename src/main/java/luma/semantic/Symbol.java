@@ -1,25 +1,51 @@
 package luma.semantic;
 
 import luma.parser.Expr;
+import luma.parser.FunctionDeclStmt;
 
 public class Symbol {
     private final String name;
-    private final String type;
+    // Interned id of the name, which SymbolTable is keyed on
+    private final int id;
+    private final Type type;
     private final boolean isFunction;
     private final Expr value;
+    // Declaration of a function symbol, null for variables
+    private final FunctionDeclStmt function;
+    private final int frameLevel;
+    private final int slot;
 
-    public Symbol(String name, String type, boolean isFunction, Expr value) {
+    public Symbol(String name, int id, Type type, boolean isFunction, Expr value, int frameLevel, int slot) {
         this.name = name;
+        this.id = id;
         this.type = type;
         this.isFunction = isFunction;
         this.value = value;
+        this.function = null;
+        this.frameLevel = frameLevel;
+        this.slot = slot;
+    }
+
+    public Symbol(FunctionDeclStmt function, int slot) {
+        this.name = function.name;
+        this.id = function.id;
+        this.type = Type.ANY;
+        this.isFunction = true;
+        this.value = null;
+        this.function = function;
+        this.frameLevel = 0;
+        this.slot = slot;
     }
 
     public String getName() {
         return name;
     }
 
-    public String getType() {
+    public int getId() {
+        return id;
+    }
+
+    public Type getType() {
         return type;
     }
 
@@ -30,4 +56,16 @@ public class Symbol {
     public Expr getValue() {
         return value;
     }
+
+    public FunctionDeclStmt getFunction() {
+        return function;
+    }
+
+    public int getFrameLevel() {
+        return frameLevel;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
 }
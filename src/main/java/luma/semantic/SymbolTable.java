@@ -1,42 +1,237 @@
 package luma.semantic;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
+// Symbols keyed on the interned ids of their names. Each id maps straight to the innermost symbol in scope, and
+// declaring a symbol logs the one it shadows, so declaring, resolving and leaving a scope touch nothing but arrays
+// indexed by id, however deep the nesting.
 public class SymbolTable {
-    private final Stack<Map<String, Symbol>> scopes;
+    // Innermost symbol for each id and the scope that declared it; null when nothing is in scope
+    private Symbol[] visible = new Symbol[64];
+    private int[] visibleScopes = new int[64];
+    // One entry per declaration still in scope: the id, and the symbol and scope it shadowed
+    private int[] declaredIds = new int[64];
+    private Symbol[] shadowed = new Symbol[64];
+    private int[] shadowedScopes = new int[64];
+    private int declarations = 0;
+    // Per open scope, 0 being the global one: the number of declarations and the next free slot when it was
+    // entered, so leaving it undoes its declarations and hands its slots back
+    private int[] scopeDeclarations = new int[16];
+    private int[] scopeStartSlots = new int[16];
+    private int scope = 0;
+    // Globals declared in this table, in declaration and so slot order
+    private final List<Symbol> globals = new ArrayList<>();
+    // Globals from an earlier analysis by id; those with a slot below inheritedSlots are in scope. Global slots
+    // follow declaration order, so this makes a prefix of an earlier program visible without copying it.
+    private final Symbol[] inheritedGlobals;
+    private final int inheritedSlots;
+    private int frameLevel = 0;
+    private int nextSlot;
+    // Highest slot count the current frame has needed so far
+    private int frameSize;
+    // Slot state of the enclosing frames while a function body is analyzed: next slot and frame size per level
+    private int[] enclosingFrames = new int[8];
+    // Names resolve() found no declaration for, by id in the order of their first use; null unless allowed
+    private Map<Integer, Symbol> freeNames;
 
     public SymbolTable() {
-        scopes = new Stack<>();
-        pushScope(); // Add the global scope
+        this(new Symbol[0], 0);
+    }
+
+    public SymbolTable(Symbol[] inheritedGlobals, int inheritedSlots) {
+        this.inheritedGlobals = inheritedGlobals;
+        this.inheritedSlots = inheritedSlots;
+        nextSlot = inheritedSlots;
+        frameSize = inheritedSlots;
+        scopeStartSlots[0] = nextSlot;
+    }
+
+    // Records the state of the global scope, which reset returns to
+    public Mark mark() {
+        if (scope != 0 || frameLevel != 0) {
+            throw new IllegalStateException("Only the global scope can be marked.");
+        }
+        return new Mark(declarations, globals.size(), nextSlot, frameSize);
+    }
+
+    // Forgets everything declared since the mark, in whatever scope or frame
+    public void reset(Mark mark) {
+        while (declarations > mark.declarations) {
+            declarations--;
+            int id = declaredIds[declarations];
+            visible[id] = shadowed[declarations];
+            visibleScopes[id] = shadowedScopes[declarations];
+            shadowed[declarations] = null;
+        }
+        globals.subList(mark.globals, globals.size()).clear();
+        scope = 0;
+        frameLevel = 0;
+        nextSlot = mark.nextSlot;
+        frameSize = mark.frameSize;
     }
 
     public void pushScope() {
-        scopes.push(new HashMap<>());
+        scope++;
+        if (scope == scopeDeclarations.length) {
+            scopeDeclarations = Arrays.copyOf(scopeDeclarations, scope * 2);
+            scopeStartSlots = Arrays.copyOf(scopeStartSlots, scope * 2);
+        }
+        scopeDeclarations[scope] = declarations;
+        scopeStartSlots[scope] = nextSlot;
     }
 
     public void popScope() {
-        if (scopes.size() > 1) {
-            scopes.pop();
-        } else {
+        if (scope == 0) {
             throw new IllegalStateException("Cannot remove the global scope.");
         }
+        while (declarations > scopeDeclarations[scope]) {
+            declarations--;
+            int id = declaredIds[declarations];
+            visible[id] = shadowed[declarations];
+            visibleScopes[id] = shadowedScopes[declarations];
+            shadowed[declarations] = null;
+        }
+        nextSlot = scopeStartSlots[scope];
+        scope--;
+    }
+
+    // Starts a function body: a new frame whose slots are numbered from 0, in a scope of its own
+    public void pushFrame() {
+        if (2 * frameLevel + 2 > enclosingFrames.length) {
+            enclosingFrames = Arrays.copyOf(enclosingFrames, enclosingFrames.length * 2);
+        }
+        enclosingFrames[2 * frameLevel] = nextSlot;
+        enclosingFrames[2 * frameLevel + 1] = frameSize;
+        frameLevel++;
+        nextSlot = 0;
+        frameSize = 0;
+        pushScope();
     }
 
-    public void declare(String name, Symbol symbol) {
-        if (scopes.peek().containsKey(name)) {
-            throw new SemanticError("Variable or function '" + name + "' is already declared in this scope.");
+    // Ends the current function body and returns the number of slots its frame needs
+    public int popFrame() {
+        if (frameLevel == 0) {
+            throw new IllegalStateException("Cannot remove the global frame.");
         }
-        scopes.peek().put(name, symbol);
+        popScope();
+        int size = frameSize;
+        frameLevel--;
+        nextSlot = enclosingFrames[2 * frameLevel];
+        frameSize = enclosingFrames[2 * frameLevel + 1];
+        return size;
+    }
+
+    public int allocateSlot() {
+        int slot = nextSlot++;
+        frameSize = Math.max(frameSize, nextSlot);
+        return slot;
+    }
+
+    public boolean isGlobalScope() {
+        return scope == 0;
+    }
+
+    public int getFrameLevel() {
+        return frameLevel;
     }
 
-    public Symbol resolve(String name) {
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name)) {
-                return scopes.get(i).get(name);
-            }
+    public void declare(Symbol symbol) {
+        int id = symbol.getId();
+        if (id >= visible.length) {
+            int capacity = Math.max(visible.length * 2, id + 1);
+            visible = Arrays.copyOf(visible, capacity);
+            visibleScopes = Arrays.copyOf(visibleScopes, capacity);
+        }
+        if (visible[id] != null && visibleScopes[id] == scope || scope == 0 && inherited(id) != null) {
+            throw new SemanticError("Variable or function '" + symbol.getName()
+                    + "' is already declared in this scope.");
+        }
+        if (scope == 0 && frameLevel == 0 && freeNames != null && freeNames.containsKey(id)) {
+            throw new SemanticError("Variable or function '" + symbol.getName() + "' is used before it is declared.");
+        }
+        if (declarations == declaredIds.length) {
+            declaredIds = Arrays.copyOf(declaredIds, declarations * 2);
+            shadowed = Arrays.copyOf(shadowed, declarations * 2);
+            shadowedScopes = Arrays.copyOf(shadowedScopes, declarations * 2);
+        }
+        declaredIds[declarations] = id;
+        shadowed[declarations] = visible[id];
+        shadowedScopes[declarations] = visibleScopes[id];
+        declarations++;
+        visible[id] = symbol;
+        visibleScopes[id] = scope;
+        if (scope == 0) {
+            globals.add(symbol);
+        }
+    }
+
+    // From now on a name with no declaration in scope resolves to a global of unknown type instead of failing.
+    // Such globals have no slot; they are only collected, for getFreeNames().
+    public void allowFreeNames() {
+        freeNames = new LinkedHashMap<>();
+    }
+
+    public List<Symbol> getFreeNames() {
+        return freeNames == null ? List.of() : new ArrayList<>(freeNames.values());
+    }
+
+    public int getGlobalCount() {
+        return inheritedSlots + globals.size();
+    }
+
+    // Globals declared in this table, in slot order; inherited ones are not included
+    public List<Symbol> getGlobals() {
+        return new ArrayList<>(globals);
+    }
+
+    // The name is only used for the error message
+    public Symbol resolve(int id, String name) {
+        Symbol symbol = declared(id);
+        if (symbol != null) {
+            return symbol;
+        }
+        if (freeNames != null) {
+            return freeNames.computeIfAbsent(id, key -> new Symbol(name, id, Type.ANY, false, null, 0, -1));
         }
         throw new SemanticError("Variable or function '" + name + "' is not declared.");
     }
+
+    // Like resolve, for a name that is called: free names are never functions
+    public Symbol resolveFunction(int id, String name) {
+        Symbol symbol = declared(id);
+        if (symbol == null) {
+            throw new SemanticError("Variable or function '" + name + "' is not declared.");
+        }
+        return symbol;
+    }
+
+    private Symbol declared(int id) {
+        if (id < visible.length && visible[id] != null) {
+            return visible[id];
+        }
+        return inherited(id);
+    }
+
+    private Symbol inherited(int id) {
+        Symbol symbol = id < inheritedGlobals.length ? inheritedGlobals[id] : null;
+        return symbol != null && symbol.getSlot() < inheritedSlots ? symbol : null;
+    }
+
+    public static final class Mark {
+        private final int declarations;
+        private final int globals;
+        private final int nextSlot;
+        private final int frameSize;
+
+        private Mark(int declarations, int globals, int nextSlot, int frameSize) {
+            this.declarations = declarations;
+            this.globals = globals;
+            this.nextSlot = nextSlot;
+            this.frameSize = frameSize;
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package luma.semantic;
+
+import luma.runtime.ArrayMath;
+import luma.runtime.LumaChannel;
+import luma.runtime.LumaString;
+import luma.runtime.LumaTask;
+import luma.runtime.Numbers;
+
+public enum Type {
+    // A float; integers have a type of their own
+    NUMBER("number"),
+    INTEGER("integer"),
+    BOOLEAN("boolean"),
+    ARRAY("array"),
+    STRING("string"),
+    TASK("task"),
+    CHANNEL("channel"),
+    ANY("any");
+
+    private final String name;
+
+    Type(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // "a number", "an array"
+    public String withArticle() {
+        if (this == ANY) {
+            return "a value of any type";
+        }
+        return ("aeiou".indexOf(name.charAt(0)) >= 0 ? "an " : "a ") + name;
+    }
+
+    public boolean isNumeric() {
+        return this == NUMBER || this == INTEGER;
+    }
+
+    // Checks a value whose type was not known statically before it is stored into a variable of this type, so
+    // reads of the variable can trust its type. An integer stored into a float variable is converted.
+    public Object coerce(Object value) {
+        boolean matches = switch (this) {
+            case NUMBER -> Numbers.isNumber(value);
+            case INTEGER -> Numbers.isInteger(value);
+            case BOOLEAN -> value instanceof Boolean;
+            case ARRAY -> value instanceof double[];
+            case STRING -> value instanceof LumaString;
+            case TASK -> value instanceof LumaTask;
+            case CHANNEL -> value instanceof LumaChannel;
+            case ANY -> true;
+        };
+        if (!matches) {
+            throw new RuntimeException("Cannot assign " + ArrayMath.describe(value) + " to a variable that holds "
+                    + withArticle() + ".");
+        }
+        return this == NUMBER ? (Object) Numbers.toDouble(value) : value;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
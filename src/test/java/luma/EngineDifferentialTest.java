@@ -0,0 +1,205 @@
+package luma;
+
+import luma.codegen.CodeGenerator;
+import luma.codegen.JvmCompiler;
+import luma.codegen.VirtualMachine;
+import luma.interpreter.Interpreter;
+import luma.interpreter.node.NodeBuilder;
+import luma.lexer.Lexer;
+import luma.optimizer.Optimizer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.runtime.ArrayMath;
+import luma.semantic.SemanticAnalyzer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs each program on the tree interpreter and on the VM, whose IR passes must not change what a program returns
+// or the error it fails with. Programs without functions, arrays, strings or tasks also run on the node engine and
+// the JVM backend.
+class EngineDifferentialTest {
+    static Stream<String> scalarPrograms() {
+        return Stream.of(
+                // Integers that outgrow a long, which the JVM backend hands over to the VM
+                "var a = 9223372036854775807; var b = a + 1; var c = b - 1; return b * 2 - c;",
+                "var x = 1; var i = 0; while (i < 70) { x = x * 2; i = i + 1; } return x;",
+                "var a = -9223372036854775807; var b = a - 1; return -b;",
+                "var a = 92233720368547758070; return a - 1;",
+                // Mixed arithmetic
+                "var x = 3; var y = x * -1; var z = x / 4; return y + z + x * 2.5;",
+                "var i = 0; var s = 0; while (i < 100) { s = s + i * i - i / 3; i = i + 1; } return s;",
+                "var z = -0.0; var a = z + 0; return a;",
+                "var z = -0.0; var b = z - 0; return b;",
+                "var t = 0; var i = 0; while (i < 5) { t = t + 0.5; i = i + 1; } return t;",
+                // Control flow and comparisons
+                """
+                var i = 0;
+                var s = 0;
+                while (i < 20) {
+                    i = i + 1;
+                    if (i == 3) { continue; }
+                    if (i > 15) { break; }
+                    s = s + i;
+                }
+                var t = s > 100;
+                var u = i <= 16.0;
+                if (t == u) { s = s * 1000; }
+                return s + i;
+                """,
+                // Runtime errors, including those of conditions whose value is not needed
+                "var a = 1; var b = 0; return a / b;",
+                "var a = 1; var b = 0; var r = 5; if (a / b) { r = 6; } return r;",
+                "var a = 1.5; var b = 0; var r = 5; while (a / b) { r = 6; break; } return r;",
+                "var a = 1; var b = 0; var t = 1 < 2; var r = 5; if (a / b == t) { r = 6; } return r;"
+        );
+    }
+
+    static Stream<String> programs() {
+        return Stream.of(
+                // Integer arithmetic, overflow into big integers and float division
+                "var a = 9223372036854775807; var b = a + 1; var c = b - 1; return b + \" \" + c + \" \" + 7 / 2;",
+                "var x = 3; var y = x * -1; var z = x / 4; return y + \" \" + z + \" \" + x * 2.5;",
+                "var i = 0; var s = 0; while (i < 100) { s = s + i * i - i / 3; i = i + 1; } return s;",
+                // Signed zeros survive identity folding
+                "var z = -0.0; var a = z + 0; var b = z - 0; var c = 0.0 + z; return a + \" \" + b + \" \" + c;",
+                // Control flow
+                """
+                var i = 0;
+                var s = 0;
+                while (i < 20) {
+                    i = i + 1;
+                    if (i == 3) { continue; }
+                    if (i > 15) { break; }
+                    s = s + i;
+                }
+                return s + " " + i;
+                """,
+                // Loop-invariant code with a division that only some iterations run
+                """
+                var a = 6;
+                var d = 0;
+                var s = 0;
+                var i = 0;
+                while (i < 10) {
+                    s = s + a * 7;
+                    if (i > 20) { s = s + a / d; }
+                    i = i + 1;
+                }
+                return s;
+                """,
+                // Functions, recursion and globals they write
+                """
+                var calls = 0;
+                function fib(n) {
+                    calls = calls + 1;
+                    if (n < 2) { return n; }
+                    return fib(n - 1) + fib(n - 2);
+                }
+                var r = fib(15);
+                return r + " " + calls;
+                """,
+                // Strings, where a + b and b + a differ
+                "var a = \"x\"; var b = \"y\"; var c = b + a; return a + b + c + 1 + 2;",
+                // Arrays
+                """
+                var a = [1, 2, 3, 4];
+                var b = a * 2 + 1;
+                b[0] = 10;
+                return b + " " + a + " " + b.length + " " + b[3];
+                """,
+                // Integer variables widened by a float assignment
+                "var t = 0; var i = 0; while (i < 5) { t = t + 0.5; i = i + 1; } return t;",
+                "var t = 0; var u = t; u = u / 2; return t + \" \" + u;",
+                // Values of unknown type stored into typed variables
+                "function f(n) { return n * 2; } var x = 0; x = f(21); var y = 0.5; y = f(1); return x + \" \" + y;",
+                "function f() { return \"no\"; } var x = 0; x = f(); return x;",
+                // Parallel loops with reductions
+                """
+                var total = 0;
+                var best = -1;
+                var least = 1000000;
+                parallel (i = 0, 1000) reduce (sum total, max best, min least) {
+                    total = total + i;
+                    if (i * 7 > best) { best = i * 7; }
+                    if (i + 3 < least) { least = i + 3; }
+                }
+                return total + " " + best + " " + least;
+                """,
+                // Parallel loops that read elements other iterations write are rejected before any engine runs
+                """
+                var a = [1, 2, 3, 4];
+                parallel (i = 0, 4) { a[i] = a[i] * 2; }
+                return a;
+                """,
+                "var a = [1, 2, 3, 4]; parallel (i = 0, 3) { a[i] = a[i + 1]; } return a;",
+                // Recursion up to and past the call depth limit
+                "function d(n) { if (n == 0) { return 0; } return 1 + d(n - 1); } return d(999);",
+                "function d(n) { if (n == 0) { return 0; } return 1 + d(n - 1); } return d(1000);",
+                // Runtime errors
+                "var a = 1; var b = 0; return a / b;",
+                "var a = [1, 2]; return a[5];"
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource({"scalarPrograms", "programs"})
+    void vmMatchesTreeInterpreter(String source) {
+        assertEquals(run(source, EngineDifferentialTest::interpret),
+                run(source, statements -> new VirtualMachine(new CodeGenerator().generate(statements)).run()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("scalarPrograms")
+    void nodeEngineMatchesTreeInterpreter(String source) {
+        assertEquals(run(source, EngineDifferentialTest::interpret),
+                run(source, statements -> new NodeBuilder().build(statements).execute()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("scalarPrograms")
+    void jvmBackendMatchesTreeInterpreter(String source) {
+        assertEquals(run(source, EngineDifferentialTest::interpret),
+                run(source, statements -> new JvmCompiler().load(statements).run()));
+    }
+
+    // Runs on a thread with the stack the CLI gives the tree engine, which the test thread may not have
+    private static Object interpret(List<Stmt> statements) {
+        AtomicReference<Object> result = new AtomicReference<>();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(new Interpreter().interpret(statements));
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        }, "tree", Interpreter.STACK_SIZE);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return result.get();
+    }
+
+    private static String run(String source, Function<List<Stmt>, Object> engine) {
+        try {
+            List<Stmt> statements = new Parser(Lexer.tokenize(source)).parse();
+            new SemanticAnalyzer().analyze(statements);
+            statements = new Optimizer().optimize(statements);
+            return ArrayMath.toString(engine.apply(statements));
+        } catch (RuntimeException e) {
+            return "error: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package luma.codegen.ir;
+
+import org.junit.jupiter.api.Test;
+
+import static luma.codegen.ir.IrTesting.instructions;
+import static luma.codegen.ir.IrTesting.main;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CommonSubexpressionEliminationTest {
+    @Test
+    void mergesRepeatedArithmetic() {
+        IrFunction function = main("var a = 3; var b = 4; var c = a * b; var d = a * b; return c - d;");
+        new CommonSubexpressionElimination().run(function);
+        assertEquals(1, instructions(function, IrOp.MUL).size());
+    }
+
+    @Test
+    void mergesCommutedNumbers() {
+        IrFunction function = main("var a = 3; var b = 4; var c = a + b; var d = b + a; return c - d;");
+        new CommonSubexpressionElimination().run(function);
+        assertEquals(1, instructions(function, IrOp.ADD).size());
+    }
+
+    @Test
+    void keepsCommutedConcatenations() {
+        IrFunction function = main("var a = \"x\"; var b = \"y\"; var c = a + b; var d = b + a; return c + d;");
+        new CommonSubexpressionElimination().run(function);
+        assertEquals(3, instructions(function, IrOp.ADD).size());
+    }
+
+    @Test
+    void keepsRepeatedConcatenations() {
+        // Strings are not pure values here: only numbers and booleans are merged
+        IrFunction function = main("var a = \"x\"; var b = \"y\"; var c = a + b; var d = a + b; return c + d;");
+        new CommonSubexpressionElimination().run(function);
+        assertEquals(3, instructions(function, IrOp.ADD).size());
+    }
+
+    @Test
+    void doesNotMergeAcrossBranches() {
+        IrFunction function = main("var a = 3; var b = 4; var c = 0; "
+                + "if (a > 1) { c = a * b; } else { c = a * b + 1; } return c;");
+        new CommonSubexpressionElimination().run(function);
+        assertEquals(2, instructions(function, IrOp.MUL).size());
+    }
+}
@@ -0,0 +1,43 @@
+package luma.codegen.ir;
+
+import org.junit.jupiter.api.Test;
+
+import static luma.codegen.ir.IrTesting.instructions;
+import static luma.codegen.ir.IrTesting.main;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeadCodeEliminationTest {
+    // Top-level variables of the main program are written back to the global frame at its end, so the unused ones
+    // are declared inside blocks
+    @Test
+    void removesUnusedVariables() {
+        IrFunction function = main("var a = 3; { var unused = a * 7; } return a;");
+        new DeadCodeElimination().run(function);
+        assertEquals(0, instructions(function, IrOp.MUL).size());
+    }
+
+    @Test
+    void keepsUnusedDivisionThatMayFail() {
+        IrFunction function = main("var a = 3; var d = 0; { var unused = a / d; } return a;");
+        new DeadCodeElimination().run(function);
+        assertEquals(1, instructions(function, IrOp.DIV).size());
+    }
+
+    @Test
+    void removesPhisThatOnlyFeedEachOther() {
+        IrFunction function = main("var i = 0; { var a = 0; while (i < 10) { a = a + 1; i = i + 1; } } return i;");
+        new DeadCodeElimination().run(function);
+        // The loop counter keeps its phi; the unused accumulator loses its phi and its addition
+        assertEquals(1, instructions(function, IrOp.PHI).size());
+        assertEquals(1, instructions(function, IrOp.ADD).size());
+    }
+
+    @Test
+    void keepsCallsAndStoresToGlobals() {
+        IrFunction function = main("var g = 1; function f() { return g; } g = 2; f(); return 0;");
+        int stores = instructions(function, IrOp.STORE_GLOBAL).size();
+        new DeadCodeElimination().run(function);
+        assertEquals(1, instructions(function, IrOp.CALL).size());
+        assertEquals(stores, instructions(function, IrOp.STORE_GLOBAL).size());
+    }
+}
@@ -0,0 +1,44 @@
+package luma.codegen.ir;
+
+import luma.lexer.Lexer;
+import luma.optimizer.Optimizer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.semantic.SemanticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Builds the IR of a script the way CodeGenerator does, without running any pass
+final class IrTesting {
+    private IrTesting() {
+    }
+
+    static IrFunction main(String source) {
+        List<Stmt> statements = new Parser(Lexer.tokenize(source)).parse();
+        new SemanticAnalyzer().analyze(statements);
+        statements = new Optimizer().optimize(statements);
+        return new IrBuilder().build(statements).getMain();
+    }
+
+    static List<Instruction> instructions(IrFunction function, int op) {
+        List<Instruction> result = new ArrayList<>();
+        for (Block block : function.getBlocks()) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction.op == op) {
+                    result.add(instruction);
+                }
+            }
+        }
+        return result;
+    }
+
+    static Instruction only(IrFunction function, int op) {
+        List<Instruction> found = instructions(function, op);
+        if (found.size() != 1) {
+            throw new AssertionError("Expected one " + IrOp.name(op) + " but found " + found.size() + " in\n"
+                    + function);
+        }
+        return found.get(0);
+    }
+}
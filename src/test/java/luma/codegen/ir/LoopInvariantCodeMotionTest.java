@@ -0,0 +1,45 @@
+package luma.codegen.ir;
+
+import org.junit.jupiter.api.Test;
+
+import static luma.codegen.ir.IrTesting.main;
+import static luma.codegen.ir.IrTesting.only;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LoopInvariantCodeMotionTest {
+    private static final String LOOP = "var a = 3; var b = 4; var d = 0; var s = 0; var i = 0; "
+            + "while (i < 10) { if (i > 5) { s = s + %s; } i = i + 1; } return s;";
+
+    @Test
+    void hoistsInvariantArithmetic() {
+        IrFunction function = main(LOOP.formatted("a * b"));
+        new LoopInvariantCodeMotion().run(function);
+        assertSame(function.getEntry(), only(function, IrOp.MUL).block);
+    }
+
+    @Test
+    void hoistsDivisionByNonZeroConstant() {
+        IrFunction function = main(LOOP.formatted("a / 3"));
+        new LoopInvariantCodeMotion().run(function);
+        assertSame(function.getEntry(), only(function, IrOp.DIV).block);
+    }
+
+    @Test
+    void keepsTrappingDivisionInTheLoop() {
+        // The division only runs when i > 5; hoisting it would fail before the loop even when it never ran
+        IrFunction function = main(LOOP.formatted("a / d"));
+        Block block = only(function, IrOp.DIV).block;
+        new LoopInvariantCodeMotion().run(function);
+        assertSame(block, only(function, IrOp.DIV).block);
+        assertNotSame(function.getEntry(), block);
+    }
+
+    @Test
+    void keepsValuesThatChangeInTheLoop() {
+        IrFunction function = main(LOOP.formatted("a * i"));
+        Block block = only(function, IrOp.MUL).block;
+        new LoopInvariantCodeMotion().run(function);
+        assertSame(block, only(function, IrOp.MUL).block);
+    }
+}
@@ -0,0 +1,54 @@
+package luma.codegen.ir;
+
+import luma.semantic.Type;
+import org.junit.jupiter.api.Test;
+
+import static luma.codegen.ir.IrTesting.instructions;
+import static luma.codegen.ir.IrTesting.main;
+import static luma.codegen.ir.IrTesting.only;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StrengthReductionTest {
+    @Test
+    void turnsDivisionByPowerOfTwoIntoMultiplication() {
+        IrFunction function = main("var x = 3; return x / 4;");
+        new StrengthReduction().run(function);
+        assertEquals(0, instructions(function, IrOp.DIV).size());
+        Instruction multiplication = only(function, IrOp.MUL);
+        assertEquals(0.25, multiplication.getOperand(1).constant);
+        assertEquals(Type.NUMBER, multiplication.type);
+    }
+
+    @Test
+    void keepsDivisionByOtherConstants() {
+        IrFunction function = main("var x = 3; return x / 3;");
+        new StrengthReduction().run(function);
+        assertEquals(1, instructions(function, IrOp.DIV).size());
+        assertEquals(0, instructions(function, IrOp.MUL).size());
+    }
+
+    @Test
+    void turnsMultiplicationByMinusOneIntoNegation() {
+        IrFunction function = main("var x = 3; return x * -1;");
+        new StrengthReduction().run(function);
+        assertEquals(0, instructions(function, IrOp.MUL).size());
+        assertEquals(Type.INTEGER, only(function, IrOp.NEG).type);
+    }
+
+    @Test
+    void keepsMultiplicationThatChangesTheKindOfNumber() {
+        // An integer times -1.0 is a float, which negating the integer would not give
+        IrFunction function = main("var x = 3; return x * -1.0;");
+        new StrengthReduction().run(function);
+        assertEquals(1, instructions(function, IrOp.MUL).size());
+        assertEquals(0, instructions(function, IrOp.NEG).size());
+    }
+
+    @Test
+    void leavesValuesOfUnknownTypeAlone() {
+        // The function could return a string, whose error message has to name the division
+        IrFunction function = main("function f() { return 3; } var x = f(); return x / 2;");
+        new StrengthReduction().run(function);
+        assertEquals(1, instructions(function, IrOp.DIV).size());
+    }
+}
@@ -0,0 +1,50 @@
+package luma.interpreter;
+
+import luma.lexer.Lexer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.semantic.SemanticAnalyzer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The tree engine must reach the same call depth limit as the VM and fail the same way past it, rather than with
+// a StackOverflowError, whatever stack the calling thread has
+class CallDepthTest {
+    private static final String OVERFLOW = "error: Stack overflow: calls nested more than 1000 deep.";
+
+    private static String recurse(int depth, long stackSize) throws InterruptedException {
+        List<Stmt> statements = new Parser(Lexer.tokenize(
+                "function d(n) { if (n == 0) { return 0; } return 1 + d(n - 1); } return d(" + depth + ");")).parse();
+        new SemanticAnalyzer().analyze(statements);
+        AtomicReference<String> result = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                result.set(String.valueOf(new Interpreter().interpret(statements)));
+            } catch (RuntimeException e) {
+                result.set("error: " + e.getMessage());
+            } catch (StackOverflowError e) {
+                result.set("StackOverflowError");
+            }
+        }, "deep", stackSize);
+        thread.start();
+        thread.join();
+        return result.get();
+    }
+
+    @Test
+    void reachesTheCallDepthLimit() throws InterruptedException {
+        assertEquals("990", recurse(990, Interpreter.STACK_SIZE));
+        assertEquals("999", recurse(999, Interpreter.STACK_SIZE));
+        assertEquals(OVERFLOW, recurse(1000, Interpreter.STACK_SIZE));
+    }
+
+    @Test
+    void smallStacksFailLikeTheLimit() throws InterruptedException {
+        assertEquals(OVERFLOW, recurse(990, 256 << 10));
+        assertEquals(OVERFLOW, recurse(100000, 256 << 10));
+    }
+}
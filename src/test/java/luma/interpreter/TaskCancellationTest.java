@@ -0,0 +1,44 @@
+package luma.interpreter;
+
+import luma.lexer.Lexer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import luma.runtime.ExecutionBudget;
+import luma.runtime.ExecutionLimits;
+import luma.semantic.SemanticAnalyzer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Tasks must not keep running once the script that spawned them has failed
+class TaskCancellationTest {
+    @Test
+    @Timeout(10)
+    void stopsTasksWhenTheScriptFails() throws InterruptedException {
+        List<Stmt> statements = new Parser(Lexer.tokenize("""
+                var n = 0;
+                function spin() { while (1 < 2) { n = n + 1; } }
+                function wait(c) { return receive(c); }
+                var c = channel(1);
+                var t = spawn spin();
+                var w = spawn wait(c);
+                var i = 0;
+                while (n < 10000) { i = i + 1; }
+                var z = 0;
+                return 1 / z;
+                """)).parse();
+        new SemanticAnalyzer().analyze(statements);
+        ExecutionBudget budget = new ExecutionBudget(ExecutionLimits.UNLIMITED);
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> new Interpreter(budget).interpret(statements));
+        assertEquals("Division by zero.", error.getMessage());
+        // A task that still ran would go on passing its steps on to the script's budget
+        long steps = budget.getSteps();
+        Thread.sleep(200);
+        assertEquals(steps, budget.getSteps());
+    }
+}
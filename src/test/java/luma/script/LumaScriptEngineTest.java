@@ -0,0 +1,53 @@
+package luma.script;
+
+import org.junit.jupiter.api.Test;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LumaScriptEngineTest {
+    private final ScriptEngine engine = new LumaScriptEngineFactory().getScriptEngine();
+
+    private static Bindings bindings(Object... namesAndValues) {
+        Bindings bindings = new SimpleBindings();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            bindings.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return bindings;
+    }
+
+    private String error(String script) {
+        return assertThrows(ScriptException.class, () -> engine.eval(script, bindings("k", 5L))).getMessage();
+    }
+
+    @Test
+    void readsAndWritesUndeclaredNamesThroughTheBindings() throws ScriptException {
+        CompiledScript script = ((LumaScriptEngine) engine).compile(
+                "function f(p) { return p + k; } { var k = 1; n = n + k; } return f(n);");
+        Bindings bindings = bindings("k", 100L, "n", 5L);
+        assertEquals(106L, script.eval(bindings));
+        assertEquals(6L, bindings.get("n"));
+    }
+
+    @Test
+    void namesDeclaredLaterAreNotTakenFromTheBindings() {
+        assertEquals("Error during semantic analysis: Variable or function 'k' is used before it is declared.",
+                error("var r = k; var k = 2; return r;"));
+        assertEquals("Error during semantic analysis: Variable or function 'h' is not declared.",
+                error("function f() { return h(); } function h() { return 1; } return f();"));
+    }
+
+    @Test
+    void rejectsTasksAndChannels() {
+        assertEquals("Tasks and channels are not supported by the script engine.",
+                error("function sq(n) { return n * n; } var t = spawn sq(4); return join(t);"));
+        assertEquals("Tasks and channels are not supported by the script engine.",
+                error("var c = channel(1); return 0;"));
+    }
+}
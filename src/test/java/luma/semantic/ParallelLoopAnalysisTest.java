@@ -0,0 +1,64 @@
+package luma.semantic;
+
+import luma.lexer.Lexer;
+import luma.parser.Parser;
+import luma.parser.Stmt;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelLoopAnalysisTest {
+    private static void analyze(String source) {
+        List<Stmt> statements = new Parser(Lexer.tokenize(source)).parse();
+        new SemanticAnalyzer().analyze(statements);
+    }
+
+    private static String error(String source) {
+        return assertThrows(SemanticError.class, () -> analyze(source)).getMessage();
+    }
+
+    @Test
+    void acceptsReadsAtTheLoopIndex() {
+        assertDoesNotThrow(() -> analyze("var a = [1, 2, 3]; var b = [4, 5, 6]; "
+                + "parallel (i = 0, 3) { a[i] = a[i] * 2 + b[2 - i] + a.length; }"));
+    }
+
+    @Test
+    void rejectsReadsOfElementsOtherIterationsWrite() {
+        assertEquals("The parallel loop on line 1 assigns elements of 'a', so it can only read them at its own "
+                + "index, as in a[i].", error("var a = [1, 2, 3]; parallel (i = 0, 2) { a[i] = a[i + 1]; }"));
+    }
+
+    @Test
+    void rejectsReadsBeforeTheWrite() {
+        error("var a = [1, 2, 3]; parallel (i = 0, 3) { var x = a[0]; a[i] = x; }");
+    }
+
+    @Test
+    void rejectsWholeArrayReadsOfAWrittenArray() {
+        error("var a = [1, 2, 3]; parallel (i = 0, 3) { var s = a * 2; a[i] = s[i]; }");
+    }
+
+    @Test
+    void rejectsWritesAtOtherIndexes() {
+        error("var a = [1, 2, 3]; parallel (i = 0, 2) { a[i + 1] = 0; }");
+    }
+
+    @Test
+    void acceptsReductionShapes() {
+        assertDoesNotThrow(() -> analyze("var t = 0; var lo = 100; var hi = 0; "
+                + "parallel (i = 0, 10) reduce (sum t, min lo, max hi) { "
+                + "t = t + i; if (i < lo) { lo = i; } if (hi < i * 2) { hi = i * 2; } }"));
+    }
+
+    @Test
+    void rejectsOtherReadsOfReductionVariables() {
+        error("var t = 0; parallel (i = 0, 10) reduce (sum t) { if (t > 5) { t = t + 1; } }");
+        error("var t = 0; parallel (i = 0, 10) reduce (sum t) { t = i + t; }");
+        error("var t = 0; parallel (i = 0, 10) reduce (max t) { if (i < t) { t = i; } }");
+    }
+}